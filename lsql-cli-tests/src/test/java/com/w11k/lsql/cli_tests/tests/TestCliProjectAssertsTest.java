@@ -1,9 +1,11 @@
 package com.w11k.lsql.cli_tests.tests;
 
 import com.google.common.base.Optional;
+import com.google.common.collect.Lists;
 import com.google.common.reflect.Invokable;
 import com.w11k.lsql.Row;
 import com.w11k.lsql.Table;
+import com.w11k.lsql.TypedStatementCommand;
 import com.w11k.lsql.cli.tests.DummyDto;
 import com.w11k.lsql.cli.tests.Stmts1;
 import com.w11k.lsql.cli.tests.schema_public.Person1_Row;
@@ -281,6 +283,24 @@ public final class TestCliProjectAssertsTest extends AbstractTestCliTest {
         assertFalse(row.isPresent());
     }
 
+    @Test
+    public void statementDeleteBatch() {
+        Person2_Table person2Table = new Person2_Table(lSql);
+        person2Table.insert(new Person2_Row().withId(1).withFirstName("a").withAge(50));
+        person2Table.insert(new Person2_Row().withId(2).withFirstName("b").withAge(50));
+        person2Table.insert(new Person2_Row().withId(3).withFirstName("c").withAge(50));
+
+        StmtsCamelCase2 statement = new StmtsCamelCase2(lSql);
+        int[] counts = TypedStatementCommand.executeBatch(Lists.newArrayList(
+                statement.deletePersonByFirstName().withFirstName("a"),
+                statement.deletePersonByFirstName().withFirstName("b"),
+                statement.deletePersonByFirstName().withFirstName("x")));
+
+        assertEquals(counts, new int[]{1, 1, 0});
+        assertTrue(person2Table.load(3).isPresent());
+        assertFalse(person2Table.load(1).isPresent());
+    }
+
     @Test
     public void dto() {
         SubDummyDto dto = new DummyDto()
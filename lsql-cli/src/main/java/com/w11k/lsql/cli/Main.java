@@ -63,6 +63,12 @@ public class Main {
             javaExporter.setStatementFileExporters(statementFileExporters);
 
             javaExporter.export();
+
+            // SQL file indexes
+            if (cliArgs.getOutDirSqlIndex() != null) {
+                File outDirSqlIndex = new File(cliArgs.getOutDirSqlIndex());
+                statementFileExporters.forEach(e -> e.exportSqlFileIndex(outDirSqlIndex));
+            }
         }
 
         if (cliArgs.getOutDirTypeScript() != null && javaExporter != null) {
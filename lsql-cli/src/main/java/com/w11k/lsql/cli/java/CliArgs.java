@@ -21,6 +21,7 @@ public final class CliArgs {
             .put("dto", "root directory that contains Java files with embedded DTO declarations")
             .put("outDirJava", "output directory for all generated Java classes")
             .put("outDirTypeScript", "output directory for the generated TypeScript file domain.d.ts")
+            .put("outDirSqlIndex", "output directory for precompiled SQL file indexes (*.sql.idx), mirrors the sqlStatements directory")
             .put("di", "Specify in which DI container the generated classes are used. Valid values: guice, java")
             .build();
 
@@ -48,6 +49,8 @@ public final class CliArgs {
 
     private String outDirTypeScript;
 
+    private String outDirSqlIndex;
+
     public CliArgs(String[] args) {
         boolean hadErrors = false;
 
@@ -87,6 +90,8 @@ public final class CliArgs {
                     this.outDirJava = value;
                 } else if (key.equals("outDirTypeScript")) {
                     this.outDirTypeScript = value;
+                } else if (key.equals("outDirSqlIndex")) {
+                    this.outDirSqlIndex = value;
                 } else if (key.equals("di")) {
                     if (value.equalsIgnoreCase("guice")) {
                         this.diGuice = true;
@@ -152,6 +157,10 @@ public final class CliArgs {
         return outDirTypeScript;
     }
 
+    public String getOutDirSqlIndex() {
+        return outDirSqlIndex;
+    }
+
     public String getDto() {
         return dto;
     }
@@ -3,14 +3,19 @@ package com.w11k.lsql.cli.java;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Sets;
+import com.google.common.io.Files;
 import com.w11k.lsql.LSql;
 import com.w11k.lsql.cli.CodeGenUtils;
 import com.w11k.lsql.query.RowQuery;
 import com.w11k.lsql.sqlfile.LSqlFile;
+import com.w11k.lsql.sqlfile.LSqlFileIndex;
 import com.w11k.lsql.statement.AbstractSqlStatement;
 import com.w11k.lsql.statement.SqlStatementToPreparedStatement;
 
 import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
 import java.util.List;
 import java.util.Set;
 
@@ -35,6 +40,8 @@ public final class StatementFileExporter {
 
     private final String stmtFileClassName;
 
+    private final LSqlFile lSqlFile;
+
     public StatementFileExporter(LSql lSql,
                                  JavaExporter javaExporter,
                                  File stmtSourceFile,
@@ -48,14 +55,14 @@ public final class StatementFileExporter {
         this.stmtFileClassName = getNameWithoutExtension(this.stmtSourceFile.toPath());
 
         // read statements in file
-        LSqlFile lSqlFile = new LSqlFile(lSql, stmtSourceFile.getAbsolutePath(), stmtSourceFile.getAbsolutePath());
-        ImmutableMap<String, SqlStatementToPreparedStatement> statements = lSqlFile.getStatements();
+        this.lSqlFile = new LSqlFile(lSql, stmtSourceFile.getAbsolutePath(), stmtSourceFile.getAbsolutePath());
+        ImmutableMap<String, SqlStatementToPreparedStatement> statements = this.lSqlFile.getStatements();
 
         // process statements
         boolean containsOnlyVoidStatements = true;
         for (String stmtName : statements.keySet()) {
-            AbstractSqlStatement<RowQuery> query = lSqlFile.statement(stmtName);
-            SqlStatementToPreparedStatement stmt = lSqlFile.getSqlStatementToPreparedStatement(stmtName);
+            AbstractSqlStatement<RowQuery> query = this.lSqlFile.statement(stmtName);
+            SqlStatementToPreparedStatement stmt = this.lSqlFile.getSqlStatementToPreparedStatement(stmtName);
 
             if (stmt.getTypeAnnotation().toLowerCase().equals("nogen")) {
                 continue;
@@ -79,12 +86,14 @@ public final class StatementFileExporter {
                         getJavaCodeName(stmt.getStatementName(), false, true),
                         joinStringsAsPackageName(
                                 this.javaExporter.getPackageName(), this.getSubPackageName(), this.stmtFileClassName.toLowerCase()));
-                query.query().createResultSetWithColumns().getColumns().forEach(c -> {
-                    String colName = c.getName();
-                    String fieldName = getJavaCodeName(colName, false, false);
-                    dcm.addField(fieldName, colName, c.getConverter().getJavaType())
-                    .setNullable(c.isNullable());
-                });
+                try (RowQuery rowQuery = query.query()) {
+                    rowQuery.createResultSetWithColumns().getColumns().forEach(c -> {
+                        String colName = c.getName();
+                        String fieldName = getJavaCodeName(colName, false, false);
+                        dcm.addField(fieldName, colName, c.getConverter().getJavaType())
+                        .setNullable(c.isNullable());
+                    });
+                }
                 this.stmtRowDataClassMetaList.add(dcm);
             }
             rollback(lSql);
@@ -100,6 +109,24 @@ public final class StatementFileExporter {
         return structuralTypingFields;
     }
 
+    /**
+     * Writes the {@link LSqlFileIndex} of the statement file. The directory structure below
+     * {@code outputDir} mirrors the structure below the statement files root directory.
+     */
+    public void exportSqlFileIndex(File outputDir) {
+        File baseDir = getFileFromBaseDirAndPackageName(outputDir, this.getSubPackageName());
+        File outputFile = new File(baseDir, this.stmtSourceFile.getName() + LSqlFileIndex.FILE_EXTENSION);
+        log("Writing", outputFile.getAbsolutePath());
+        try {
+            Files.createParentDirs(outputFile);
+            try (OutputStream os = new FileOutputStream(outputFile)) {
+                LSqlFileIndex.create(this.lSqlFile).write(os);
+            }
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
     private void exportTypedStatementClass(Set<StructuralTypingField> structuralTypingFields) {
         StringBuilder content = new StringBuilder();
 
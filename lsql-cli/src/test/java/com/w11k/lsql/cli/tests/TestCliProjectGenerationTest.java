@@ -36,6 +36,11 @@ public final class TestCliProjectGenerationTest {
             MoreFiles.deleteRecursively(genTSDir.toPath());
         }
 
+        File sqlIndexDir = pathRelativeToProjectRoot("pom.xml", "./target/sql-index");
+        if (sqlIndexDir.exists()) {
+            MoreFiles.deleteRecursively(sqlIndexDir.toPath());
+        }
+
         String url = "jdbc:h2:mem:" + UUID.randomUUID() + ";mode=postgresql";
 
         BasicDataSource ds = new BasicDataSource();
@@ -56,9 +61,13 @@ public final class TestCliProjectGenerationTest {
                 "package:" + TestCliConfig.class.getPackage().getName(),
                 "di:guice",
                 "outDirJava:" + genJavaDir.getAbsolutePath(),
-                "outDirTypeScript:" + genTSDir.getAbsolutePath()
+                "outDirTypeScript:" + genTSDir.getAbsolutePath(),
+                "outDirSqlIndex:" + sqlIndexDir.getAbsolutePath()
         };
         Main.main(args);
+
+        Assert.assertTrue(new File(sqlIndexDir, "Stmts1.sql.idx").isFile());
+        Assert.assertTrue(new File(sqlIndexDir, "subdir/subsubdir/StmtsCamelCase2.sql.idx").isFile());
     }
 
     @Test
@@ -0,0 +1,51 @@
+package com.w11k.lsql;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+
+import java.util.List;
+
+/**
+ * Immutable mapping of column names to positions, shared by all {@link IndexedRow}s of a
+ * ResultSet.
+ */
+public final class ColumnIndex {
+
+    public static ColumnIndex of(List<String> columnNames) {
+        return new ColumnIndex(columnNames);
+    }
+
+    private final ImmutableList<String> names;
+
+    private final ImmutableMap<String, Integer> positions;
+
+    private ColumnIndex(List<String> columnNames) {
+        this.names = ImmutableList.copyOf(columnNames);
+        ImmutableMap.Builder<String, Integer> builder = ImmutableMap.builder();
+        for (int i = 0; i < this.names.size(); i++) {
+            builder.put(this.names.get(i), i);
+        }
+        this.positions = builder.build();
+    }
+
+    /**
+     * @return the position of the column or -1
+     */
+    public int indexOf(Object columnName) {
+        Integer position = this.positions.get(columnName);
+        return position != null ? position : -1;
+    }
+
+    public String getName(int index) {
+        return this.names.get(index);
+    }
+
+    public List<String> getNames() {
+        return this.names;
+    }
+
+    public int size() {
+        return this.names.size();
+    }
+
+}
@@ -5,6 +5,7 @@ import com.w11k.lsql.converter.Converter;
 import com.w11k.lsql.dialects.GenericDialect;
 
 import java.util.Map;
+import java.util.concurrent.ThreadFactory;
 
 public class Config {
 
@@ -14,6 +15,32 @@ public class Config {
 
     private Integer defaultQueryTimeoutInSeconds = null;
 
+    private int statementCacheSize = 1000;
+
+    private int preparedStatementCacheSize = 0;
+
+    private long statementLeakDetectionThresholdMillis = 0;
+
+    private int batchChunkSize = 1000;
+
+    private Integer defaultFetchSize = null;
+
+    private int jdbcExecutorPoolSize = 8;
+
+    private int jdbcExecutorQueueCapacity = 1000;
+
+    private ThreadFactory jdbcExecutorThreadFactory = null;
+
+    private boolean jdbcExecutorClosesConnections = true;
+
+    private int fanOutMaxParallelism = 4;
+
+    private int queryResultCacheSize = 1000;
+
+    private long queryResultCacheTtlMillis = 60000;
+
+    private int multiQueryTreeChunkSize = 500;
+
     public Config() {
     }
 
@@ -67,4 +94,163 @@ public class Config {
         this.defaultQueryTimeoutInSeconds = defaultQueryTimeoutInSeconds;
     }
 
+    public int getStatementCacheSize() {
+        return statementCacheSize;
+    }
+
+    /**
+     * Sets the maximum number of parsed SQL statements that {@link LSql} keeps for reuse.
+     * Use 0 to disable the cache.
+     */
+    protected void setStatementCacheSize(int statementCacheSize) {
+        this.statementCacheSize = statementCacheSize;
+    }
+
+    public int getPreparedStatementCacheSize() {
+        return preparedStatementCacheSize;
+    }
+
+    /**
+     * Sets the maximum number of idle {@link java.sql.PreparedStatement}s cached per connection.
+     * Defaults to 0 (disabled).
+     */
+    protected void setPreparedStatementCacheSize(int preparedStatementCacheSize) {
+        this.preparedStatementCacheSize = preparedStatementCacheSize;
+    }
+
+    public long getStatementLeakDetectionThresholdMillis() {
+        return statementLeakDetectionThresholdMillis;
+    }
+
+    /**
+     * Reports statements that are still open after the given time, see
+     * {@link com.w11k.lsql.jdbc.StatementLeakDetector}. Leaks are checked when a statement is
+     * opened or {@link com.w11k.lsql.jdbc.StatementLeakDetector#reportLeaks()} is called.
+     * Defaults to 0 (disabled).
+     */
+    protected void setStatementLeakDetectionThresholdMillis(long statementLeakDetectionThresholdMillis) {
+        this.statementLeakDetectionThresholdMillis = statementLeakDetectionThresholdMillis;
+    }
+
+    public int getBatchChunkSize() {
+        return batchChunkSize;
+    }
+
+    /**
+     * Sets the number of rows sent to the database per JDBC batch in
+     * {@link com.w11k.lsql.statement.AbstractSqlStatement#executeBatch(Iterable)} and
+     * {@link Table#insertAll(Iterable)}.
+     */
+    protected void setBatchChunkSize(int batchChunkSize) {
+        this.batchChunkSize = batchChunkSize;
+    }
+
+    public Integer getDefaultFetchSize() {
+        return defaultFetchSize;
+    }
+
+    /**
+     * Sets the JDBC fetch size of all queries. Defaults to {@code null} (driver default).
+     */
+    protected void setDefaultFetchSize(Integer defaultFetchSize) {
+        this.defaultFetchSize = defaultFetchSize;
+    }
+
+    public int getJdbcExecutorPoolSize() {
+        return jdbcExecutorPoolSize;
+    }
+
+    /**
+     * Sets the maximum number of concurrently running async operations, see
+     * {@link com.w11k.lsql.jdbc.JdbcExecutor}. Defaults to 8.
+     */
+    protected void setJdbcExecutorPoolSize(int jdbcExecutorPoolSize) {
+        this.jdbcExecutorPoolSize = jdbcExecutorPoolSize;
+    }
+
+    public int getJdbcExecutorQueueCapacity() {
+        return jdbcExecutorQueueCapacity;
+    }
+
+    /**
+     * Sets the maximum number of async operations waiting for a thread. Defaults to 1000.
+     */
+    protected void setJdbcExecutorQueueCapacity(int jdbcExecutorQueueCapacity) {
+        this.jdbcExecutorQueueCapacity = jdbcExecutorQueueCapacity;
+    }
+
+    public ThreadFactory getJdbcExecutorThreadFactory() {
+        return jdbcExecutorThreadFactory;
+    }
+
+    /**
+     * Sets the factory for the threads of async operations, e.g. a virtual thread factory.
+     * Defaults to {@code null} (daemon platform threads).
+     */
+    protected void setJdbcExecutorThreadFactory(ThreadFactory jdbcExecutorThreadFactory) {
+        this.jdbcExecutorThreadFactory = jdbcExecutorThreadFactory;
+    }
+
+    public boolean isJdbcExecutorClosesConnections() {
+        return jdbcExecutorClosesConnections;
+    }
+
+    /**
+     * Closes the connection that each async operation obtained from the connection provider when
+     * it finished, e.g. to return it to a pool. Connections of
+     * {@link com.w11k.lsql.jdbc.ConnectionProviders#fromInstance(java.sql.Connection)} are never
+     * closed. Set to false if the provider manages the connections itself. Defaults to true.
+     */
+    protected void setJdbcExecutorClosesConnections(boolean jdbcExecutorClosesConnections) {
+        this.jdbcExecutorClosesConnections = jdbcExecutorClosesConnections;
+    }
+
+    public int getFanOutMaxParallelism() {
+        return fanOutMaxParallelism;
+    }
+
+    /**
+     * Sets the default number of invocations of a {@link FanOut} that run at the same time.
+     * Defaults to 4.
+     */
+    protected void setFanOutMaxParallelism(int fanOutMaxParallelism) {
+        this.fanOutMaxParallelism = fanOutMaxParallelism;
+    }
+
+    public int getQueryResultCacheSize() {
+        return queryResultCacheSize;
+    }
+
+    /**
+     * Sets the maximum number of results in the {@link com.w11k.lsql.query.QueryResultCache}.
+     * Defaults to 1000.
+     */
+    protected void setQueryResultCacheSize(int queryResultCacheSize) {
+        this.queryResultCacheSize = queryResultCacheSize;
+    }
+
+    public long getQueryResultCacheTtlMillis() {
+        return queryResultCacheTtlMillis;
+    }
+
+    /**
+     * Sets the time after which cached query results expire. Use 0 to keep results until they
+     * get evicted or invalidated. Defaults to 60 seconds.
+     */
+    protected void setQueryResultCacheTtlMillis(long queryResultCacheTtlMillis) {
+        this.queryResultCacheTtlMillis = queryResultCacheTtlMillis;
+    }
+
+    public int getMultiQueryTreeChunkSize() {
+        return multiQueryTreeChunkSize;
+    }
+
+    /**
+     * Sets the maximum number of parent IDs a {@link MultiQueryTree} passes to one execution of a
+     * child statement. Defaults to 500.
+     */
+    protected void setMultiQueryTreeChunkSize(int multiQueryTreeChunkSize) {
+        this.multiQueryTreeChunkSize = multiQueryTreeChunkSize;
+    }
+
 }
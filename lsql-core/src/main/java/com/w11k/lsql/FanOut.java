@@ -0,0 +1,416 @@
+package com.w11k.lsql;
+
+import com.google.common.base.Optional;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.w11k.lsql.exceptions.FanOutException;
+import com.w11k.lsql.statement.AbstractSqlStatement;
+
+import java.sql.Connection;
+import java.util.ArrayDeque;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Function;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkState;
+
+/**
+ * Runs independent invocations concurrently on the {@link com.w11k.lsql.jdbc.JdbcExecutor}. Each
+ * invocation obtains one connection from the connection provider on its worker thread and uses
+ * it for all its operations.
+ * <p/>
+ * At most {@link #maxParallelism(int)} invocations of a fan-out run at the same time, the total
+ * number of concurrent JDBC operations is limited by the executor. {@link #execute()} must not be
+ * called from an executor thread.
+ * <p/>
+ * <pre>
+ * FanOut fanOut = lSql.fanOut();
+ * FanOut.Invocation&lt;List&lt;Row&gt;&gt; a = fanOut.add("a", statementA, params, RowQuery::toList);
+ * FanOut.Invocation&lt;List&lt;Row&gt;&gt; b = fanOut.add("b", statementB, params, RowQuery::toList);
+ * fanOut.execute();
+ * a.get();
+ * </pre>
+ */
+public class FanOut {
+
+    private final LSql lSql;
+
+    private final List<Invocation<?>> invocations = Lists.newArrayList();
+
+    private boolean failFast = true;
+
+    private int maxParallelism;
+
+    private boolean closeConnections;
+
+    private long timeoutMillis = 0;
+
+    private boolean executed = false;
+
+    FanOut(LSql lSql) {
+        this.lSql = lSql;
+        this.maxParallelism = lSql.getConfig().getFanOutMaxParallelism();
+        this.closeConnections = lSql.getConfig().isJdbcExecutorClosesConnections();
+    }
+
+    public <R> Invocation<R> add(String name, Callable<R> task) {
+        checkState(!this.executed, "FanOut was already executed");
+        Invocation<R> invocation = new Invocation<>(name, task);
+        this.invocations.add(invocation);
+        return invocation;
+    }
+
+    /**
+     * Adds the invocation of a statement, e.g. {@code add("a", statement, params, RowQuery::toList)}.
+     */
+    public <Q, R> Invocation<R> add(String name,
+                                    AbstractSqlStatement<Q> statement,
+                                    Map<String, Object> queryParameters,
+                                    Function<Q, R> consumer) {
+        return add(name, () -> consumer.apply(statement.query(queryParameters)));
+    }
+
+    /**
+     * If enabled (default), {@link #execute()} throws as soon as one invocation failed and
+     * invocations that did not start yet are skipped. Running invocations are not interrupted.
+     */
+    public FanOut failFast(boolean failFast) {
+        this.failFast = failFast;
+        return this;
+    }
+
+    /**
+     * Sets the maximum number of invocations of this fan-out that run at the same time.
+     * Defaults to {@link Config#getFanOutMaxParallelism()}.
+     */
+    public FanOut maxParallelism(int maxParallelism) {
+        checkArgument(maxParallelism > 0, "maxParallelism must be > 0");
+        this.maxParallelism = maxParallelism;
+        return this;
+    }
+
+    /**
+     * Closes the connection that each invocation obtained from the connection provider when it
+     * finished, like {@link LSql#executeAsync(Callable)}. Connections of a shared provider are
+     * never closed. Defaults to {@link Config#isJdbcExecutorClosesConnections()}.
+     */
+    public FanOut closeConnections(boolean closeConnections) {
+        this.closeConnections = closeConnections;
+        return this;
+    }
+
+    /**
+     * Sets the maximum time {@link #execute()} waits for the invocations. 0 waits forever.
+     */
+    public FanOut timeout(long timeout, TimeUnit unit) {
+        this.timeoutMillis = unit.toMillis(timeout);
+        return this;
+    }
+
+    public List<Invocation<?>> getInvocations() {
+        return ImmutableList.copyOf(this.invocations);
+    }
+
+    /**
+     * Runs all invocations and waits until they finished.
+     *
+     * @throws FanOutException if an invocation failed or the timeout elapsed
+     */
+    public Result execute() {
+        checkState(!this.executed, "FanOut was already executed");
+        this.executed = true;
+
+        long start = System.nanoTime();
+        Scheduler scheduler = new Scheduler();
+        scheduler.start();
+
+        try {
+            if (this.timeoutMillis > 0) {
+                scheduler.done.get(this.timeoutMillis, TimeUnit.MILLISECONDS);
+            } else {
+                scheduler.done.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            scheduler.skipPending();
+            throw new FanOutException("Interrupted while waiting for the fan-out", e);
+        } catch (TimeoutException e) {
+            scheduler.skipPending();
+            throw new FanOutException("Fan-out did not finish within " + this.timeoutMillis + "ms", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException(e);
+        }
+
+        Result result = new Result(this.invocations, System.nanoTime() - start);
+        List<Invocation<?>> failed = result.getFailedInvocations();
+        if (!failed.isEmpty() && this.failFast) {
+            Invocation<?> first = failed.get(0);
+            throw new FanOutException("Invocation '" + first.getName() + "' failed", first.getErrorAsException());
+        }
+        return result;
+    }
+
+    private void run(Invocation<?> invocation) throws Exception {
+        Connection connection = this.lSql.getConnectionProvider().call();
+        this.lSql.bindConnection(connection);
+        try {
+            invocation.run();
+        } finally {
+            this.lSql.unbindConnection();
+            if (this.closeConnections) {
+                this.lSql.closeProvidedConnection(connection);
+            }
+        }
+    }
+
+    /**
+     * Submits the invocations with at most maxParallelism running at the same time.
+     */
+    private final class Scheduler {
+
+        final CompletableFuture<Void> done = new CompletableFuture<>();
+
+        private final Queue<Invocation<?>> pending = new ArrayDeque<>(FanOut.this.invocations);
+
+        private int remaining = FanOut.this.invocations.size();
+
+        void start() {
+            if (this.remaining == 0) {
+                this.done.complete(null);
+                return;
+            }
+            for (int i = 0; i < FanOut.this.maxParallelism; i++) {
+                submitNext();
+            }
+        }
+
+        synchronized void skipPending() {
+            Invocation<?> invocation;
+            while ((invocation = this.pending.poll()) != null) {
+                invocation.skip();
+                this.remaining--;
+            }
+        }
+
+        private void submitNext() {
+            Invocation<?> invocation;
+            synchronized (this) {
+                invocation = this.pending.poll();
+            }
+            if (invocation == null) {
+                return;
+            }
+            invocation.submittedNanos = System.nanoTime();
+            Invocation<?> submitted = invocation;
+            FanOut.this.lSql.getJdbcExecutor()
+                    .submit(() -> {
+                        FanOut.this.run(submitted);
+                        return null;
+                    })
+                    .whenComplete((ignored, error) -> {
+                        if (error != null && !submitted.isDone()) {
+                            // rejected by the executor or no connection
+                            submitted.fail(error);
+                        }
+                        finished(submitted);
+                    });
+        }
+
+        private void finished(Invocation<?> invocation) {
+            boolean allDone;
+            synchronized (this) {
+                this.remaining--;
+                if (invocation.isFailed() && FanOut.this.failFast) {
+                    skipPending();
+                    this.done.complete(null);
+                    return;
+                }
+                allDone = this.remaining == 0;
+            }
+            if (allDone) {
+                this.done.complete(null);
+            } else {
+                submitNext();
+            }
+        }
+    }
+
+    public static final class Invocation<R> {
+
+        private final String name;
+
+        private final Callable<R> task;
+
+        private volatile R result;
+
+        private volatile Throwable error;
+
+        private volatile boolean done = false;
+
+        private volatile boolean skipped = false;
+
+        private volatile long submittedNanos;
+
+        private volatile long waitNanos;
+
+        private volatile long durationNanos;
+
+        private Invocation(String name, Callable<R> task) {
+            this.name = name;
+            this.task = task;
+        }
+
+        public String getName() {
+            return this.name;
+        }
+
+        /**
+         * @return the result of the invocation
+         * @throws IllegalStateException if the invocation did not finish successfully
+         */
+        public R get() {
+            checkState(this.done && !this.skipped, "Invocation '" + this.name + "' did not run");
+            if (this.error != null) {
+                throw new FanOutException("Invocation '" + this.name + "' failed", getErrorAsException());
+            }
+            return this.result;
+        }
+
+        public Optional<Throwable> getError() {
+            return Optional.fromNullable(this.error);
+        }
+
+        public boolean isDone() {
+            return this.done;
+        }
+
+        public boolean isFailed() {
+            return this.error != null;
+        }
+
+        /**
+         * @return {@code true} if the invocation did not run because another invocation failed
+         */
+        public boolean isSkipped() {
+            return this.skipped;
+        }
+
+        /**
+         * @return the time between the submission to the executor and the start
+         */
+        public long getWaitNanos() {
+            return this.waitNanos;
+        }
+
+        public long getDurationNanos() {
+            return this.durationNanos;
+        }
+
+        private void run() {
+            long start = System.nanoTime();
+            this.waitNanos = start - this.submittedNanos;
+            try {
+                this.result = this.task.call();
+            } catch (Throwable e) {
+                this.error = e;
+            } finally {
+                this.durationNanos = System.nanoTime() - start;
+                this.done = true;
+            }
+        }
+
+        private void fail(Throwable error) {
+            this.error = error;
+            this.done = true;
+        }
+
+        private void skip() {
+            this.skipped = true;
+            this.done = true;
+        }
+
+        private Exception getErrorAsException() {
+            if (this.error instanceof ExecutionException || this.error instanceof CompletionException) {
+                Throwable cause = this.error.getCause();
+                if (cause instanceof Exception) {
+                    return (Exception) cause;
+                }
+            }
+            return this.error instanceof Exception ? (Exception) this.error : new RuntimeException(this.error);
+        }
+
+        @Override
+        public String toString() {
+            return "Invocation{" +
+                    "name='" + this.name + '\'' +
+                    ", done=" + this.done +
+                    ", failed=" + isFailed() +
+                    ", durationMillis=" + TimeUnit.NANOSECONDS.toMillis(this.durationNanos) +
+                    '}';
+        }
+    }
+
+    public static final class Result {
+
+        private final ImmutableList<Invocation<?>> invocations;
+
+        private final long durationNanos;
+
+        private Result(List<Invocation<?>> invocations, long durationNanos) {
+            this.invocations = ImmutableList.copyOf(invocations);
+            this.durationNanos = durationNanos;
+        }
+
+        public List<Invocation<?>> getInvocations() {
+            return this.invocations;
+        }
+
+        public List<Invocation<?>> getFailedInvocations() {
+            List<Invocation<?>> failed = Lists.newArrayList();
+            for (Invocation<?> invocation : this.invocations) {
+                if (invocation.isFailed()) {
+                    failed.add(invocation);
+                }
+            }
+            return failed;
+        }
+
+        public boolean isSuccessful() {
+            for (Invocation<?> invocation : this.invocations) {
+                if (invocation.isFailed() || invocation.isSkipped()) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        /**
+         * @return the wall-clock time of the fan-out
+         */
+        public long getDurationNanos() {
+            return this.durationNanos;
+        }
+
+        /**
+         * @return the duration of each invocation in milliseconds, in the order they were added
+         */
+        public Map<String, Long> getTimings() {
+            LinkedHashMap<String, Long> timings = Maps.newLinkedHashMap();
+            for (Invocation<?> invocation : this.invocations) {
+                timings.put(invocation.getName(), TimeUnit.NANOSECONDS.toMillis(invocation.getDurationNanos()));
+            }
+            return timings;
+        }
+    }
+
+}
@@ -0,0 +1,315 @@
+package com.w11k.lsql;
+
+import com.google.common.collect.Maps;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * {@link Row} for query results. The column names are kept in a {@link ColumnIndex} shared by all
+ * rows of the ResultSet, each row only holds an array of values.
+ * <p/>
+ * Values of existing keys can be changed and removed in place. Adding a new key copies the row
+ * into a HashMap.
+ */
+public class IndexedRow extends Row {
+
+    private static final Object ABSENT = new Object();
+
+    private final ColumnIndex columnIndex;
+
+    private Object[] values;
+
+    private int size;
+
+    private Map<String, Object> copy;
+
+    private Map<String, Object> view;
+
+    /**
+     * @param values the values in the order of the column index, not copied
+     */
+    public IndexedRow(ColumnIndex columnIndex, Object[] values) {
+        super((Void) null);
+        if (values.length != columnIndex.size()) {
+            throw new IllegalArgumentException("Expected " + columnIndex.size() + " values, got " + values.length);
+        }
+        this.columnIndex = columnIndex;
+        this.values = values;
+        this.size = values.length;
+    }
+
+    private IndexedRow(ColumnIndex columnIndex, Object[] values, int size) {
+        super((Void) null);
+        this.columnIndex = columnIndex;
+        this.values = values;
+        this.size = size;
+    }
+
+    public ColumnIndex getColumnIndex() {
+        return this.columnIndex;
+    }
+
+    /**
+     * @return the value at the position of the column index
+     */
+    public Object getValueAt(int index) {
+        if (this.copy != null) {
+            return this.copy.get(this.columnIndex.getName(index));
+        }
+        Object value = this.values[index];
+        return value == ABSENT ? null : value;
+    }
+
+    @Override
+    public Object get(Object key) {
+        if (this.copy != null) {
+            return this.copy.get(key);
+        }
+        int index = this.columnIndex.indexOf(key);
+        if (index < 0) {
+            return null;
+        }
+        Object value = this.values[index];
+        return value == ABSENT ? null : value;
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        if (this.copy != null) {
+            return this.copy.containsKey(key);
+        }
+        int index = this.columnIndex.indexOf(key);
+        return index >= 0 && this.values[index] != ABSENT;
+    }
+
+    @Override
+    public Object put(String key, Object value) {
+        if (this.copy == null) {
+            int index = this.columnIndex.indexOf(key);
+            if (index >= 0) {
+                return setAt(index, value);
+            }
+            materialize();
+        }
+        return this.copy.put(key, value);
+    }
+
+    @Override
+    public Object remove(Object key) {
+        if (this.copy != null) {
+            return this.copy.remove(key);
+        }
+        int index = this.columnIndex.indexOf(key);
+        return index >= 0 ? removeAt(index) : null;
+    }
+
+    @Override
+    public int size() {
+        return this.copy != null ? this.copy.size() : this.size;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    @Override
+    public <A> A getAs(Class<A> type, String key, boolean convert) {
+        if (this.copy != null) {
+            return super.getAs(type, key, convert);
+        }
+        int index = this.columnIndex.indexOf(key);
+        if (index < 0 || this.values[index] == ABSENT) {
+            throw new IllegalArgumentException("No entry for key '" + key + "'.");
+        }
+        return castValue(type, key, this.values[index], convert);
+    }
+
+    /**
+     * Copies the value array and shares the column index.
+     */
+    @Override
+    public Row copy() {
+        if (this.copy != null) {
+            return super.copy();
+        }
+        return new IndexedRow(this.columnIndex, this.values.clone(), this.size);
+    }
+
+    @Override
+    protected Map<String, Object> delegate() {
+        if (this.copy != null) {
+            return this.copy;
+        }
+        if (this.view == null) {
+            this.view = new IndexedView();
+        }
+        return this.view;
+    }
+
+    private Object setAt(int index, Object value) {
+        Object previous = this.values[index];
+        this.values[index] = value;
+        if (previous == ABSENT) {
+            this.size++;
+            return null;
+        }
+        return previous;
+    }
+
+    private Object removeAt(int index) {
+        Object previous = this.values[index];
+        if (previous == ABSENT) {
+            return null;
+        }
+        this.values[index] = ABSENT;
+        this.size--;
+        return previous;
+    }
+
+    private void materialize() {
+        Map<String, Object> map = Maps.newHashMapWithExpectedSize(this.values.length + 1);
+        for (int i = 0; i < this.values.length; i++) {
+            if (this.values[i] != ABSENT) {
+                map.put(this.columnIndex.getName(i), this.values[i]);
+            }
+        }
+        this.copy = map;
+        this.values = null;
+    }
+
+    /**
+     * Map view for the methods inherited from {@link com.google.common.collect.ForwardingMap}.
+     * Forwards to the copy once the row was materialized.
+     */
+    private final class IndexedView extends AbstractMap<String, Object> {
+
+        @Override
+        public Object put(String key, Object value) {
+            return IndexedRow.this.put(key, value);
+        }
+
+        @Override
+        public Object get(Object key) {
+            return IndexedRow.this.get(key);
+        }
+
+        @Override
+        public boolean containsKey(Object key) {
+            return IndexedRow.this.containsKey(key);
+        }
+
+        @Override
+        public Object remove(Object key) {
+            return IndexedRow.this.remove(key);
+        }
+
+        @Override
+        public Set<Entry<String, Object>> entrySet() {
+            return new AbstractSet<Entry<String, Object>>() {
+                @Override
+                public Iterator<Entry<String, Object>> iterator() {
+                    if (IndexedRow.this.copy != null) {
+                        return IndexedRow.this.copy.entrySet().iterator();
+                    }
+                    return new EntryIterator();
+                }
+
+                @Override
+                public int size() {
+                    return IndexedRow.this.size();
+                }
+            };
+        }
+    }
+
+    private final class EntryIterator implements Iterator<Entry<String, Object>> {
+
+        private int next = advance(0);
+
+        private int current = -1;
+
+        @Override
+        public boolean hasNext() {
+            return this.next < IndexedRow.this.columnIndex.size();
+        }
+
+        @Override
+        public Entry<String, Object> next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            this.current = this.next;
+            this.next = advance(this.next + 1);
+            return new IndexedEntry(this.current);
+        }
+
+        @Override
+        public void remove() {
+            if (this.current < 0) {
+                throw new IllegalStateException();
+            }
+            removeAt(this.current);
+            this.current = -1;
+        }
+
+        private int advance(int from) {
+            int index = from;
+            while (index < IndexedRow.this.columnIndex.size() && IndexedRow.this.values[index] == ABSENT) {
+                index++;
+            }
+            return index;
+        }
+    }
+
+    private final class IndexedEntry implements Entry<String, Object> {
+
+        private final int index;
+
+        IndexedEntry(int index) {
+            this.index = index;
+        }
+
+        @Override
+        public String getKey() {
+            return IndexedRow.this.columnIndex.getName(this.index);
+        }
+
+        @Override
+        public Object getValue() {
+            return IndexedRow.this.getValueAt(this.index);
+        }
+
+        @Override
+        public Object setValue(Object value) {
+            return IndexedRow.this.put(getKey(), value);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Entry)) {
+                return false;
+            }
+            Entry<?, ?> e = (Entry<?, ?>) o;
+            return getKey().equals(e.getKey())
+                    && (getValue() == null ? e.getValue() == null : getValue().equals(e.getValue()));
+        }
+
+        @Override
+        public int hashCode() {
+            Object value = getValue();
+            return getKey().hashCode() ^ (value == null ? 0 : value.hashCode());
+        }
+
+        @Override
+        public String toString() {
+            return getKey() + "=" + getValue();
+        }
+    }
+
+}
@@ -5,13 +5,24 @@ import com.fasterxml.jackson.datatype.joda.JodaModule;
 import com.google.common.base.CaseFormat;
 import com.google.common.base.Optional;
 import com.google.common.base.Splitter;
+import com.google.common.base.Throwables;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
 import com.google.common.collect.Iterables;
 import com.google.common.collect.Maps;
+import com.google.common.util.concurrent.UncheckedExecutionException;
 import com.w11k.lsql.converter.Converter;
 import com.w11k.lsql.dialects.GenericDialect;
 import com.w11k.lsql.dialects.StatementCreator;
 import com.w11k.lsql.jdbc.ConnectionProviders;
+import com.w11k.lsql.jdbc.JdbcExecutor;
+import com.w11k.lsql.jdbc.PreparedStatementCache;
+import com.w11k.lsql.jdbc.StatementLeakDetector;
+import com.w11k.lsql.query.PojoEntityCreator;
 import com.w11k.lsql.query.PojoQuery;
+import com.w11k.lsql.query.QueryResultCache;
+import com.w11k.lsql.query.RowEntityCreator;
 import com.w11k.lsql.query.RowQuery;
 import com.w11k.lsql.sqlfile.LSqlFile;
 import com.w11k.lsql.statement.AbstractSqlStatement;
@@ -23,7 +34,10 @@ import javax.sql.DataSource;
 import java.sql.*;
 import java.util.Collections;
 import java.util.Map;
+import java.util.Objects;
 import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
 
 import static com.google.common.base.Preconditions.checkNotNull;
 import static com.google.common.collect.Iterators.getLast;
@@ -50,8 +64,26 @@ public class LSql {
 
     private final Callable<Connection> connectionProvider;
 
+    private final boolean sharedConnectionProvider;
+
     private final Config config;
 
+    private final Cache<StatementCacheKey, SqlStatementToPreparedStatement> statementCache;
+
+    // version of the converter registry the cached statements were resolved with
+    private volatile int statementCacheConverterVersion;
+
+    private final PreparedStatementCache preparedStatementCache;
+
+    private final StatementLeakDetector statementLeakDetector;
+
+    private final QueryResultCache queryResultCache;
+
+    private volatile JdbcExecutor jdbcExecutor;
+
+    // connection of the current FanOut invocation
+    private final ThreadLocal<Connection> boundConnection = new ThreadLocal<>();
+
     private InitColumnCallback initColumnCallback = new InitColumnCallback();
 
     private ObjectMapper objectMapper = CREATE_DEFAULT_JSON_MAPPER_INSTANCE();
@@ -70,7 +102,20 @@ public class LSql {
         }
 
         this.dialect = config.getDialect();
-        this.connectionProvider = connectionProvider;
+        this.sharedConnectionProvider = ConnectionProviders.isSharedConnection(connectionProvider);
+        this.connectionProvider = () -> {
+            Connection bound = this.boundConnection.get();
+            return bound != null ? bound : connectionProvider.call();
+        };
+        this.statementCache = CacheBuilder.newBuilder()
+                .maximumSize(config.getStatementCacheSize())
+                .recordStats()
+                .build();
+        this.statementCacheConverterVersion = this.dialect.getConverterRegistry().getVersion();
+        this.preparedStatementCache = new PreparedStatementCache(config.getPreparedStatementCacheSize());
+        this.statementLeakDetector = new StatementLeakDetector(config.getStatementLeakDetectionThresholdMillis());
+        this.queryResultCache = new QueryResultCache(
+                config.getQueryResultCacheSize(), config.getQueryResultCacheTtlMillis());
 
         dialect.setlSql(this);
     }
@@ -204,8 +249,7 @@ public class LSql {
      * @param sql the SQL string
      */
     public void executeRawSql(String sql) {
-        Statement st = this.dialect.getStatementCreator().createStatement(this);
-        try {
+        try (Statement st = this.dialect.getStatementCreator().createStatement(this)) {
             st.execute(sql);
         } catch (SQLException e) {
             throw new RuntimeException(e);
@@ -275,8 +319,7 @@ public class LSql {
      * @param sqlString the SQL SELECT string
      */
     public AbstractSqlStatement<RowQuery> createSqlStatement(String sqlString, String sourceName, String stmtName) {
-        final SqlStatementToPreparedStatement stmtToPs =
-                new SqlStatementToPreparedStatement(this, sourceName, stmtName, "", sqlString);
+        final SqlStatementToPreparedStatement stmtToPs = this.getCompiledStatement(sqlString, sourceName, stmtName);
 
         return new AbstractSqlStatement<RowQuery>(stmtToPs) {
             @Override
@@ -286,6 +329,67 @@ public class LSql {
         };
     }
 
+    /**
+     * Returns the parsed statement for the SQL string. Parsed statements are kept in
+     * a bounded cache (see {@link Config#setStatementCacheSize(int)}) so that repeated
+     * calls with the same SQL string, e.g. from generated statement classes, do not
+     * parse the SQL again.
+     *
+     * @param sqlString  the SQL string
+     * @param sourceName the name of the statement source, used for logging
+     * @param stmtName   the name of the statement, used for logging
+     * @return the parsed statement
+     */
+    public SqlStatementToPreparedStatement getCompiledStatement(final String sqlString,
+                                                                final String sourceName,
+                                                                final String stmtName) {
+        return getCompiledStatement(sqlString, sourceName, stmtName, "");
+    }
+
+    /**
+     * Like {@link #getCompiledStatement(String, String, String)}, for statements with a type
+     * annotation, e.g. statements derived from a {@code LSqlFile} statement.
+     */
+    public SqlStatementToPreparedStatement getCompiledStatement(final String sqlString,
+                                                                final String sourceName,
+                                                                final String stmtName,
+                                                                final String typeAnnotation) {
+        // cached statements resolve their converters when they are created
+        int converterVersion = this.dialect.getConverterRegistry().getVersion();
+        if (converterVersion != this.statementCacheConverterVersion) {
+            this.statementCache.invalidateAll();
+            this.statementCacheConverterVersion = converterVersion;
+        }
+        try {
+            return this.statementCache.get(
+                    new StatementCacheKey(sqlString, sourceName, stmtName, typeAnnotation),
+                    () -> new SqlStatementToPreparedStatement(this, sourceName, stmtName, typeAnnotation, sqlString));
+        } catch (ExecutionException e) {
+            throw new RuntimeException(e.getCause());
+        } catch (UncheckedExecutionException e) {
+            Throwables.throwIfUnchecked(e.getCause());
+            throw e;
+        }
+    }
+
+    /**
+     * @return hit, miss and eviction counts of the parsed statement cache
+     */
+    public CacheStats getStatementCacheStats() {
+        return this.statementCache.stats();
+    }
+
+    /**
+     * @return the number of parsed statements currently cached
+     */
+    public long getStatementCacheSize() {
+        return this.statementCache.size();
+    }
+
+    public void clearStatementCache() {
+        this.statementCache.invalidateAll();
+    }
+
     public String identifierSqlToJava(String sqlName) {
         return this.dialect.getIdentifierConverter().sqlToJava(sqlName);
     }
@@ -310,6 +414,18 @@ public class LSql {
         return this.dialect.getConverterRegistry().getConverterForAlias(alias);
     }
 
+    public boolean isTransactionRequiredForStreaming() {
+        return this.dialect.isTransactionRequiredForStreaming();
+    }
+
+    public Optional<String> getInListArrayParameterSql() {
+        return this.dialect.getInListArrayParameterSql();
+    }
+
+    public String getArrayElementTypeName(int sqlType) {
+        return this.dialect.getArrayElementTypeName(sqlType);
+    }
+
     public String getSqlSchemaAndTableNameFromResultSetMetaData(
             ResultSetMetaData metaData, int columnIndex) throws SQLException {
 
@@ -360,6 +476,123 @@ public class LSql {
         return config;
     }
 
+    public PreparedStatementCache getPreparedStatementCache() {
+        return preparedStatementCache;
+    }
+
+    public StatementLeakDetector getStatementLeakDetector() {
+        return statementLeakDetector;
+    }
+
+    /**
+     * Returns the cache of the statements that opted in with
+     * {@link AbstractSqlStatement#cacheResults(String...)}.
+     */
+    public QueryResultCache getQueryResultCache() {
+        return queryResultCache;
+    }
+
+    /**
+     * Returns the executor of the async operations. It is created on first use with the limits of
+     * {@link Config#getJdbcExecutorPoolSize()} and {@link Config#getJdbcExecutorQueueCapacity()}.
+     */
+    public JdbcExecutor getJdbcExecutor() {
+        JdbcExecutor executor = this.jdbcExecutor;
+        if (executor == null) {
+            synchronized (this) {
+                executor = this.jdbcExecutor;
+                if (executor == null) {
+                    executor = new JdbcExecutor(
+                            config.getJdbcExecutorPoolSize(),
+                            config.getJdbcExecutorQueueCapacity(),
+                            config.getJdbcExecutorThreadFactory());
+                    this.jdbcExecutor = executor;
+                }
+            }
+        }
+        return executor;
+    }
+
+    /**
+     * Runs the task on the {@link JdbcExecutor}. The task obtains one connection from the
+     * connection provider on the executor thread and uses it for all its statements, i.e. it does
+     * not take part in a transaction bound to the calling thread. The connection is closed
+     * afterwards, see {@link Config#isJdbcExecutorClosesConnections()}.
+     * <p/>
+     * A provider that returns the same connection for every call, e.g.
+     * {@link ConnectionProviders#fromInstance(Connection)}, is not safe to use with async
+     * operations: concurrent tasks would share the connection.
+     */
+    public <T> CompletableFuture<T> executeAsync(Callable<T> task) {
+        return getJdbcExecutor().submit(() -> {
+            Connection connection = getConnectionProvider().call();
+            bindConnection(connection);
+            try {
+                return task.call();
+            } finally {
+                unbindConnection();
+                if (config.isJdbcExecutorClosesConnections()) {
+                    closeProvidedConnection(connection);
+                }
+            }
+        });
+    }
+
+    /**
+     * Creates a {@link FanOut} to run independent statements concurrently.
+     */
+    public FanOut fanOut() {
+        return new FanOut(this);
+    }
+
+    /**
+     * Creates a {@link MultiQueryTree} that builds {@link Row}s with one statement per level.
+     */
+    public MultiQueryTree<Row> multiQueryTree(AbstractSqlStatement<RowQuery> rootStatement) {
+        return new MultiQueryTree<>(this, rootStatement, new RowEntityCreator());
+    }
+
+    /**
+     * Creates a {@link MultiQueryTree} that builds POJOs with one statement per level.
+     */
+    public <T> MultiQueryTree<T> multiQueryTree(Class<T> pojoClass, AbstractSqlStatement<RowQuery> rootStatement) {
+        return new MultiQueryTree<>(this, rootStatement, new PojoEntityCreator<>(pojoClass));
+    }
+
+    /**
+     * Closes a connection that an async operation obtained from the connection provider, unless
+     * the provider hands out a shared connection.
+     */
+    void closeProvidedConnection(Connection connection) {
+        if (this.sharedConnectionProvider) {
+            return;
+        }
+        getPreparedStatementCache().evict(connection);
+        try {
+            connection.close();
+        } catch (SQLException e) {
+            logger.warn("Failed to close connection of async operation", e);
+        }
+    }
+
+    void bindConnection(Connection connection) {
+        this.boundConnection.set(connection);
+    }
+
+    void unbindConnection() {
+        this.boundConnection.remove();
+    }
+
+    /**
+     * Stops the {@link JdbcExecutor} if it was created. Queued tasks are still executed.
+     */
+    public void shutdownJdbcExecutor() {
+        JdbcExecutor executor = this.jdbcExecutor;
+        if (executor != null) {
+            executor.shutdown();
+        }
+    }
+
     @Override
     public String toString() {
         return "LSql{" +
@@ -374,4 +607,42 @@ public class LSql {
 //    Config getConfig() {
 //        return config;
 //    }
+
+    private static final class StatementCacheKey {
+
+        private final String sqlString;
+
+        private final String sourceName;
+
+        private final String stmtName;
+
+        private final String typeAnnotation;
+
+        private final int hashCode;
+
+        StatementCacheKey(String sqlString, String sourceName, String stmtName, String typeAnnotation) {
+            this.sqlString = sqlString;
+            this.sourceName = sourceName;
+            this.stmtName = stmtName;
+            this.typeAnnotation = typeAnnotation;
+            this.hashCode = Objects.hash(sqlString, sourceName, stmtName, typeAnnotation);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+            StatementCacheKey that = (StatementCacheKey) o;
+            return this.hashCode == that.hashCode
+                    && sqlString.equals(that.sqlString)
+                    && Objects.equals(sourceName, that.sourceName)
+                    && Objects.equals(stmtName, that.stmtName)
+                    && Objects.equals(typeAnnotation, that.typeAnnotation);
+        }
+
+        @Override
+        public int hashCode() {
+            return this.hashCode;
+        }
+    }
 }
@@ -1,15 +1,42 @@
 package com.w11k.lsql;
 
 import com.google.common.base.Joiner;
+import com.google.common.base.Optional;
 import com.google.common.base.Strings;
 import com.google.common.collect.Lists;
+import com.google.common.primitives.Ints;
+import com.google.common.primitives.Longs;
+import com.w11k.lsql.converter.Converter;
 
+import java.sql.Array;
 import java.sql.PreparedStatement;
 import java.sql.SQLException;
+import java.sql.Types;
+import java.util.Collections;
 import java.util.List;
 
+/**
+ * Expands a list of values into a SQL list, e.g. for {@code IN (...)} clauses.
+ * <p/>
+ * By default, one placeholder per value is rendered. Since every list length results in a
+ * different SQL string, this defeats the statement caches of the driver and the database.
+ * {@link #bucketed()} pads the list to the next power of two by repeating the last value.
+ * {@link #asArray()} binds all values as one array parameter if the dialect supports it,
+ * otherwise it falls back to the bucketed mode.
+ * <p/>
+ * Elements with a registered {@link Converter} are bound with it in every mode. In the array
+ * mode, they are converted with {@link Converter#toJdbcValue(LSql, Object)} before the array
+ * is created. JDBC only creates arrays from an {@code Object[]}, so the values of
+ * {@link #ofInts(int...)} and {@link #ofLongs(long...)} are boxed once per execution into an
+ * {@code Integer[]} or {@code Long[]}. Like in the other modes, these values are bound
+ * without a converter.
+ */
 public class ListLiteralQueryParameter<T> implements LiteralQueryParameter {
 
+    public enum Mode {
+        EXACT, BUCKETED, ARRAY
+    }
+
     public static <A> ListLiteralQueryParameter<A> of(Iterable<A> values) {
         return new ListLiteralQueryParameter<>(values);
     }
@@ -19,32 +46,271 @@ public class ListLiteralQueryParameter<T> implements LiteralQueryParameter {
         return new ListLiteralQueryParameter<>(Lists.newArrayList(values));
     }
 
+    public static ListLiteralQueryParameter<Integer> ofInts(int... values) {
+        IntValues intValues = new IntValues(values);
+        return new ListLiteralQueryParameter<>(Ints.asList(intValues.values), intValues, Mode.EXACT);
+    }
+
+    public static ListLiteralQueryParameter<Long> ofLongs(long... values) {
+        LongValues longValues = new LongValues(values);
+        return new ListLiteralQueryParameter<>(Longs.asList(longValues.values), longValues, Mode.EXACT);
+    }
+
+    /**
+     * The values. For {@link #ofInts(int...)} and {@link #ofLongs(long...)} this is a view of
+     * the primitive array.
+     */
     protected List<T> values;
 
+    private final Values primitiveValues;
+
+    private final Mode mode;
+
     public ListLiteralQueryParameter(Iterable<T> values) {
-        this.values = Lists.newCopyOnWriteArrayList(values);
+        this(Lists.newArrayList(values), null, Mode.EXACT);
+    }
+
+    private ListLiteralQueryParameter(List<T> values, Values primitiveValues, Mode mode) {
+        this.values = values;
+        this.primitiveValues = primitiveValues;
+        this.mode = mode;
+    }
+
+    /**
+     * @return a copy that pads the values to the next power of two
+     */
+    public ListLiteralQueryParameter<T> bucketed() {
+        return new ListLiteralQueryParameter<>(this.values, this.primitiveValues, Mode.BUCKETED);
+    }
+
+    /**
+     * @return a copy that binds the values as one array parameter
+     */
+    public ListLiteralQueryParameter<T> asArray() {
+        return new ListLiteralQueryParameter<>(this.values, this.primitiveValues, Mode.ARRAY);
+    }
+
+    public Mode getMode() {
+        return this.mode;
+    }
+
+    public List<T> getValues() {
+        return Collections.unmodifiableList(this.values);
+    }
+
+    public int size() {
+        return this.values.size();
     }
 
     @Override
     public String getSqlString() {
-        if (getNumberOfQueryParameters() == 0) {
-            return "";
+        return createPlaceholders(getNumberOfQueryParameters());
+    }
+
+    @Override
+    public String getSqlString(LSql lSql) {
+        Optional<String> arraySql = getArraySql(lSql);
+        if (arraySql.isPresent()) {
+            return arraySql.get();
         }
-        return Strings.repeat("?,", getNumberOfQueryParameters() - 1) + "?";
+        return getSqlString();
     }
 
     @Override
     public int getNumberOfQueryParameters() {
-        return this.values.size();
+        int size = size();
+        if (this.mode == Mode.EXACT || size == 0) {
+            return size;
+        }
+        return size == 1 ? 1 : Integer.highestOneBit(size - 1) << 1;
+    }
+
+    @Override
+    public int getNumberOfQueryParameters(LSql lSql) {
+        return getArraySql(lSql).isPresent() ? 1 : getNumberOfQueryParameters();
     }
 
     @Override
     public void set(PreparedStatement ps, int preparedStatementIndex, int localIndex) throws SQLException {
-        ps.setObject(preparedStatementIndex, this.values.get(localIndex));
+        ps.setObject(preparedStatementIndex, this.values.get(valueIndex(localIndex)));
+    }
+
+    @Override
+    public void set(LSql lSql, PreparedStatement ps, int preparedStatementIndex, int localIndex) throws SQLException {
+        if (getArraySql(lSql).isPresent()) {
+            String typeName = lSql.getArrayElementTypeName(getElementSqlType(lSql));
+            Object[] elements = this.primitiveValues != null
+                    ? this.primitiveValues.toArray()
+                    : toConvertedArray(lSql);
+            Array array = ps.getConnection().createArrayOf(typeName, elements);
+            ps.setArray(preparedStatementIndex, array);
+        } else if (this.primitiveValues != null) {
+            this.primitiveValues.set(ps, preparedStatementIndex, valueIndex(localIndex));
+        } else {
+            Object value = this.values.get(valueIndex(localIndex));
+            Converter converter = findConverter(lSql, value);
+            if (converter != null) {
+                converter.setValueInStatement(lSql, ps, preparedStatementIndex, value);
+            } else {
+                ps.setObject(preparedStatementIndex, value);
+            }
+        }
+    }
+
+    /**
+     * Parameters are equal if they have the same class, mode and values, e.g. so that
+     * statements with {@link com.w11k.lsql.statement.AbstractSqlStatement#cacheResults(String...)}
+     * find their cached results.
+     */
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+        ListLiteralQueryParameter<?> that = (ListLiteralQueryParameter<?>) o;
+        return this.mode == that.mode && this.values.equals(that.values);
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * this.mode.hashCode() + this.values.hashCode();
     }
 
     @Override
     public String toString() {
-        return getClass().getSimpleName() + "[" + Joiner.on(",").join(values) + "]";
+        return getClass().getSimpleName() + "[" + Joiner.on(",").useForNull("null").join(this.values) + "]";
+    }
+
+    /**
+     * Converts each element with its registered converter, see {@link Converter#toJdbcValue}.
+     */
+    private Object[] toConvertedArray(LSql lSql) {
+        Object[] elements = new Object[this.values.size()];
+        for (int i = 0; i < elements.length; i++) {
+            Object value = this.values.get(i);
+            Converter converter = findConverter(lSql, value);
+            if (converter != null) {
+                converter.failOnWrongValueType(value);
+                elements[i] = converter.toJdbcValue(lSql, value);
+            } else {
+                elements[i] = value;
+            }
+        }
+        return elements;
+    }
+
+    private Optional<String> getArraySql(LSql lSql) {
+        if (this.mode != Mode.ARRAY) {
+            return Optional.absent();
+        }
+        return lSql.getInListArrayParameterSql();
+    }
+
+    private int valueIndex(int localIndex) {
+        // padded positions repeat the last value
+        return Math.min(localIndex, size() - 1);
+    }
+
+    private int getElementSqlType(LSql lSql) {
+        if (this.primitiveValues != null) {
+            return this.primitiveValues.getSqlType();
+        }
+        for (T value : this.values) {
+            Converter converter = findConverter(lSql, value);
+            if (converter != null) {
+                return converter.getSqlType();
+            }
+        }
+        return Types.VARCHAR;
+    }
+
+    private static Converter findConverter(LSql lSql, Object value) {
+        if (value == null) {
+            return null;
+        }
+        try {
+            return lSql.getConverterForJavaType(value.getClass());
+        } catch (IllegalArgumentException e) {
+            // no registered converter, let the driver decide
+            return null;
+        }
+    }
+
+    private static String createPlaceholders(int count) {
+        if (count == 0) {
+            return "";
+        }
+        return Strings.repeat("?,", count - 1) + "?";
+    }
+
+    private interface Values {
+
+        int getSqlType();
+
+        Object[] toArray();
+
+        void set(PreparedStatement ps, int preparedStatementIndex, int index) throws SQLException;
     }
+
+    private static final class IntValues implements Values {
+
+        private final int[] values;
+
+        IntValues(int[] values) {
+            this.values = values.clone();
+        }
+
+        @Override
+        public int getSqlType() {
+            return Types.INTEGER;
+        }
+
+        @Override
+        public Object[] toArray() {
+            return Ints.asList(this.values).toArray(new Integer[this.values.length]);
+        }
+
+        @Override
+        public void set(PreparedStatement ps, int preparedStatementIndex, int index) throws SQLException {
+            ps.setInt(preparedStatementIndex, this.values[index]);
+        }
+
+        @Override
+        public String toString() {
+            return Ints.join(",", this.values);
+        }
+    }
+
+    private static final class LongValues implements Values {
+
+        private final long[] values;
+
+        LongValues(long[] values) {
+            this.values = values.clone();
+        }
+
+        @Override
+        public int getSqlType() {
+            return Types.BIGINT;
+        }
+
+        @Override
+        public Object[] toArray() {
+            return Longs.asList(this.values).toArray(new Long[this.values.length]);
+        }
+
+        @Override
+        public void set(PreparedStatement ps, int preparedStatementIndex, int index) throws SQLException {
+            ps.setLong(preparedStatementIndex, this.values[index]);
+        }
+
+        @Override
+        public String toString() {
+            return Longs.join(",", this.values);
+        }
+    }
+
 }
@@ -11,4 +11,25 @@ public interface LiteralQueryParameter {
 
     void set(PreparedStatement ps, int preparedStatementIndex, int localIndex) throws SQLException;
 
+    /**
+     * Dialect-aware variant of {@link #getSqlString()}. Used by LSql when rendering statements.
+     */
+    default String getSqlString(LSql lSql) {
+        return getSqlString();
+    }
+
+    /**
+     * Dialect-aware variant of {@link #getNumberOfQueryParameters()}.
+     */
+    default int getNumberOfQueryParameters(LSql lSql) {
+        return getNumberOfQueryParameters();
+    }
+
+    /**
+     * Dialect-aware variant of {@link #set(PreparedStatement, int, int)}.
+     */
+    default void set(LSql lSql, PreparedStatement ps, int preparedStatementIndex, int localIndex) throws SQLException {
+        set(ps, preparedStatementIndex, localIndex);
+    }
+
 }
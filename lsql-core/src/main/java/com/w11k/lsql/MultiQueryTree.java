@@ -0,0 +1,361 @@
+package com.w11k.lsql;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Iterables;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.w11k.lsql.query.EntityCreator;
+import com.w11k.lsql.query.RowQuery;
+import com.w11k.lsql.statement.AbstractSqlStatement;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * Builds a tree with one statement per level instead of one joined query. The root statement
+ * runs once, each child statement runs once per chunk of parent IDs. Independent 1:n branches
+ * therefore do not multiply the number of fetched rows as they would in a joined query for
+ * {@link com.w11k.lsql.query.AbstractQuery#toTree()}.
+ * <p/>
+ * A child statement must contain a list literal parameter for the parent IDs and return the
+ * column that references the parent:
+ * <p/>
+ * <pre>
+ * --countries
+ * SELECT * FROM country WHERE continent_id IN (/*continentIds=*&#47; 1 /**&#47;) ORDER BY id;
+ *
+ * MultiQueryTree&lt;Row&gt; tree = lSql.multiQueryTree(continentsStatement);
+ * tree.child("facts", factsStatement, "continentIds", "continentId");
+ * tree.child("countries", countriesStatement, "continentIds", "continentId")
+ *         .child("cities", citiesStatement, "countryIds", "countryId");
+ * List&lt;Row&gt; continents = tree.toTree();
+ * </pre>
+ */
+public class MultiQueryTree<T> {
+
+    private final Logger logger = LoggerFactory.getLogger(getClass());
+
+    private final LSql lSql;
+
+    private final EntityCreator entityCreator;
+
+    private final Level root;
+
+    private int chunkSize;
+
+    MultiQueryTree(LSql lSql, AbstractSqlStatement<RowQuery> rootStatement, EntityCreator entityCreator) {
+        this.lSql = lSql;
+        this.entityCreator = entityCreator;
+        this.root = new Level(null, rootStatement, null, null);
+        this.chunkSize = lSql.getConfig().getMultiQueryTreeChunkSize();
+    }
+
+    /**
+     * Adds a 1:n branch below the root entities.
+     *
+     * @param fieldName           the field in the parent entity that holds the children
+     * @param statement           the statement that selects the children
+     * @param parentIdsParameter  the list literal parameter in the statement for the parent IDs
+     * @param parentKeyField      the field in the child rows that references the parent ID
+     */
+    public Branch child(String fieldName,
+                        AbstractSqlStatement<RowQuery> statement,
+                        String parentIdsParameter,
+                        String parentKeyField) {
+        return this.root.child(fieldName, statement, parentIdsParameter, parentKeyField);
+    }
+
+    /**
+     * Sets the field of the root entities that is referenced by the children. Defaults to "id".
+     */
+    public MultiQueryTree<T> idField(String idField) {
+        this.root.idField = idField;
+        return this;
+    }
+
+    /**
+     * Sets the maximum number of parent IDs passed to one execution of a child statement.
+     * Defaults to {@link Config#getMultiQueryTreeChunkSize()}.
+     */
+    public MultiQueryTree<T> chunkSize(int chunkSize) {
+        checkArgument(chunkSize > 0, "chunkSize must be > 0");
+        this.chunkSize = chunkSize;
+        return this;
+    }
+
+    public List<T> toTree(Object... rootParameters) {
+        return execute(rootParameters).getTree();
+    }
+
+    public List<T> toTree(Map<String, Object> rootParameters) {
+        return execute(rootParameters).getTree();
+    }
+
+    public Result<T> execute(Object... rootParameters) {
+        Map<String, Object> parameters = Maps.newHashMap();
+        for (int i = 0; i < rootParameters.length; i += 2) {
+            parameters.put((String) rootParameters[i], rootParameters[i + 1]);
+        }
+        return execute(parameters);
+    }
+
+    @SuppressWarnings("unchecked")
+    public Result<T> execute(Map<String, Object> rootParameters) {
+        Execution execution = new Execution();
+        List<Row> rows = this.root.statement.query(rootParameters).toList();
+        execution.queryCount++;
+        execution.fetchedRowCount += rows.size();
+
+        List<Object> entities = Lists.newArrayListWithCapacity(rows.size());
+        for (Row row : rows) {
+            entities.add(execution.createEntity(null, null, row));
+        }
+        long[] joinedRows = execution.assembleChildren(this.root, rows, entities);
+
+        long joinedRowCount = 0;
+        for (long count : joinedRows) {
+            joinedRowCount += count;
+        }
+        Result<T> result = new Result<>((List<T>) entities, execution.queryCount,
+                execution.fetchedRowCount, execution.entityCount, joinedRowCount);
+        if (this.logger.isDebugEnabled()) {
+            this.logger.debug(result.toString());
+        }
+        return result;
+    }
+
+    /**
+     * Parent IDs are compared by value. Integral numbers are normalized so that e.g. an INT
+     * primary key matches a BIGINT foreign key.
+     */
+    private static Object normalizeKey(Object key) {
+        if (key instanceof Integer || key instanceof Short || key instanceof Byte) {
+            return ((Number) key).longValue();
+        }
+        return key;
+    }
+
+    private class Level {
+
+        private final String fieldName;
+
+        private final AbstractSqlStatement<RowQuery> statement;
+
+        private final String parentIdsParameter;
+
+        private final String parentKeyField;
+
+        private final List<Branch> children = Lists.newArrayList();
+
+        private String idField = "id";
+
+        Level(String fieldName,
+              AbstractSqlStatement<RowQuery> statement,
+              String parentIdsParameter,
+              String parentKeyField) {
+            this.fieldName = fieldName;
+            this.statement = statement;
+            this.parentIdsParameter = parentIdsParameter;
+            this.parentKeyField = parentKeyField;
+        }
+
+        Branch child(String fieldName,
+                     AbstractSqlStatement<RowQuery> statement,
+                     String parentIdsParameter,
+                     String parentKeyField) {
+            Branch branch = new Branch(fieldName, statement, parentIdsParameter, parentKeyField);
+            this.children.add(branch);
+            return branch;
+        }
+    }
+
+    /**
+     * A 1:n branch of the tree. Further branches can be nested below it.
+     */
+    public final class Branch {
+
+        private final Level level;
+
+        private Branch(String fieldName,
+                       AbstractSqlStatement<RowQuery> statement,
+                       String parentIdsParameter,
+                       String parentKeyField) {
+            this.level = new Level(fieldName, statement, parentIdsParameter, parentKeyField);
+        }
+
+        /**
+         * Adds a 1:n branch below the entities of this branch.
+         *
+         * @see MultiQueryTree#child(String, AbstractSqlStatement, String, String)
+         */
+        public Branch child(String fieldName,
+                            AbstractSqlStatement<RowQuery> statement,
+                            String parentIdsParameter,
+                            String parentKeyField) {
+            return this.level.child(fieldName, statement, parentIdsParameter, parentKeyField);
+        }
+
+        /**
+         * Sets the field of the entities of this branch that is referenced by their children.
+         * Defaults to "id".
+         */
+        public Branch idField(String idField) {
+            this.level.idField = idField;
+            return this;
+        }
+    }
+
+    private final class Execution {
+
+        private int queryCount = 0;
+
+        private long fetchedRowCount = 0;
+
+        private long entityCount = 0;
+
+        Object createEntity(Object parent, String fieldName, Row row) {
+            Object entity = MultiQueryTree.this.entityCreator.createEntity(parent, fieldName, parent != null);
+            for (Map.Entry<String, Object> entry : row.entrySet()) {
+                MultiQueryTree.this.entityCreator.setValue(entity, entry.getKey(), entry.getValue());
+            }
+            this.entityCount++;
+            return entity;
+        }
+
+        /**
+         * Fetches and attaches the children of the entities.
+         *
+         * @return the number of rows a joined query would return for each entity
+         */
+        long[] assembleChildren(Level level, List<Row> rows, List<Object> entities) {
+            long[] joinedRows = new long[rows.size()];
+            for (int i = 0; i < joinedRows.length; i++) {
+                joinedRows[i] = 1;
+            }
+            if (rows.isEmpty()) {
+                return joinedRows;
+            }
+
+            Map<Object, List<Integer>> parentIndexesById = Maps.newHashMap();
+            LinkedHashSet<Object> parentIds = new LinkedHashSet<>();
+            for (int i = 0; i < rows.size(); i++) {
+                Object id = rows.get(i).get(level.idField);
+                if (id == null) {
+                    continue;
+                }
+                parentIds.add(id);
+                parentIndexesById.computeIfAbsent(normalizeKey(id), k -> Lists.newArrayListWithCapacity(1)).add(i);
+            }
+
+            for (Branch branch : level.children) {
+                Level child = branch.level;
+                List<Row> childRows = Lists.newArrayList();
+                List<Object> childEntities = Lists.newArrayList();
+                List<Integer> childParentIndexes = Lists.newArrayList();
+
+                for (List<Object> chunk : Iterables.partition(parentIds, MultiQueryTree.this.chunkSize)) {
+                    List<Row> fetched = child.statement.query(ImmutableMap.<String, Object>of(
+                            child.parentIdsParameter, ListLiteralQueryParameter.of(chunk).asArray())).toList();
+                    this.queryCount++;
+                    this.fetchedRowCount += fetched.size();
+
+                    for (Row childRow : fetched) {
+                        Object parentKey = childRow.get(child.parentKeyField);
+                        List<Integer> parentIndexes = parentKey == null
+                                ? null : parentIndexesById.get(normalizeKey(parentKey));
+                        if (parentIndexes == null) {
+                            continue;
+                        }
+                        for (Integer parentIndex : parentIndexes) {
+                            childRows.add(childRow);
+                            childEntities.add(createEntity(entities.get(parentIndex), child.fieldName, childRow));
+                            childParentIndexes.add(parentIndex);
+                        }
+                    }
+                }
+
+                long[] childJoinedRows = assembleChildren(child, childRows, childEntities);
+                long[] branchRows = new long[rows.size()];
+                for (int i = 0; i < childJoinedRows.length; i++) {
+                    branchRows[childParentIndexes.get(i)] += childJoinedRows[i];
+                }
+                for (int i = 0; i < joinedRows.length; i++) {
+                    // a LEFT JOIN returns one row for parents without children
+                    joinedRows[i] *= Math.max(1, branchRows[i]);
+                }
+            }
+            return joinedRows;
+        }
+    }
+
+    public static final class Result<T> {
+
+        private final List<T> tree;
+
+        private final int queryCount;
+
+        private final long fetchedRowCount;
+
+        private final long entityCount;
+
+        private final long joinedRowCount;
+
+        private Result(List<T> tree, int queryCount, long fetchedRowCount, long entityCount, long joinedRowCount) {
+            this.tree = tree;
+            this.queryCount = queryCount;
+            this.fetchedRowCount = fetchedRowCount;
+            this.entityCount = entityCount;
+            this.joinedRowCount = joinedRowCount;
+        }
+
+        public List<T> getTree() {
+            return this.tree;
+        }
+
+        /**
+         * @return the number of executed statements, including one per chunk of parent IDs
+         */
+        public int getQueryCount() {
+            return this.queryCount;
+        }
+
+        public long getFetchedRowCount() {
+            return this.fetchedRowCount;
+        }
+
+        public long getEntityCount() {
+            return this.entityCount;
+        }
+
+        /**
+         * @return the number of rows a single query that LEFT JOINs all branches would return
+         */
+        public long getJoinedRowCount() {
+            return this.joinedRowCount;
+        }
+
+        /**
+         * @return the rows per entity of the joined query, 1.0 means no redundant rows
+         */
+        public double getJoinedRowAmplification() {
+            return this.entityCount == 0 ? 1.0 : (double) this.joinedRowCount / this.entityCount;
+        }
+
+        @Override
+        public String toString() {
+            return "MultiQueryTree.Result{" +
+                    "queryCount=" + this.queryCount +
+                    ", fetchedRowCount=" + this.fetchedRowCount +
+                    ", entityCount=" + this.entityCount +
+                    ", joinedRowCount=" + this.joinedRowCount +
+                    ", joinedRowAmplification=" + String.format("%.2f", getJoinedRowAmplification()) +
+                    '}';
+        }
+    }
+
+}
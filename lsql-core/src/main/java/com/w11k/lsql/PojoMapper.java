@@ -103,6 +103,17 @@ public class PojoMapper<T> {
         return pojo;
     }
 
+    /**
+     * @return a new instance with the values of all properties of the given instance
+     */
+    public T copy(T pojo) {
+        T copy = newInstance();
+        for (PropertyDescriptor descriptor : this.propertyDescriptors.values()) {
+            setValue(copy, descriptor.getName(), getValue(pojo, descriptor.getName()));
+        }
+        return copy;
+    }
+
     public void assignRowToPojo(Row row, T pojo) {
         for (PropertyDescriptor descriptor : this.propertyDescriptors.values()) {
             Object value = row.get(descriptor.getName());
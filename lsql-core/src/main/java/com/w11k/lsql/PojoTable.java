@@ -1,11 +1,14 @@
 package com.w11k.lsql;
 
 import com.google.common.base.Optional;
+import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
 import com.w11k.lsql.converter.Converter;
 
 import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 
 public class PojoTable<T> {
 
@@ -53,6 +56,39 @@ public class PojoTable<T> {
         return id;
     }
 
+    /**
+     * Inserts the POJOs with JDBC batches, see {@link Table#insertAll(Iterable, int)}. Generated
+     * primary keys and revisions are assigned to the POJOs, other values are not reloaded.
+     *
+     * @return the primary key of each POJO in the order of the POJOs
+     */
+    public List<Optional<Object>> insertAll(Iterable<T> pojos) {
+        List<T> pojoList = Lists.newArrayList(pojos);
+        List<Row> rows = Lists.newArrayListWithCapacity(pojoList.size());
+        for (T pojo : pojoList) {
+            Row row = this.pojoMapper.pojoToRow(pojo);
+            // Remove null values so that the DB can insert the default values
+            row.values().removeIf(Objects::isNull);
+            rows.add(row);
+        }
+
+        List<Optional<Object>> ids = this.table.insertAll(rows);
+
+        Optional<String> pkColumn = this.table.getPrimaryKeyColumn();
+        Optional<Column> revisionColumn = this.table.getRevisionColumn();
+        for (int i = 0; i < pojoList.size(); i++) {
+            Row row = rows.get(i);
+            if (pkColumn.isPresent() && row.containsKey(pkColumn.get())) {
+                this.pojoMapper.setValue(pojoList.get(i), pkColumn.get(), row.get(pkColumn.get()));
+            }
+            if (revisionColumn.isPresent() && row.containsKey(revisionColumn.get().getJavaColumnName())) {
+                String revision = revisionColumn.get().getJavaColumnName();
+                this.pojoMapper.setValue(pojoList.get(i), revision, row.get(revision));
+            }
+        }
+        return ids;
+    }
+
     public Optional<T> load(Object id) {
         Optional<LinkedRow> row = this.table.load(id);
         if (!row.isPresent()) {
@@ -33,6 +33,21 @@ public class ResultSetWithColumns {
         }
     }
 
+    /**
+     * Uses the given lookup structures without copying them, e.g. from a cached decoder plan.
+     */
+    public ResultSetWithColumns(ResultSet resultSet,
+                                ResultSetMetaData metaData,
+                                List<ResultSetColumn> columns,
+                                Map<String, ResultSetColumn> columnsByLabel,
+                                LinkedHashMap<String, Converter> converters) {
+        this.resultSet = resultSet;
+        this.metaData = metaData;
+        this.columns = columns;
+        this.columnsByLabel = columnsByLabel;
+        this.converters = converters;
+    }
+
     public ResultSet getResultSet() {
         return this.resultSet;
     }
@@ -44,6 +44,13 @@ public class Row extends ForwardingMap<String, Object> {
         this.data = newHashMap(data);
     }
 
+    /**
+     * For subclasses that provide their own {@link #delegate()}.
+     */
+    Row(Void noData) {
+        this.data = null;
+    }
+
 //    public void setDelegate(Map<String, Object> data) {
 //        this.data = data;
 //    }
@@ -91,7 +98,10 @@ public class Row extends ForwardingMap<String, Object> {
         if (!containsKey(key)) {
             throw new IllegalArgumentException("No entry for key '" + key + "'.");
         }
-        Object value = get(key);
+        return castValue(type, key, get(key), convert);
+    }
+
+    <A> A castValue(Class<A> type, String key, Object value, boolean convert) {
         if (value == null) {
             return null;
         }
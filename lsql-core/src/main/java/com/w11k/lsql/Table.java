@@ -3,6 +3,7 @@ package com.w11k.lsql;
 import com.google.common.base.Joiner;
 import com.google.common.base.Optional;
 import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
 import com.w11k.lsql.converter.Converter;
@@ -19,12 +20,16 @@ import org.slf4j.LoggerFactory;
 
 import javax.annotation.Nullable;
 import java.sql.*;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
 import java.util.stream.Collectors;
 
 import static com.google.common.base.Optional.absent;
+import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.base.Optional.of;
 
 public class Table {
@@ -162,25 +167,33 @@ public class Table {
             PreparedStatement ps =
                     lSql.getStatementCreator().createInsertStatement(this, columns);
 
-            setValuesInPreparedStatement(ps, columns, row, null, null);
+            Object id = null;
+            try {
+                setValuesInPreparedStatement(ps, columns, row, null, null);
 
-            int rowsAffected = ps.executeUpdate();
-            if (rowsAffected != 1) {
-                throw new InsertException(rowsAffected + " rows were affected by insert operation. Expected: 1");
-            }
-            if (primaryKeyColumn.isPresent()) {
-                Object id = null;
-                if (!row.containsKey(primaryKeyColumn.get())) {
+                int rowsAffected = ps.executeUpdate();
+                if (rowsAffected != 1) {
+                    throw new InsertException(rowsAffected + " rows were affected by insert operation. Expected: 1");
+                }
+                if (primaryKeyColumn.isPresent() && !row.containsKey(primaryKeyColumn.get())) {
                     // check for generated keys
-                    ResultSet resultSet = ps.getGeneratedKeys();
-                    if (resultSet.next()) {
-                        Optional<Object> generated = lSql.extractGeneratedPk(this, resultSet);
-                        if (generated.isPresent()) {
-                            id = generated.get();
-                            row.put(primaryKeyColumn.get(), id);
+                    try (ResultSet resultSet = ps.getGeneratedKeys()) {
+                        if (resultSet.next()) {
+                            Optional<Object> generated = lSql.extractGeneratedPk(this, resultSet);
+                            if (generated.isPresent()) {
+                                id = generated.get();
+                                row.put(primaryKeyColumn.get(), id);
+                            }
                         }
                     }
-                } else {
+                }
+            } finally {
+                lSql.getStatementCreator().releasePreparedStatement(lSql, ps);
+                invalidateResultCache();
+            }
+
+            if (primaryKeyColumn.isPresent()) {
+                if (row.containsKey(primaryKeyColumn.get())) {
                     id = row.get(primaryKeyColumn.get());
                 }
 
@@ -195,6 +208,58 @@ public class Table {
         return absent();
     }
 
+    /**
+     * Runs {@link #insert(Row)} on the {@link com.w11k.lsql.jdbc.JdbcExecutor}.
+     */
+    public CompletableFuture<Optional<Object>> insertAsync(Row row) {
+        return lSql.executeAsync(() -> insert(row));
+    }
+
+    /**
+     * Inserts the rows with JDBC batches of {@link Config#getBatchChunkSize()} rows, see
+     * {@link #insertAll(Iterable, int)}.
+     */
+    public List<Optional<Object>> insertAll(Iterable<Row> rows) {
+        return insertAll(rows, lSql.getConfig().getBatchChunkSize());
+    }
+
+    /**
+     * Inserts the rows with JDBC batches. Rows with the same set of columns share one INSERT
+     * statement, each group is sent in batches of {@code chunkSize} rows. The rows are not
+     * inserted atomically unless the method is called inside a transaction.
+     * <p/>
+     * Generated primary keys are put into the passed rows if the driver returns the keys of all
+     * rows of a batch. If revision support is enabled, the revisions are queried with one
+     * statement per batch and put into the passed rows. Like in {@link #insert(Row)}, rows with a
+     * {@code null} primary key are copied and the copy receives the key and the revision.
+     *
+     * @return the primary key of each row in the order of the rows, absent if the table has no
+     * primary key or the driver did not return the generated key
+     * @throws InsertException
+     */
+    public List<Optional<Object>> insertAll(Iterable<Row> rows, int chunkSize) {
+        checkArgument(chunkSize > 0, "chunkSize must be > 0");
+        return insertGrouped(rows, (columns, allRows, group, ids) -> insertBatch(columns, allRows, group, ids, chunkSize));
+    }
+
+    /**
+     * Inserts the rows with multi-row {@code INSERT INTO t(cols) VALUES (...),(...),...}
+     * statements. Use this instead of {@link #insertAll(Iterable)} for drivers that send each row
+     * of a JDBC batch as a separate statement.
+     * <p/>
+     * Rows with the same set of columns are inserted in chunks that respect the parameter and row
+     * limits of the dialect, see
+     * {@link com.w11k.lsql.dialects.StatementCreator#getMultiRowInsertChunkSize(int)}. The statement
+     * of a chunk size is prepared once and reused for all chunks of that size. Generated keys and
+     * revisions are handled like in {@link #insertAll(Iterable, int)}.
+     *
+     * @return the primary key of each row in the order of the rows
+     * @throws InsertException
+     */
+    public List<Optional<Object>> insertAllMultiRow(Iterable<Row> rows) {
+        return insertGrouped(rows, this::insertMultiRow);
+    }
+
     /**
      * Updates a database row with the values in the passed {@link Row}. If you want to set {@code null} values,
      * you need to explicitly add null entries for the columns.
@@ -225,6 +290,16 @@ public class Table {
         updateWhere(row, whereIdVal);
     }
 
+    /**
+     * Runs {@link #update(Row)} on the {@link com.w11k.lsql.jdbc.JdbcExecutor}.
+     */
+    public CompletableFuture<Void> updateAsync(Row row) {
+        return lSql.executeAsync(() -> {
+            update(row);
+            return null;
+        });
+    }
+
     public void updateWhere(Row values, Row where) {
         if (where.size() == 0) {
             throw new UpdateException("Can not update row without where values.");
@@ -247,16 +322,21 @@ public class Table {
             PreparedStatement ps = lSql.getStatementCreator()
                     .createUpdateStatement(this, valueColumns, whereColumns);
 
-            setValuesInPreparedStatement(ps, valueColumns, values, whereColumns, where);
+            try {
+                setValuesInPreparedStatement(ps, valueColumns, values, whereColumns, where);
 
-            // Set Revision
-            if (revisionColumn.isPresent()) {
-                Column col = revisionColumn.get();
-                Object revision = values.get(col.getJavaColumnName());
-                col.getConverter().setValueInStatement(lSql, ps, placeholderCount + 1, revision);
-            }
+                // Set Revision
+                if (revisionColumn.isPresent()) {
+                    Column col = revisionColumn.get();
+                    Object revision = values.get(col.getJavaColumnName());
+                    col.getConverter().setValueInStatement(lSql, ps, placeholderCount + 1, revision);
+                }
 
-            executeUpdate(ps);
+                executeUpdate(ps);
+            } finally {
+                lSql.getStatementCreator().releasePreparedStatement(lSql, ps);
+                invalidateResultCache();
+            }
 
             // Set new revision
             if (getPrimaryKeyColumn().isPresent() && values.containsKey(getPrimaryKeyColumn().get())) {
@@ -289,12 +369,18 @@ public class Table {
             try {
                 PreparedStatement ps = lSql.getStatementCreator()
                         .createCountForIdStatement(this);
-                Column column = column(getPrimaryKeyColumn().get());
-                column.getConverter().setValueInStatement(lSql, ps, 1, id);
-                ps.setObject(1, id);
-                ResultSet rs = ps.executeQuery();
-                rs.next();
-                int count = rs.getInt(1);
+                int count;
+                try {
+                    Column column = column(getPrimaryKeyColumn().get());
+                    column.getConverter().setValueInStatement(lSql, ps, 1, id);
+                    ps.setObject(1, id);
+                    try (ResultSet rs = ps.executeQuery()) {
+                        rs.next();
+                        count = rs.getInt(1);
+                    }
+                } finally {
+                    lSql.getStatementCreator().releasePreparedStatement(lSql, ps);
+                }
                 if (count == 0) {
                     insert(row);
                 } else {
@@ -350,6 +436,9 @@ public class Table {
             executeUpdate(ps);
         } catch (Exception e) {
             throw new DeleteException(e);
+        } finally {
+            lSql.getStatementCreator().releasePreparedStatement(lSql, ps);
+            invalidateResultCache();
         }
     }
 
@@ -366,22 +455,24 @@ public class Table {
         }
         PreparedStatement ps = createLoadPreparedStatement();
 
-        String pkColumn = getPrimaryKeyColumn().get();
-        Column column = column(pkColumn);
-        try {
-            column.getConverter().setValueInStatement(lSql, ps, 1, id);
-        } catch (Exception e) {
-            throw new RuntimeException(e);
-        }
-        RowQuery query = new RowQuery(lSql, ps, null);
-        for (Map.Entry<String, Column> columnInTable : this.columns.entrySet()) {
-            Column value = columnInTable.getValue();
-            if (value.isIgnored()) {
-                continue;
+        Optional<Row> first;
+        try (RowQuery query = new RowQuery(lSql, ps, null)) {
+            String pkColumn = getPrimaryKeyColumn().get();
+            Column column = column(pkColumn);
+            try {
+                column.getConverter().setValueInStatement(lSql, ps, 1, id);
+            } catch (Exception e) {
+                throw new RuntimeException(e);
+            }
+            for (Map.Entry<String, Column> columnInTable : this.columns.entrySet()) {
+                Column value = columnInTable.getValue();
+                if (value.isIgnored()) {
+                    continue;
+                }
+                query.addConverter(columnInTable.getKey(), value.getConverter());
             }
-            query.addConverter(columnInTable.getKey(), value.getConverter());
+            first = query.first();
         }
-        Optional<Row> first = query.first();
         if (first.isPresent()) {
             return of(newLinkedRow(first.get()));
         } else {
@@ -389,6 +480,13 @@ public class Table {
         }
     }
 
+    /**
+     * Runs {@link #load(Object)} on the {@link com.w11k.lsql.jdbc.JdbcExecutor}.
+     */
+    public CompletableFuture<Optional<LinkedRow>> loadAsync(Object id) {
+        return lSql.executeAsync(() -> load(id));
+    }
+
     /**
      * @see com.w11k.lsql.Table#newLinkedRow(java.util.Map)
      */
@@ -519,6 +617,201 @@ public class Table {
         }
     }
 
+    private void invalidateResultCache() {
+        lSql.getQueryResultCache().invalidateTables(this.sqlSchemaAndTableName, this.tableName);
+    }
+
+    /**
+     * Splits the rows into runs of consecutive rows with the same set of columns and passes each
+     * run to the inserter. The rows are inserted in the order of the input, e.g. a parent before
+     * its children.
+     */
+    private List<Optional<Object>> insertGrouped(Iterable<Row> rows, GroupInserter inserter) {
+        List<Row> allRows = Lists.newArrayList(rows);
+        List<Optional<Object>> ids = Lists.newArrayList(Collections.nCopies(allRows.size(), absent()));
+
+        List<List<Integer>> groups = Lists.newArrayList();
+        Set<String> groupColumns = null;
+        for (int i = 0; i < allRows.size(); i++) {
+            Row row = allRows.get(i);
+            if (this.primaryKeyColumn.isPresent()) {
+                String pkColumn = this.primaryKeyColumn.get();
+                if (row.containsKey(pkColumn) && row.get(pkColumn) == null) {
+                    // do not modify the caller's row, see insert(Row)
+                    row = new Row(row);
+                    row.remove(pkColumn);
+                    allRows.set(i, row);
+                }
+            }
+            if (!row.keySet().equals(groupColumns)) {
+                groupColumns = ImmutableSet.copyOf(row.keySet());
+                groups.add(Lists.newArrayList());
+            }
+            groups.get(groups.size() - 1).add(i);
+        }
+
+        try {
+            for (List<Integer> group : groups) {
+                // the first row of a group determines the column order
+                List<String> columns = createColumnList(allRows.get(group.get(0)), false);
+                inserter.insert(columns, allRows, group, ids);
+            }
+        } catch (InsertException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new InsertException(e);
+        } finally {
+            invalidateResultCache();
+        }
+        return ids;
+    }
+
+    /**
+     * Prepares the INSERT statement once and executes it in batches of {@code chunkSize} rows.
+     */
+    private void insertBatch(List<String> columns,
+                             List<Row> rows,
+                             List<Integer> group,
+                             List<Optional<Object>> ids,
+                             int chunkSize) throws SQLException {
+        PreparedStatement ps = lSql.getStatementCreator().createInsertStatement(this, columns);
+        try {
+            for (List<Integer> chunk : Lists.partition(group, chunkSize)) {
+                for (Integer index : chunk) {
+                    setValuesInPreparedStatement(ps, columns, rows.get(index), null, null);
+                    ps.addBatch();
+                }
+                int[] rowsAffected = ps.executeBatch();
+                for (int count : rowsAffected) {
+                    if (count != 1 && count != Statement.SUCCESS_NO_INFO) {
+                        throw new InsertException(count + " rows were affected by insert operation. Expected: 1");
+                    }
+                }
+                putGeneratedKeys(ps, columns, rows, chunk);
+                applyIdsAndRevisions(rows, chunk, ids);
+            }
+        } finally {
+            lSql.getStatementCreator().releasePreparedStatement(lSql, ps);
+        }
+    }
+
+    private void insertMultiRow(List<String> columns,
+                                List<Row> rows,
+                                List<Integer> group,
+                                List<Optional<Object>> ids) throws SQLException {
+        int chunkSize = lSql.getStatementCreator().getMultiRowInsertChunkSize(columns.size());
+        PreparedStatement ps = null;
+        int psRowCount = 0;
+        try {
+            for (List<Integer> chunk : Lists.partition(group, chunkSize)) {
+                // only the last chunk can have a different size
+                if (ps == null || psRowCount != chunk.size()) {
+                    if (ps != null) {
+                        lSql.getStatementCreator().releasePreparedStatement(lSql, ps);
+                        ps = null;
+                    }
+                    ps = lSql.getStatementCreator().createMultiRowInsertStatement(this, columns, chunk.size());
+                    psRowCount = chunk.size();
+                }
+
+                int parameterIndex = 1;
+                for (Integer index : chunk) {
+                    Row row = rows.get(index);
+                    for (String column : columns) {
+                        column(column).getConverter().setValueInStatement(lSql, ps, parameterIndex++, row.get(column));
+                    }
+                }
+                int rowsAffected = ps.executeUpdate();
+                if (rowsAffected != chunk.size()) {
+                    throw new InsertException(rowsAffected + " rows were affected by insert operation. " +
+                            "Expected: " + chunk.size());
+                }
+                putGeneratedKeys(ps, columns, rows, chunk);
+                applyIdsAndRevisions(rows, chunk, ids);
+            }
+        } finally {
+            if (ps != null) {
+                lSql.getStatementCreator().releasePreparedStatement(lSql, ps);
+            }
+        }
+    }
+
+    /**
+     * Puts the generated primary keys into the rows if the driver returned a key for each row.
+     */
+    private void putGeneratedKeys(PreparedStatement ps,
+                                  List<String> columns,
+                                  List<Row> rows,
+                                  List<Integer> chunk) throws SQLException {
+        if (!this.primaryKeyColumn.isPresent() || columns.contains(this.primaryKeyColumn.get())) {
+            return;
+        }
+        List<Object> generated = Lists.newArrayListWithCapacity(chunk.size());
+        try (ResultSet resultSet = ps.getGeneratedKeys()) {
+            while (resultSet != null && resultSet.next()) {
+                Optional<Object> key = lSql.extractGeneratedPk(this, resultSet);
+                if (!key.isPresent()) {
+                    break;
+                }
+                generated.add(key.get());
+            }
+        }
+        if (generated.size() == chunk.size()) {
+            for (int i = 0; i < chunk.size(); i++) {
+                rows.get(chunk.get(i)).put(this.primaryKeyColumn.get(), generated.get(i));
+            }
+        }
+    }
+
+    private void applyIdsAndRevisions(List<Row> rows,
+                                      List<Integer> chunk,
+                                      List<Optional<Object>> ids) throws SQLException {
+        if (!this.primaryKeyColumn.isPresent()) {
+            return;
+        }
+        String pkColumn = this.primaryKeyColumn.get();
+        List<Object> chunkIds = Lists.newArrayListWithCapacity(chunk.size());
+        for (Integer index : chunk) {
+            Object id = rows.get(index).get(pkColumn);
+            ids.set(index, Optional.fromNullable(id));
+            if (id != null) {
+                chunkIds.add(id);
+            }
+        }
+        if (revisionColumn.isPresent() && !chunkIds.isEmpty()) {
+            Map<Object, Object> revisions = queryRevisions(chunkIds);
+            String revisionColumnName = revisionColumn.get().getJavaColumnName();
+            for (Integer index : chunk) {
+                Object id = rows.get(index).get(pkColumn);
+                if (id != null) {
+                    rows.get(index).put(revisionColumnName, revisions.get(id));
+                }
+            }
+        }
+    }
+
+    private Map<Object, Object> queryRevisions(List<Object> ids) throws SQLException {
+        Converter pkConverter = column(this.primaryKeyColumn.get()).getConverter();
+        Converter revConverter = revisionColumn.get().getConverter();
+        PreparedStatement revQuery = lSql.getStatementCreator().createRevisionsQueryStatement(this, ids.size());
+        try {
+            for (int i = 0; i < ids.size(); i++) {
+                pkConverter.setValueInStatement(lSql, revQuery, i + 1, ids.get(i));
+            }
+            Map<Object, Object> revisions = Maps.newHashMapWithExpectedSize(ids.size());
+            try (ResultSet resultSet = revQuery.executeQuery()) {
+                while (resultSet.next()) {
+                    revisions.put(
+                            pkConverter.getValueFromResultSet(lSql, resultSet, 1),
+                            revConverter.getValueFromResultSet(lSql, resultSet, 2));
+                }
+            }
+            return revisions;
+        } finally {
+            lSql.getStatementCreator().releasePreparedStatement(lSql, revQuery);
+        }
+    }
+
     private void applyNewRevision(Row row, Object id) throws SQLException {
         if (revisionColumn.isPresent()) {
             Object revision = queryRevision(id);
@@ -529,10 +822,15 @@ public class Table {
     private Object queryRevision(Object id) throws SQLException {
         Column revCol = revisionColumn.get();
         PreparedStatement revQuery = lSql.getStatementCreator().createRevisionQueryStatement(this);
-        revCol.getConverter().setValueInStatement(lSql, revQuery, 1, id);
-        ResultSet resultSet = revQuery.executeQuery();
-        resultSet.next();
-        return resultSet.getObject(1);
+        try {
+            revCol.getConverter().setValueInStatement(lSql, revQuery, 1, id);
+            try (ResultSet resultSet = revQuery.executeQuery()) {
+                resultSet.next();
+                return resultSet.getObject(1);
+            }
+        } finally {
+            lSql.getStatementCreator().releasePreparedStatement(lSql, revQuery);
+        }
     }
 
     private void fetchMeta() {
@@ -635,4 +933,9 @@ public class Table {
         }
     }
 
+    private interface GroupInserter {
+        void insert(List<String> columns, List<Row> rows, List<Integer> group, List<Optional<Object>> ids)
+                throws SQLException;
+    }
+
 }
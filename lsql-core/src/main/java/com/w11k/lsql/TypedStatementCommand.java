@@ -1,7 +1,11 @@
 package com.w11k.lsql;
 
+import com.google.common.collect.Iterables;
+
 import java.util.Map;
 
+import static com.google.common.base.Preconditions.checkArgument;
+
 public abstract class TypedStatementCommand {
 
     private final LSql lSql;
@@ -14,9 +18,48 @@ public abstract class TypedStatementCommand {
     }
 
     public void execute() {
-        this.lSql.createSqlStatement(this.sqlStatement).execute(this.getQueryParameters());
+        this.lSql.createSqlStatement(this.sqlStatement, this.getStatementFileName(), this.getStatementName())
+                .execute(this.getQueryParameters());
     }
 
+    /**
+     * Executes all commands in JDBC batches. All commands must belong to the same statement.
+     *
+     * @return the update count for each command
+     */
+    public static int[] executeBatch(Iterable<? extends TypedStatementCommand> commands) {
+        if (Iterables.isEmpty(commands)) {
+            return new int[0];
+        }
+        TypedStatementCommand first = commands.iterator().next();
+        return executeBatch(commands, first.lSql.getConfig().getBatchChunkSize());
+    }
+
+    /**
+     * Executes all commands in JDBC batches of {@code chunkSize} rows. All commands must belong
+     * to the same statement.
+     *
+     * @return the update count for each command
+     */
+    public static int[] executeBatch(Iterable<? extends TypedStatementCommand> commands, int chunkSize) {
+        if (Iterables.isEmpty(commands)) {
+            return new int[0];
+        }
+        TypedStatementCommand first = commands.iterator().next();
+        for (TypedStatementCommand command : commands) {
+            checkArgument(command.sqlStatement.equals(first.sqlStatement)
+                            && command.getStatementName().equals(first.getStatementName()),
+                    "All commands of a batch must belong to the same statement");
+        }
+
+        return first.lSql.createSqlStatement(first.sqlStatement, first.getStatementFileName(), first.getStatementName())
+                .executeBatch(Iterables.transform(commands, TypedStatementCommand::getQueryParameters), chunkSize);
+    }
+
+    public abstract String getStatementFileName();
+
+    public abstract String getStatementName();
+
     protected abstract Map<String, Object> getQueryParameters();
 
 }
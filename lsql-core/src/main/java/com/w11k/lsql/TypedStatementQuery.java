@@ -1,13 +1,17 @@
 package com.w11k.lsql;
 
 import com.google.common.base.Optional;
+import com.w11k.lsql.query.QueryCursor;
+import com.w11k.lsql.query.RowQuery;
+import com.w11k.lsql.statement.AbstractSqlStatement;
+import io.reactivex.Flowable;
 import io.reactivex.Observable;
 import io.reactivex.functions.Function;
 
 import java.util.List;
 import java.util.Map;
-
-import static com.google.common.base.Optional.of;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Stream;
 
 public abstract class TypedStatementQuery<T> {
 
@@ -15,33 +19,136 @@ public abstract class TypedStatementQuery<T> {
 
     private final String sqlStatement;
 
+    private String[] resultCacheTables = null;
+
+    private long offset = 0;
+
+    private Long limit = null;
+
     public TypedStatementQuery(LSql lSql, String sqlStatement) {
         this.lSql = lSql;
         this.sqlStatement = sqlStatement;
     }
 
+    /**
+     * Restricts the result to the first {@code limit} rows, see
+     * {@link com.w11k.lsql.statement.AbstractSqlStatement#limit(long)}.
+     */
+    public TypedStatementQuery<T> limit(long limit) {
+        return page(0, limit);
+    }
+
+    /**
+     * Restricts the result to {@code limit} rows after skipping {@code offset} rows, see
+     * {@link com.w11k.lsql.statement.AbstractSqlStatement#page(long, long)}.
+     */
+    public TypedStatementQuery<T> page(long offset, long limit) {
+        this.offset = offset;
+        this.limit = limit;
+        return this;
+    }
+
+    /**
+     * Caches the results of {@link #toList()}, see {@link com.w11k.lsql.statement.AbstractSqlStatement#cacheResults(String...)}.
+     *
+     * @param tables the tables read by the statement
+     */
+    public TypedStatementQuery<T> cacheResults(String... tables) {
+        this.resultCacheTables = tables;
+        return this;
+    }
+
+    /**
+     * Each subscription executes the statement. The query is closed when the subscription
+     * terminates or gets disposed.
+     */
     public Observable<T> rx() {
-        return this.lSql.createSqlStatement(this.sqlStatement, this.getStatementFileName(), this.getStatementName())
-                .query(this.getQueryParameters())
-                .rx()
-                .map(this::createTypedRow);
+        return Observable.using(
+                this::createQuery,
+                query -> query.rx().map(this::createTypedRow),
+                RowQuery::close);
+    }
+
+    /**
+     * Like {@link #rx()}, but reads rows only on downstream demand, see {@link RowQuery#flowable()}.
+     */
+    public Flowable<T> flowable() {
+        return Flowable.using(
+                this::createQuery,
+                query -> query.flowable().map(this::createTypedRow),
+                RowQuery::close);
+    }
+
+    /**
+     * Executes the statement and returns a cursor that reads the rows on demand, see
+     * {@link RowQuery#iterator()}.
+     */
+    public QueryCursor<T> iterator() {
+        return this.createQuery().iterator().map(this::createTypedRow);
+    }
+
+    /**
+     * Executes the statement and returns a Stream backed by {@link #iterator()}. Closing the
+     * Stream closes the query.
+     */
+    public Stream<T> stream() {
+        return this.createQuery().stream().map(this::createTypedRow);
+    }
+
+    /**
+     * Counts the rows of the statement, see {@link AbstractSqlStatement#count(Map)}.
+     */
+    public long count() {
+        return createStatement().count(this.getQueryParameters());
+    }
+
+    /**
+     * Checks if the statement returns at least one row, see {@link AbstractSqlStatement#exists(Map)}.
+     */
+    public boolean exists() {
+        return createStatement().exists(this.getQueryParameters());
+    }
+
+    private AbstractSqlStatement<RowQuery> createStatement() {
+        return this.lSql.createSqlStatement(this.sqlStatement, this.getStatementFileName(), this.getStatementName());
+    }
+
+    private RowQuery createQuery() {
+        AbstractSqlStatement<RowQuery> statement = createStatement();
+        if (this.resultCacheTables != null) {
+            statement.cacheResults(this.resultCacheTables);
+        }
+        if (this.limit != null) {
+            statement.page(this.offset, this.limit);
+        }
+        return statement.query(this.getQueryParameters());
     }
 
     public List<T> toList() {
-        return this.rx().toList().blockingGet();
+        return this.createQuery().toList(this::createTypedRow);
     }
 
     public <R> List<R> toList(Function<T, R> mapper) {
-        return rx().map(mapper).toList().blockingGet();
+        return this.createQuery().toList(row -> mapper.apply(this.createTypedRow(row)));
     }
 
     public Optional<T> first() {
-        List<T> first = this.rx().take(1).toList().blockingGet();
-        if (first.isEmpty()) {
-            return Optional.absent();
-        } else {
-            return of(first.get(0));
-        }
+        return this.createQuery().first().transform(this::createTypedRow);
+    }
+
+    /**
+     * Runs {@link #toList()} on the {@link com.w11k.lsql.jdbc.JdbcExecutor}. The statement is
+     * created on the executor thread with the connection of the async operation.
+     */
+    public CompletableFuture<List<T>> toListAsync() {
+        return this.lSql.executeAsync(this::toList);
+    }
+
+    /**
+     * Runs {@link #first()} on the {@link com.w11k.lsql.jdbc.JdbcExecutor}.
+     */
+    public CompletableFuture<Optional<T>> firstAsync() {
+        return this.lSql.executeAsync(this::first);
     }
 
     public <R> Optional<R> first(final Function<T, R> mapper) {
@@ -1,8 +1,11 @@
 package com.w11k.lsql;
 
 import com.google.common.base.Optional;
+import com.google.common.collect.Lists;
 
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 import java.util.function.Function;
 
 public abstract class TypedTable<T extends TableRow, I> {
@@ -30,6 +33,26 @@ public abstract class TypedTable<T extends TableRow, I> {
         return (Optional<I>) this.table.insert(new Row(map));
     }
 
+    /**
+     * Inserts the instances with JDBC batches, see {@link Table#insertAll(Iterable, int)}.
+     *
+     * @return the primary key of each instance in the order of the instances
+     */
+    @SuppressWarnings("unchecked")
+    public List<Optional<I>> insertAll(Iterable<T> instances) {
+        List<Row> rows = Lists.newArrayList();
+        for (T instance : instances) {
+            Map<String, Object> map = instance.toInternalMap();
+            map.entrySet().removeIf(entry -> entry.getValue() == null);
+            rows.add(new Row(map));
+        }
+        return (List<Optional<I>>) (List<?>) this.table.insertAll(rows);
+    }
+
+    public CompletableFuture<Optional<I>> insertAsync(T instance) {
+        return this.table.getlSql().executeAsync(() -> this.insert(instance));
+    }
+
     public T insertAndLoad(T instance) {
         Optional<I> pk = this.insert(instance);
         if (pk.isPresent()) {
@@ -54,6 +77,10 @@ public abstract class TypedTable<T extends TableRow, I> {
         return Optional.of(tableRow);
     }
 
+    public CompletableFuture<Optional<T>> loadAsync(I id) {
+        return this.table.getlSql().executeAsync(() -> this.load(id));
+    }
+
     public void delete(T instance) {
         Map<String, Object> map = instance.toInternalMap();
         this.table.delete(new Row(map));
@@ -68,6 +95,13 @@ public abstract class TypedTable<T extends TableRow, I> {
         this.table.update(new Row(map));
     }
 
+    public CompletableFuture<Void> updateAsync(T instance) {
+        return this.table.getlSql().executeAsync(() -> {
+            this.update(instance);
+            return null;
+        });
+    }
+
     public void updateWhere(T instance, Map<String, Object> where) {
         Map<String, Object> map = instance.toInternalMap();
         this.table.updateWhere(new Row(map), new Row(where));
@@ -6,27 +6,20 @@ import com.w11k.lsql.utils.SqlTypesNames;
 import javax.annotation.Nullable;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
 import java.sql.SQLException;
 
 public abstract class Converter {
 
+    /**
+     * Wraps the converter to return the default value for SQL NULL. If the delegate is a
+     * {@link PrimitiveConverter}, so is the wrapper, e.g. to read values with the typed getters.
+     */
     public static Converter withDefaultValueForNull(final Converter delegate, final Object defaultValueForNull) {
-        return new Converter(delegate.getJavaType(), delegate.getSqlType()) {
-            @Override
-            public void setValue(LSql lSql, PreparedStatement ps, int index, Object val) throws SQLException {
-                delegate.setValue(lSql, ps, index, val);
-            }
-
-            @Override
-            public Object getValue(LSql lSql, ResultSet rs, int index) throws SQLException {
-                return delegate.getValue(lSql, rs, index);
-            }
-
-            @Override
-            protected Object getDefaultValueForNull(LSql lSql, ResultSet rs, int index) {
-                return defaultValueForNull;
-            }
-        };
+        if (delegate instanceof PrimitiveConverter) {
+            return new PrimitiveDefaultValueForNullConverter(delegate, defaultValueForNull);
+        }
+        return new DefaultValueForNullConverter(delegate, defaultValueForNull);
     }
 
     private final Class<?> javaType;
@@ -49,6 +42,15 @@ public abstract class Converter {
         }
     }
 
+    /**
+     * Returns the value that {@link #setValue(LSql, PreparedStatement, int, Object)} writes to the
+     * statement, e.g. to create the elements of a SQL array. The default implementation returns
+     * the value unchanged. Converters that write a different type must override this method.
+     */
+    public Object toJdbcValue(LSql lSql, Object val) {
+        return val;
+    }
+
     public void failOnWrongValueType(Object val) {
         if (!isValueValid(val)) {
             throw new IllegalArgumentException(
@@ -59,6 +61,11 @@ public abstract class Converter {
         }
     }
 
+    /**
+     * Reads the column value and returns the default value for SQL NULL. The default
+     * implementation reads the column twice to detect NULL. Converters that can detect NULL with
+     * their own typed read should override this method.
+     */
     public Object getValueFromResultSet(LSql lSql, ResultSet rs, int index) throws SQLException {
         rs.getObject(index);
         if (rs.wasNull()) {
@@ -68,6 +75,17 @@ public abstract class Converter {
         return getValue(lSql, rs, index);
     }
 
+    /**
+     * Called once per ResultSet column before values are read. Converters that depend on the
+     * actual column type can return a variant bound to it instead of inspecting the meta data
+     * for every value.
+     *
+     * @return the converter to use for the column, {@code this} by default
+     */
+    public Converter specializeForColumn(ResultSetMetaData metaData, int position) throws SQLException {
+        return this;
+    }
+
     public boolean isValueValid(Object value) {
         if (value == null) {
             return isNullValid();
@@ -114,4 +132,98 @@ public abstract class Converter {
         return null;
     }
 
+    private static class DefaultValueForNullConverter extends Converter {
+
+        final Converter delegate;
+
+        final Object defaultValueForNull;
+
+        DefaultValueForNullConverter(Converter delegate, Object defaultValueForNull) {
+            super(delegate.getJavaType(), delegate.getSqlType());
+            this.delegate = delegate;
+            this.defaultValueForNull = defaultValueForNull;
+        }
+
+        @Override
+        public void setValue(LSql lSql, PreparedStatement ps, int index, Object val) throws SQLException {
+            this.delegate.setValue(lSql, ps, index, val);
+        }
+
+        @Override
+        public Object toJdbcValue(LSql lSql, Object val) {
+            return this.delegate.toJdbcValue(lSql, val);
+        }
+
+        @Override
+        public Object getValue(LSql lSql, ResultSet rs, int index) throws SQLException {
+            return this.delegate.getValue(lSql, rs, index);
+        }
+
+        @Override
+        protected Object getDefaultValueForNull(LSql lSql, ResultSet rs, int index) {
+            return this.defaultValueForNull;
+        }
+
+        @Override
+        public Converter specializeForColumn(ResultSetMetaData metaData, int position) throws SQLException {
+            Converter specialized = this.delegate.specializeForColumn(metaData, position);
+            return specialized == this.delegate ? this : withDefaultValueForNull(specialized, this.defaultValueForNull);
+        }
+    }
+
+    private static final class PrimitiveDefaultValueForNullConverter extends DefaultValueForNullConverter
+            implements PrimitiveConverter {
+
+        private final PrimitiveConverter primitiveDelegate;
+
+        PrimitiveDefaultValueForNullConverter(Converter delegate, Object defaultValueForNull) {
+            super(delegate, defaultValueForNull);
+            this.primitiveDelegate = (PrimitiveConverter) delegate;
+        }
+
+        @Override
+        public Object getValueFromResultSet(LSql lSql, ResultSet rs, int index) throws SQLException {
+            Object value;
+            switch (getPrimitiveType()) {
+                case INT:
+                    value = getInt(rs, index);
+                    break;
+                case LONG:
+                    value = getLong(rs, index);
+                    break;
+                case DOUBLE:
+                    value = getDouble(rs, index);
+                    break;
+                default:
+                    value = getBoolean(rs, index);
+            }
+            return rs.wasNull() ? getDefaultValueForNull(lSql, rs, index) : value;
+        }
+
+        @Override
+        public PrimitiveType getPrimitiveType() {
+            return this.primitiveDelegate.getPrimitiveType();
+        }
+
+        @Override
+        public int getInt(ResultSet rs, int index) throws SQLException {
+            return this.primitiveDelegate.getInt(rs, index);
+        }
+
+        @Override
+        public long getLong(ResultSet rs, int index) throws SQLException {
+            return this.primitiveDelegate.getLong(rs, index);
+        }
+
+        @Override
+        public double getDouble(ResultSet rs, int index) throws SQLException {
+            return this.primitiveDelegate.getDouble(rs, index);
+        }
+
+        @Override
+        public boolean getBoolean(ResultSet rs, int index) throws SQLException {
+            return this.primitiveDelegate.getBoolean(rs, index);
+        }
+    }
+
 }
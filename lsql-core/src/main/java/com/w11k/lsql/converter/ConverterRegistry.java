@@ -15,6 +15,16 @@ public class ConverterRegistry {
 
     private final Map<Integer, Converter> sqlToJavaConverters = Maps.newHashMap();
 
+    private volatile int version = 0;
+
+    /**
+     * @return a number that changes whenever a converter or type alias gets added or removed.
+     * Used to discard statements that resolved their converters earlier.
+     */
+    public int getVersion() {
+        return this.version;
+    }
+
     public Converter getConverterForSqlType(int sqlType) {
         Converter converter = this.sqlToJavaConverters.get(sqlType);
         if (converter != null) {
@@ -45,10 +55,12 @@ public class ConverterRegistry {
 
     public void removeSqlToJavaConverter(int sqlType) {
         this.sqlToJavaConverters.remove(sqlType);
+        this.version++;
     }
 
     public void removeJavaToSqlConverter(Class<?> clazz) {
         this.javaToSqlConverters.remove(clazz);
+        this.version++;
     }
 
     public void addSqlToJavaConverter(Converter converter, boolean replaceExisting) {
@@ -64,6 +76,7 @@ public class ConverterRegistry {
                             "removeSqlToJavaConverter(...).");
         }
         this.sqlToJavaConverters.put(converter.getSqlType(), converter);
+        this.version++;
     }
 
     public void addJavaToSqlConverter(Converter converter, boolean replaceExisting) {
@@ -75,6 +88,7 @@ public class ConverterRegistry {
                             "removeJavaToSqlConverter(...).");
         }
         this.javaToSqlConverters.put(converter.getJavaType(), converter);
+        this.version++;
     }
 
     public void addConverter(Converter converter, boolean replaceExisting) {
@@ -84,10 +98,12 @@ public class ConverterRegistry {
 
     public void addTypeAlias(String alias, Converter converter) {
         this.typeAliasesForConverter.put(alias.toLowerCase(), converter);
+        this.version++;
     }
 
     public void addTypeAlias(String alias, Class<?> javaType) {
         this.typeAliasesForConverter.put(alias.toLowerCase(), this.getConverterForJavaType(javaType));
+        this.version++;
     }
 
 }
@@ -0,0 +1,37 @@
+package com.w11k.lsql.converter;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * Implemented by converters whose values can be read from a ResultSet as Java primitives.
+ * Callers must check {@link ResultSet#wasNull()} after each read.
+ */
+public interface PrimitiveConverter {
+
+    enum PrimitiveType {
+        INT, LONG, DOUBLE, BOOLEAN
+    }
+
+    /**
+     * @return the primitive type that matches the Java type of the converter
+     */
+    PrimitiveType getPrimitiveType();
+
+    default int getInt(ResultSet rs, int index) throws SQLException {
+        return rs.getInt(index);
+    }
+
+    default long getLong(ResultSet rs, int index) throws SQLException {
+        return rs.getLong(index);
+    }
+
+    default double getDouble(ResultSet rs, int index) throws SQLException {
+        return rs.getDouble(index);
+    }
+
+    default boolean getBoolean(ResultSet rs, int index) throws SQLException {
+        return rs.getBoolean(index);
+    }
+
+}
@@ -25,4 +25,8 @@ public class AtomicIntegerConverter extends Converter {
         return new AtomicInteger(rs.getInt(index));
     }
 
+    @Override
+    public Object toJdbcValue(LSql lSql, Object val) {
+        return ((AtomicInteger) val).get();
+    }
 }
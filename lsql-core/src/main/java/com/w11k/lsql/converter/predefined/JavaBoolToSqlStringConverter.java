@@ -47,4 +47,8 @@ public class JavaBoolToSqlStringConverter extends Converter {
         ps.setString(index, yesOrNo);
     }
 
+    @Override
+    public Object toJdbcValue(LSql lSql, Object val) {
+        return ((Boolean) val) ? sqlStringValueForTrue : sqlStringValueForFalse;
+    }
 }
@@ -36,13 +36,16 @@ public class ObjectToJsonStringConverter extends Converter {
     @Override
     public void setValue(LSql lSql, PreparedStatement ps, int index,
                          Object val) throws SQLException {
+        ps.setString(index, (String) toJdbcValue(lSql, val));
+    }
+
+    @Override
+    public Object toJdbcValue(LSql lSql, Object val) {
         try {
-            String json = lSql.getObjectMapper().writer().writeValueAsString(val);
-            ps.setString(index, json);
+            return lSql.getObjectMapper().writer().writeValueAsString(val);
         } catch (IOException e) {
             throw new RuntimeException(e);
         }
-
     }
 
     @Override
@@ -26,4 +26,9 @@ public class BinaryConverter extends Converter {
     public Object getValue(LSql lSql, ResultSet rs, int index) throws SQLException {
         return new com.w11k.lsql.Blob(rs.getBytes(index));
     }
+
+    @Override
+    public Object toJdbcValue(LSql lSql, Object val) {
+        return ((com.w11k.lsql.Blob) val).getData();
+    }
 }
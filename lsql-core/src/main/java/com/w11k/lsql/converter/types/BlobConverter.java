@@ -22,4 +22,9 @@ public class BlobConverter extends Converter {
         Blob blob = rs.getBlob(index);
         return new com.w11k.lsql.Blob(blob.getBinaryStream());
     }
+
+    @Override
+    public Object toJdbcValue(LSql lSql, Object val) {
+        return ((com.w11k.lsql.Blob) val).getData();
+    }
 }
@@ -2,13 +2,14 @@ package com.w11k.lsql.converter.types;
 
 import com.w11k.lsql.LSql;
 import com.w11k.lsql.converter.Converter;
+import com.w11k.lsql.converter.PrimitiveConverter;
 
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Types;
 
-public class BooleanConverter extends Converter {
+public class BooleanConverter extends Converter implements PrimitiveConverter {
 
     public static int[] SQL_TYPES = new int[]{
             Types.BIT, Types.BOOLEAN
@@ -25,6 +26,17 @@ public class BooleanConverter extends Converter {
 
     @Override
     public Object getValue(LSql lSql, ResultSet rs, int index) throws SQLException {
-        return rs.getBoolean(index);
+        return getBoolean(rs, index);
+    }
+
+    @Override
+    public Object getValueFromResultSet(LSql lSql, ResultSet rs, int index) throws SQLException {
+        boolean value = getBoolean(rs, index);
+        return rs.wasNull() ? getDefaultValueForNull(lSql, rs, index) : value;
+    }
+
+    @Override
+    public PrimitiveType getPrimitiveType() {
+        return PrimitiveType.BOOLEAN;
     }
 }
@@ -35,4 +35,9 @@ public class ClobConverter extends Converter {
             return null;
         }
     }
+
+    @Override
+    public Object toJdbcValue(LSql lSql, Object val) {
+        return val.toString();
+    }
 }
@@ -22,6 +22,11 @@ public class FloatConverter extends Converter {
     @Override
     public Object getValue(LSql lSql, ResultSet rs, int index) throws SQLException {
         return rs.getFloat(index);
+    }
 
+    @Override
+    public Object getValueFromResultSet(LSql lSql, ResultSet rs, int index) throws SQLException {
+        float value = rs.getFloat(index);
+        return rs.wasNull() ? getDefaultValueForNull(lSql, rs, index) : value;
     }
 }
@@ -2,13 +2,14 @@ package com.w11k.lsql.converter.types;
 
 import com.w11k.lsql.LSql;
 import com.w11k.lsql.converter.Converter;
+import com.w11k.lsql.converter.PrimitiveConverter;
 
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Types;
 
-public class IntConverter extends Converter {
+public class IntConverter extends Converter implements PrimitiveConverter {
 
     public static int[] SQL_TYPES = new int[]{
             Types.TINYINT, Types.SMALLINT, Types.INTEGER
@@ -25,7 +26,17 @@ public class IntConverter extends Converter {
 
     @Override
     public Object getValue(LSql lSql, ResultSet rs, int index) throws SQLException {
-        return rs.getInt(index);
+        return getInt(rs, index);
+    }
 
+    @Override
+    public Object getValueFromResultSet(LSql lSql, ResultSet rs, int index) throws SQLException {
+        int value = getInt(rs, index);
+        return rs.wasNull() ? getDefaultValueForNull(lSql, rs, index) : value;
+    }
+
+    @Override
+    public PrimitiveType getPrimitiveType() {
+        return PrimitiveType.INT;
     }
 }
@@ -28,4 +28,9 @@ public class JodaDateTimeConverter extends Converter {
             return null;
         }
     }
+
+    @Override
+    public Object toJdbcValue(LSql lSql, Object val) {
+        return new Timestamp(((DateTime) val).getMillis());
+    }
 }
@@ -28,4 +28,9 @@ public class JodaLocalDateConverter extends Converter {
             return null;
         }
     }
+
+    @Override
+    public Object toJdbcValue(LSql lSql, Object val) {
+        return new Timestamp(((LocalDate) val).toDate().getTime());
+    }
 }
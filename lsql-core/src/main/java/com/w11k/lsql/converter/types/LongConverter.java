@@ -2,13 +2,14 @@ package com.w11k.lsql.converter.types;
 
 import com.w11k.lsql.LSql;
 import com.w11k.lsql.converter.Converter;
+import com.w11k.lsql.converter.PrimitiveConverter;
 
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Types;
 
-public class LongConverter extends Converter {
+public class LongConverter extends Converter implements PrimitiveConverter {
 
     public LongConverter() {
         super(Long.class, Types.BIGINT);
@@ -21,7 +22,17 @@ public class LongConverter extends Converter {
 
     @Override
     public Object getValue(LSql lSql, ResultSet rs, int index) throws SQLException {
-        return rs.getLong(index);
+        return getLong(rs, index);
+    }
 
+    @Override
+    public Object getValueFromResultSet(LSql lSql, ResultSet rs, int index) throws SQLException {
+        long value = getLong(rs, index);
+        return rs.wasNull() ? getDefaultValueForNull(lSql, rs, index) : value;
+    }
+
+    @Override
+    public PrimitiveType getPrimitiveType() {
+        return PrimitiveType.LONG;
     }
 }
@@ -29,4 +29,15 @@ public class StringConverter extends Converter {
     public Object getValue(LSql lSql, ResultSet rs, int index) throws SQLException {
         return rs.getString(index);
     }
+
+    @Override
+    public Object getValueFromResultSet(LSql lSql, ResultSet rs, int index) throws SQLException {
+        String value = rs.getString(index);
+        return value == null ? getDefaultValueForNull(lSql, rs, index) : value;
+    }
+
+    @Override
+    public Object toJdbcValue(LSql lSql, Object val) {
+        return val.toString();
+    }
 }
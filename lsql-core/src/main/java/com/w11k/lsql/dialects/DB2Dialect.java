@@ -8,17 +8,24 @@ public class DB2Dialect extends GenericDialect {
 
     private class DB2StatementCreator extends StatementCreator {
         @Override
-        public PreparedStatement createPreparedStatement(LSql lSql, String sqlString, boolean returnAutoGeneratedKeys) {
+        public PreparedStatement createPreparedStatement(LSql lSql,
+                                                         String sqlString,
+                                                         boolean returnAutoGeneratedKeys,
+                                                         String source) {
             sqlString = sqlString == null ? "" : sqlString.trim();
             if (sqlString.endsWith(";")) {
                 sqlString = sqlString.substring(0, sqlString.length() - 1);
             }
-            return super.createPreparedStatement(lSql, sqlString, returnAutoGeneratedKeys);
+            return super.createPreparedStatement(lSql, sqlString, returnAutoGeneratedKeys, source);
+        }
+
+        @Override
+        public String createLimitedSelect(String sql, long offset, long limit) {
+            return createOffsetFetchSelect(sql, offset, limit);
         }
     }
 
-    @Override
-    public StatementCreator getStatementCreator() {
-        return new DB2StatementCreator();
+    public DB2Dialect() {
+        setStatementCreator(new DB2StatementCreator());
     }
 }
@@ -5,6 +5,7 @@ import com.w11k.lsql.LSql;
 import com.w11k.lsql.Table;
 import com.w11k.lsql.converter.ConverterRegistry;
 import com.w11k.lsql.converter.types.*;
+import com.w11k.lsql.utils.SqlTypesNames;
 import org.joda.time.DateTime;
 
 import java.sql.ResultSet;
@@ -149,4 +150,27 @@ public class GenericDialect {
         return absent();
     }
 
+    /**
+     * Returns {@code true} if the driver only streams ResultSets with a fetch size inside a
+     * transaction, i.e. with autocommit disabled.
+     */
+    public boolean isTransactionRequiredForStreaming() {
+        return false;
+    }
+
+    /**
+     * Returns the SQL that replaces a list literal in an {@code IN (...)} clause if the list is
+     * bound as one array parameter, e.g. {@code SELECT unnest(?)}. Absent if arrays are not supported.
+     */
+    public Optional<String> getInListArrayParameterSql() {
+        return absent();
+    }
+
+    /**
+     * Returns the type name used for {@link java.sql.Connection#createArrayOf(String, Object[])}.
+     */
+    public String getArrayElementTypeName(int sqlType) {
+        return SqlTypesNames.getName(sqlType).toLowerCase();
+    }
+
 }
@@ -1,17 +1,27 @@
 package com.w11k.lsql.dialects;
 
+import com.google.common.base.Optional;
 import com.w11k.lsql.LSql;
 import com.w11k.lsql.converter.Converter;
+import com.w11k.lsql.converter.PrimitiveConverter;
 import org.postgresql.jdbc.PgResultSetMetaData;
 
 import java.sql.*;
 
 public class PostgresDialect extends GenericDialect {
 
-    private static class BooleanConverter extends Converter {
+    private static class BooleanConverter extends Converter implements PrimitiveConverter {
+
+        // the actual column type if the converter was specialized, otherwise null
+        private final Integer columnType;
 
         public BooleanConverter(int sqlType) {
+            this(sqlType, null);
+        }
+
+        private BooleanConverter(int sqlType, Integer columnType) {
             super(Boolean.class, sqlType);
+            this.columnType = columnType;
         }
 
         @Override
@@ -21,17 +31,49 @@ public class PostgresDialect extends GenericDialect {
 
         @Override
         public Object getValue(LSql lSql, ResultSet rs, int index) throws SQLException {
-            if (rs.getMetaData().getColumnType(index) == Types.BOOLEAN) {
+            return getBoolean(rs, index);
+        }
+
+        @Override
+        public Object getValueFromResultSet(LSql lSql, ResultSet rs, int index) throws SQLException {
+            boolean value = getBoolean(rs, index);
+            return rs.wasNull() ? getDefaultValueForNull(lSql, rs, index) : value;
+        }
+
+        @Override
+        public Converter specializeForColumn(ResultSetMetaData metaData, int position) throws SQLException {
+            return new BooleanConverter(getSqlType(), metaData.getColumnType(position));
+        }
+
+        @Override
+        public PrimitiveType getPrimitiveType() {
+            return PrimitiveType.BOOLEAN;
+        }
+
+        @Override
+        public boolean getBoolean(ResultSet rs, int index) throws SQLException {
+            int type = this.columnType != null ? this.columnType : rs.getMetaData().getColumnType(index);
+            if (type == Types.BOOLEAN) {
                 return rs.getBoolean(index);
-            } else if (rs.getMetaData().getColumnType(index) == Types.BIT) {
-                return rs.getString(index).trim().equalsIgnoreCase("t");
+            } else if (type == Types.BIT) {
+                String value = rs.getString(index);
+                return value != null && value.trim().equalsIgnoreCase("t");
             } else {
                 throw new IllegalStateException("Database boolean column is neither BOOLEAN nor BIT.");
             }
         }
     }
 
+    private static class PostgresStatementCreator extends StatementCreator {
+
+        @Override
+        public int getMaxBindParameters() {
+            return 65535;
+        }
+    }
+
     public PostgresDialect() {
+        setStatementCreator(new PostgresStatementCreator());
         for (int sqlType : com.w11k.lsql.converter.types.BooleanConverter.SQL_TYPES) {
             getConverterRegistry().addSqlToJavaConverter(new BooleanConverter(sqlType), true);
         }
@@ -59,4 +101,40 @@ public class PostgresDialect extends GenericDialect {
         return postgresMetaData.getBaseColumnName(columnIndex);
     }
 
+    @Override
+    public boolean isTransactionRequiredForStreaming() {
+        // pgjdbc ignores the fetch size in autocommit mode and reads the whole ResultSet
+        return true;
+    }
+
+    @Override
+    public Optional<String> getInListArrayParameterSql() {
+        return Optional.of("SELECT unnest(?)");
+    }
+
+    @Override
+    public String getArrayElementTypeName(int sqlType) {
+        switch (sqlType) {
+            case Types.SMALLINT:
+                return "int2";
+            case Types.INTEGER:
+                return "int4";
+            case Types.BIGINT:
+                return "int8";
+            case Types.REAL:
+                return "float4";
+            case Types.DOUBLE:
+                return "float8";
+            case Types.BIT:
+            case Types.BOOLEAN:
+                return "bool";
+            case Types.CHAR:
+            case Types.VARCHAR:
+            case Types.LONGVARCHAR:
+                return "varchar";
+            default:
+                return super.getArrayElementTypeName(sqlType);
+        }
+    }
+
 }
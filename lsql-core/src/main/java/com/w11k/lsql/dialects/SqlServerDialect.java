@@ -6,11 +6,53 @@ import com.w11k.lsql.Table;
 import java.sql.ResultSet;
 import java.sql.ResultSetMetaData;
 import java.sql.SQLException;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
 public class SqlServerDialect extends GenericDialect {
 
+    private static final Pattern SELECT_START = Pattern.compile(
+            "^(\\s*SELECT(\\s+DISTINCT)?)\\s", Pattern.CASE_INSENSITIVE);
+
+    private static class SqlServerStatementCreator extends StatementCreator {
+
+        SqlServerStatementCreator() {
+            super("[", "]");
+        }
+
+        /**
+         * Uses {@code TOP} for the first page and {@code OFFSET ... FETCH} otherwise. The latter
+         * requires an {@code ORDER BY} clause, an arbitrary order gets added if it is missing.
+         */
+        @Override
+        public String createLimitedSelect(String sql, long offset, long limit) {
+            String select = stripTrailingSemicolon(sql);
+            Matcher selectStart = SELECT_START.matcher(select);
+            if (offset == 0 && selectStart.find()) {
+                return selectStart.group(1) + " TOP (" + limit + ")" + select.substring(selectStart.end(1));
+            }
+            if (indexOfTopLevelOrderBy(select) < 0) {
+                select += "\nORDER BY (SELECT NULL)";
+            }
+            return createOffsetFetchSelect(select, offset, limit);
+        }
+
+        /**
+         * SQL Server accepts 2100 parameters, the driver uses one of them for sp_prepexec.
+         */
+        @Override
+        public int getMaxBindParameters() {
+            return 2099;
+        }
+
+        @Override
+        public int getMaxRowsPerInsert() {
+            return 1000;
+        }
+    }
+
     public SqlServerDialect() {
-        setStatementCreator(new StatementCreator("[", "]"));
+        setStatementCreator(new SqlServerStatementCreator());
     }
 
     public Optional<Object> extractGeneratedPk(Table table,
@@ -2,18 +2,23 @@ package com.w11k.lsql.dialects;
 
 import com.google.common.base.Function;
 import com.google.common.base.Joiner;
+import com.google.common.base.Strings;
 import com.google.common.collect.Lists;
 import com.w11k.lsql.Column;
 import com.w11k.lsql.LSql;
 import com.w11k.lsql.Table;
 import com.w11k.lsql.exceptions.DatabaseAccessException;
+import com.w11k.lsql.jdbc.PreparedStatementCache;
 
 import java.sql.PreparedStatement;
+import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
@@ -22,6 +27,29 @@ import static java.util.stream.Collectors.toList;
 
 public class StatementCreator {
 
+    private static final Pattern ORDER_BY = Pattern.compile("\\bORDER\\s+BY\\b", Pattern.CASE_INSENSITIVE);
+
+    private static final Pattern ROW_LIMIT = Pattern.compile("\\b(LIMIT|OFFSET|FETCH)\\b", Pattern.CASE_INSENSITIVE);
+
+    private static final Pattern FROM = Pattern.compile("\\bFROM\\b", Pattern.CASE_INSENSITIVE);
+
+    private static final Pattern WHERE = Pattern.compile("\\bWHERE\\b", Pattern.CASE_INSENSITIVE);
+
+    private static final Pattern END_OF_WHERE = Pattern.compile(
+            "\\b(GROUP\\s+BY|HAVING|WINDOW|UNION|INTERSECT|EXCEPT|LIMIT|OFFSET|FETCH)\\b", Pattern.CASE_INSENSITIVE);
+
+    private static final Pattern SELECT = Pattern.compile("^SELECT\\s+", Pattern.CASE_INSENSITIVE);
+
+    private static final Pattern COMMA = Pattern.compile(",");
+
+    private static final Pattern GROUP_BY = Pattern.compile("\\bGROUP\\s+BY\\b", Pattern.CASE_INSENSITIVE);
+
+    private static final Pattern SORT_ITEM = Pattern.compile(
+            "^(.+?)(\\s+(?:ASC|DESC))?(\\s+NULLS\\s+(?:FIRST|LAST))?$", Pattern.CASE_INSENSITIVE | Pattern.DOTALL);
+
+    private static final Pattern ROOT_MARKER_COLUMN = Pattern.compile(
+            "^(.+?)\\s+(?:AS\\s+)?\"\\s*/\\s*\"$", Pattern.CASE_INSENSITIVE | Pattern.DOTALL);
+
     private String escapeColumnSymbolLeft = "\"";
     private String escapeColumnSymbolRight = "\"";
 
@@ -42,11 +70,44 @@ public class StatementCreator {
     }
 
     public PreparedStatement createPreparedStatement(LSql lSql, String sqlString, boolean returnAutoGeneratedKeys) {
+        return createPreparedStatement(lSql, sqlString, returnAutoGeneratedKeys, sqlString);
+    }
+
+    /**
+     * @param source describes the statement in the reports of the
+     *               {@link com.w11k.lsql.jdbc.StatementLeakDetector}
+     */
+    public PreparedStatement createPreparedStatement(LSql lSql,
+                                                     String sqlString,
+                                                     boolean returnAutoGeneratedKeys,
+                                                     String source) {
         try {
-            if (returnAutoGeneratedKeys) {
-                return getConnection(lSql).prepareStatement(sqlString, Statement.RETURN_GENERATED_KEYS);
+            PreparedStatement ps;
+            PreparedStatementCache cache = lSql.getPreparedStatementCache();
+            if (cache.isEnabled()) {
+                ps = cache.prepare(getConnection(lSql), sqlString, returnAutoGeneratedKeys);
+            } else if (returnAutoGeneratedKeys) {
+                ps = getConnection(lSql).prepareStatement(sqlString, Statement.RETURN_GENERATED_KEYS);
             } else {
-                return getConnection(lSql).prepareStatement(sqlString);
+                ps = getConnection(lSql).prepareStatement(
+                        sqlString, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            }
+            lSql.getStatementLeakDetector().opened(ps, source);
+            return ps;
+        } catch (SQLException e) {
+            throw new DatabaseAccessException(e);
+        }
+    }
+
+    /**
+     * Signals that the caller is done with the statement. Cached statements are returned
+     * to the {@link PreparedStatementCache}, all others get closed.
+     */
+    public void releasePreparedStatement(LSql lSql, PreparedStatement ps) {
+        lSql.getStatementLeakDetector().released(ps);
+        try {
+            if (!lSql.getPreparedStatementCache().release(ps)) {
+                ps.close();
             }
         } catch (SQLException e) {
             throw new DatabaseAccessException(e);
@@ -62,6 +123,18 @@ public class StatementCreator {
         return createPreparedStatement(table.getlSql(), sql, false);
     }
 
+    /**
+     * Selects the primary key and the revision of {@code idCount} rows, used by
+     * {@link Table#insertAll(Iterable, int)}.
+     */
+    public PreparedStatement createRevisionsQueryStatement(Table table, int idCount) {
+        String sqlTableName = table.getSqlSchemaAndTableName();
+        String pkCol = getEscapedColumn(table.getlSql().identifierJavaToSql(table.getPrimaryKeyColumn().get()));
+        String sql = "SELECT " + pkCol + "," + getRevisionColumnSqlIdentifier(table) + " FROM " + sqlTableName;
+        sql += " WHERE " + pkCol + " IN (" + Joiner.on(",").join(Collections.nCopies(idCount, "?")) + ")";
+        return createPreparedStatement(table.getlSql(), sql, false);
+    }
+
     public PreparedStatement createInsertStatement(final Table table, List<String> columns) {
         String sqlTableName = table.getSqlSchemaAndTableName();
         String sql = "";
@@ -74,6 +147,45 @@ public class StatementCreator {
         return createPreparedStatement(table.getlSql(), sql, true);
     }
 
+    /**
+     * Creates an {@code INSERT INTO t(cols) VALUES (...),(...),...} statement for {@code rowCount}
+     * rows, used by {@link Table#insertAllMultiRow(Iterable)}. The parameters are ordered row by row.
+     */
+    public PreparedStatement createMultiRowInsertStatement(Table table, List<String> columns, int rowCount) {
+        String row = "(" + Joiner.on(",").join(Collections.nCopies(columns.size(), "?")) + ")";
+        String sql = "INSERT INTO " + table.getSqlSchemaAndTableName();
+        sql += "(";
+        sql += Joiner.on(",").join(createSqlColumnNames(table, columns));
+        sql += ")VALUES";
+        sql += Joiner.on(",").join(Collections.nCopies(rowCount, row));
+        sql += ";";
+        return createPreparedStatement(table.getlSql(), sql, true);
+    }
+
+    /**
+     * @return the maximum number of rows of a multi-row insert statement with {@code columnCount}
+     * columns, limited by {@link #getMaxBindParameters()} and {@link #getMaxRowsPerInsert()}
+     */
+    public int getMultiRowInsertChunkSize(int columnCount) {
+        int byParameters = getMaxBindParameters() / Math.max(1, columnCount);
+        return Math.max(1, Math.min(byParameters, getMaxRowsPerInsert()));
+    }
+
+    /**
+     * Returns the maximum number of parameters of one statement. The generic version returns
+     * the conservative value 2000.
+     */
+    public int getMaxBindParameters() {
+        return 2000;
+    }
+
+    /**
+     * Returns the maximum number of rows in the {@code VALUES} clause of one INSERT statement.
+     */
+    public int getMaxRowsPerInsert() {
+        return Integer.MAX_VALUE;
+    }
+
     public PreparedStatement createUpdateStatement(Table table, List<String> columns, List<String> whereColumns) {
         String sqlTableName = table.getSqlSchemaAndTableName();
         String sql = "UPDATE " + sqlTableName;
@@ -167,6 +279,247 @@ public class StatementCreator {
         return createPreparedStatement(table.getlSql(), sql, false);
     }
 
+    /**
+     * Restricts the rows of a SELECT statement, used by
+     * {@link com.w11k.lsql.statement.AbstractSqlStatement#page(long, long)}. The generic version
+     * appends {@code LIMIT ... OFFSET ...}.
+     *
+     * @param sql    the SELECT statement
+     * @param offset the number of rows to skip
+     * @param limit  the maximum number of rows
+     */
+    public String createLimitedSelect(String sql, long offset, long limit) {
+        String limited = stripTrailingSemicolon(sql) + "\nLIMIT " + limit;
+        if (offset > 0) {
+            limited += " OFFSET " + offset;
+        }
+        return limited;
+    }
+
+    /**
+     * Wraps a SELECT statement to count its rows, used by
+     * {@link com.w11k.lsql.statement.AbstractSqlStatement#count(java.util.Map)}. A trailing
+     * {@code ORDER BY} clause is removed.
+     */
+    public String createCountSelect(String sql) {
+        return "SELECT COUNT(*) FROM (\n" + stripTrailingOrderBy(stripTrailingSemicolon(sql)) + "\n) lsql_count";
+    }
+
+    /**
+     * Wraps a SELECT statement to check if it returns a row, used by
+     * {@link com.w11k.lsql.statement.AbstractSqlStatement#exists(java.util.Map)}.
+     */
+    public String createExistsSelect(String sql) {
+        String select = "SELECT 1 FROM (\n" + stripTrailingOrderBy(stripTrailingSemicolon(sql)) + "\n) lsql_exists";
+        return createLimitedSelect(select, 0, 1);
+    }
+
+    /**
+     * Restricts a tree SELECT statement to the rows of {@code limit} root entities after skipping
+     * {@code offset} root entities, used by
+     * {@link com.w11k.lsql.statement.AbstractSqlStatement#treePage(long, long)}. The expression of
+     * the root marker column ({@code ... AS "/"}) is the key of the root entities:
+     * <pre>
+     * SELECT ... FROM ... WHERE marker IN (
+     *     SELECT lsql_page.lsql_root FROM (
+     *         SELECT lsql_roots.lsql_root FROM (SELECT DISTINCT marker AS lsql_root FROM ... WHERE ...) lsql_roots
+     *         ORDER BY lsql_roots.lsql_root LIMIT ... OFFSET ...) lsql_page)
+     * AND (...)
+     * ORDER BY ...
+     * </pre>
+     * The root entities are paged in the order of the top-level {@code ORDER BY} clause of the
+     * statement. The items before the root marker expression become keys of the root entities,
+     * {@code MIN(...)} for ascending and {@code MAX(...)} for descending items, e.g.
+     * {@code ORDER BY t.name DESC, t.id} pages by {@code MAX(t.name) DESC, lsql_root}. These items
+     * must be expressions of the FROM clause, not aliases or positions of the select list. Without
+     * an {@code ORDER BY} clause, or if the statement has a {@code GROUP BY} clause, the root
+     * entities are ordered by the marker.
+     * <p/>
+     * The root page is selected with {@link #createLimitedSelect(String, long, long)}. The
+     * statement must not contain set operations like {@code UNION}.
+     *
+     * @throws IllegalArgumentException if the statement has no root marker column
+     */
+    public String createRootPageSelect(String sql, long offset, long limit) {
+        String select = stripTrailingSemicolon(sql);
+        int orderBy = indexOfTopLevelOrderBy(select);
+        String orderByClause = "";
+        if (orderBy >= 0) {
+            orderByClause = "\n" + select.substring(orderBy);
+            select = select.substring(0, orderBy).trim();
+        }
+
+        int from = indexOfTopLevel(select, FROM, 0);
+        String rootMarker = from < 0 ? null : findRootMarkerExpression(select.substring(0, from));
+        if (rootMarker == null) {
+            throw new IllegalArgumentException("Unable to find the root marker column (... AS \"/\") in the statement");
+        }
+
+        int where = indexOfTopLevel(select, WHERE, from);
+        int endOfWhere = indexOfTopLevel(select, END_OF_WHERE, Math.max(from, where));
+        if (endOfWhere < 0) {
+            endOfWhere = select.length();
+        }
+        String fromClause = select.substring(from);
+        List<String> rootKeys = Lists.newArrayList();
+        List<String> rootOrder = Lists.newArrayList();
+        if (orderBy >= 0 && indexOfTopLevel(fromClause, GROUP_BY, 0) < 0) {
+            createRootOrder(orderByClause.trim(), rootMarker, rootKeys, rootOrder);
+        } else {
+            rootOrder.add("lsql_roots.lsql_root");
+        }
+        String roots = rootKeys.isEmpty()
+                ? "SELECT DISTINCT " + rootMarker + " AS lsql_root " + fromClause
+                : "SELECT " + rootMarker + " AS lsql_root, " + Joiner.on(", ").join(rootKeys) + " "
+                + fromClause + " GROUP BY " + rootMarker;
+        String rootPage = createLimitedSelect("SELECT lsql_roots.lsql_root FROM (" + roots + ") lsql_roots ORDER BY "
+                + Joiner.on(", ").join(rootOrder), offset, limit);
+        String condition = rootMarker + " IN (SELECT lsql_page.lsql_root FROM (\n" + rootPage + "\n) lsql_page)";
+
+        String head;
+        if (where >= 0) {
+            int whereEnd = where + "WHERE".length();
+            head = select.substring(0, whereEnd) + " " + condition
+                    + "\nAND (" + select.substring(whereEnd, endOfWhere).trim() + ")";
+        } else {
+            head = select.substring(0, endOfWhere).trim() + "\nWHERE " + condition;
+        }
+        String tail = select.substring(endOfWhere).trim();
+        return head + (tail.isEmpty() ? "" : "\n" + tail) + orderByClause;
+    }
+
+    /**
+     * Appends the SQL:2008 {@code OFFSET ... ROWS FETCH NEXT ... ROWS ONLY} clause.
+     */
+    protected String createOffsetFetchSelect(String sql, long offset, long limit) {
+        return stripTrailingSemicolon(sql) + "\nOFFSET " + offset + " ROWS FETCH NEXT " + limit + " ROWS ONLY";
+    }
+
+    /**
+     * @return the position of the last {@code ORDER BY} outside of parentheses, quotes and
+     * comments or -1
+     */
+    protected int indexOfTopLevelOrderBy(String sql) {
+        int last = -1;
+        int next = indexOfTopLevel(sql, ORDER_BY, 0);
+        while (next >= 0) {
+            last = next;
+            next = indexOfTopLevel(sql, ORDER_BY, next + 1);
+        }
+        return last;
+    }
+
+    /**
+     * @return the position of the first match at or after {@code start} that is outside of
+     * parentheses, quotes and comments or -1
+     */
+    protected int indexOfTopLevel(String sql, Pattern pattern, int start) {
+        Matcher matcher = pattern.matcher(sql);
+        int depth = 0;
+        int i = 0;
+        while (i < sql.length()) {
+            char c = sql.charAt(i);
+            if (c == '\'' || c == '"') {
+                int end = sql.indexOf(c, i + 1);
+                i = end < 0 ? sql.length() : end + 1;
+                continue;
+            } else if (sql.startsWith("/*", i)) {
+                int end = sql.indexOf("*/", i + 2);
+                i = end < 0 ? sql.length() : end + 2;
+                continue;
+            } else if (sql.startsWith("--", i)) {
+                int end = sql.indexOf('\n', i);
+                i = end < 0 ? sql.length() : end + 1;
+                continue;
+            } else if (c == '(') {
+                depth++;
+            } else if (c == ')') {
+                depth--;
+            } else if (depth == 0 && i >= start && matcher.region(i, sql.length()).lookingAt()
+                    && (i == 0 || !Character.isLetterOrDigit(c) || !Character.isLetterOrDigit(sql.charAt(i - 1)))) {
+                return i;
+            }
+            i++;
+        }
+        return -1;
+    }
+
+    /**
+     * Adds the aggregated keys and the sort items of the root entities, see
+     * {@link #createRootPageSelect(String, long, long)}.
+     *
+     * @param orderByClause the top-level ORDER BY clause of the statement
+     */
+    private void createRootOrder(String orderByClause, String rootMarker, List<String> rootKeys, List<String> rootOrder) {
+        String remaining = ORDER_BY.matcher(orderByClause).replaceFirst("").trim();
+        String marker = normalizeWhitespace(rootMarker);
+        String markerOrder = "lsql_roots.lsql_root";
+        while (!remaining.isEmpty()) {
+            int comma = indexOfTopLevel(remaining, COMMA, 0);
+            String item = (comma < 0 ? remaining : remaining.substring(0, comma)).trim();
+            remaining = comma < 0 ? "" : remaining.substring(comma + 1).trim();
+
+            Matcher matcher = SORT_ITEM.matcher(item);
+            if (!matcher.matches()) {
+                continue;
+            }
+            String expression = matcher.group(1).trim();
+            String direction = Strings.nullToEmpty(matcher.group(2));
+            String suffix = direction + Strings.nullToEmpty(matcher.group(3));
+            if (normalizeWhitespace(expression).equalsIgnoreCase(marker)) {
+                // the marker identifies the root entity, the following items do not matter
+                markerOrder += suffix;
+                break;
+            }
+            String key = "lsql_order" + rootKeys.size();
+            boolean descending = direction.trim().equalsIgnoreCase("DESC");
+            rootKeys.add((descending ? "MAX(" : "MIN(") + expression + ") AS " + key);
+            rootOrder.add("lsql_roots." + key + suffix);
+        }
+        rootOrder.add(markerOrder);
+    }
+
+    private static String normalizeWhitespace(String sql) {
+        return sql.trim().replaceAll("\\s+", " ");
+    }
+
+    /**
+     * @param selectList the SELECT clause up to the FROM keyword
+     * @return the expression of the column with the alias "/" or {@code null}
+     */
+    private String findRootMarkerExpression(String selectList) {
+        String remaining = SELECT.matcher(selectList.trim()).replaceFirst("");
+        while (!remaining.isEmpty()) {
+            int comma = indexOfTopLevel(remaining, COMMA, 0);
+            String item = (comma < 0 ? remaining : remaining.substring(0, comma)).trim();
+            Matcher matcher = ROOT_MARKER_COLUMN.matcher(item);
+            if (matcher.matches()) {
+                return matcher.group(1).trim();
+            }
+            remaining = comma < 0 ? "" : remaining.substring(comma + 1).trim();
+        }
+        return null;
+    }
+
+    /**
+     * Removes the top-level {@code ORDER BY} clause unless it is followed by a row limit.
+     */
+    protected String stripTrailingOrderBy(String sql) {
+        int orderBy = indexOfTopLevelOrderBy(sql);
+        if (orderBy < 0 || ROW_LIMIT.matcher(sql.substring(orderBy)).find()) {
+            return sql;
+        }
+        return sql.substring(0, orderBy).trim();
+    }
+
+    protected String stripTrailingSemicolon(String sql) {
+        String trimmed = sql.trim();
+        while (trimmed.endsWith(";")) {
+            trimmed = trimmed.substring(0, trimmed.length() - 1).trim();
+        }
+        return trimmed;
+    }
+
     private String getRevisionColumnSqlIdentifier(Table table) {
         return getEscapedColumn(
                 table.getlSql().identifierJavaToSql(table.getRevisionColumn().get().getJavaColumnName()));
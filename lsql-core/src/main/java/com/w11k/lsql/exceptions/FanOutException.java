@@ -0,0 +1,13 @@
+package com.w11k.lsql.exceptions;
+
+public class FanOutException extends DatabaseAccessException {
+
+    public FanOutException(String msg) {
+        super(msg);
+    }
+
+    public FanOutException(String msg, Exception cause) {
+        super(msg, cause);
+    }
+
+}
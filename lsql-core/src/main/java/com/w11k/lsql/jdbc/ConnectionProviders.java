@@ -9,16 +9,16 @@ public final class ConnectionProviders {
     /**
      * Creates a connection provider that always return the same {@code Connection}
      * instance. Mostly useful for tests.
+     * <p/>
+     * The connection is never closed by LSql. It is not safe to use with async operations,
+     * e.g. {@link com.w11k.lsql.LSql#executeAsync(Callable)}, since concurrent tasks would
+     * share the connection.
      *
      * @param connectionInstance The connection instance to use
      * @return the provider
      */
     public static Callable<Connection> fromInstance(final Connection connectionInstance) {
-        return new Callable<Connection>() {
-            public Connection call() throws Exception {
-                return connectionInstance;
-            }
-        };
+        return new SharedConnectionProvider(connectionInstance);
     }
 
     /**
@@ -35,4 +35,25 @@ public final class ConnectionProviders {
             }
         };
     }
+
+    /**
+     * @return true if the provider was created with {@link #fromInstance(Connection)}
+     */
+    public static boolean isSharedConnection(Callable<Connection> connectionProvider) {
+        return connectionProvider instanceof SharedConnectionProvider;
+    }
+
+    private static final class SharedConnectionProvider implements Callable<Connection> {
+
+        private final Connection connection;
+
+        SharedConnectionProvider(Connection connection) {
+            this.connection = connection;
+        }
+
+        @Override
+        public Connection call() throws Exception {
+            return this.connection;
+        }
+    }
 }
@@ -0,0 +1,167 @@
+package com.w11k.lsql.jdbc;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bounded executor for blocking JDBC work. At most {@code poolSize} tasks run concurrently, at
+ * most {@code queueCapacity} tasks wait. Further tasks are rejected, i.e. the returned future
+ * completes with a {@link RejectedExecutionException}.
+ * <p/>
+ * The executor records the queue depth and the time tasks waited before they started.
+ */
+public class JdbcExecutor {
+
+    private final ThreadPoolExecutor executor;
+
+    private final int queueCapacity;
+
+    private final AtomicLong submittedCount = new AtomicLong();
+
+    private final AtomicLong completedCount = new AtomicLong();
+
+    private final AtomicLong rejectedCount = new AtomicLong();
+
+    private final AtomicLong totalWaitTimeNanos = new AtomicLong();
+
+    private final AtomicLong maxWaitTimeNanos = new AtomicLong();
+
+    /**
+     * @param threadFactory used to create the worker threads, e.g. a virtual thread factory on
+     *                      newer JVMs. {@code null} creates daemon threads.
+     */
+    public JdbcExecutor(int poolSize, int queueCapacity, ThreadFactory threadFactory) {
+        this.queueCapacity = queueCapacity;
+        this.executor = new ThreadPoolExecutor(
+                poolSize,
+                poolSize,
+                60,
+                TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(queueCapacity),
+                threadFactory != null ? threadFactory : new DaemonThreadFactory());
+        this.executor.allowCoreThreadTimeOut(true);
+    }
+
+    public <T> CompletableFuture<T> submit(Callable<T> task) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        long submitted = System.nanoTime();
+        this.submittedCount.incrementAndGet();
+        try {
+            this.executor.execute(() -> {
+                recordWaitTime(System.nanoTime() - submitted);
+                if (future.isDone()) {
+                    // cancelled while queued
+                    this.completedCount.incrementAndGet();
+                    return;
+                }
+                // count before completing, callbacks might read the metrics
+                T result;
+                try {
+                    result = task.call();
+                } catch (Throwable e) {
+                    this.completedCount.incrementAndGet();
+                    future.completeExceptionally(e);
+                    return;
+                }
+                this.completedCount.incrementAndGet();
+                future.complete(result);
+            });
+        } catch (RejectedExecutionException e) {
+            this.submittedCount.decrementAndGet();
+            this.rejectedCount.incrementAndGet();
+            future.completeExceptionally(e);
+        }
+        return future;
+    }
+
+    public int getPoolSize() {
+        return this.executor.getMaximumPoolSize();
+    }
+
+    public int getQueueCapacity() {
+        return this.queueCapacity;
+    }
+
+    /**
+     * @return the number of tasks waiting for a thread
+     */
+    public int getQueueDepth() {
+        return this.executor.getQueue().size();
+    }
+
+    /**
+     * @return the number of tasks currently running
+     */
+    public int getActiveCount() {
+        return this.executor.getActiveCount();
+    }
+
+    public long getSubmittedCount() {
+        return this.submittedCount.get();
+    }
+
+    public long getCompletedCount() {
+        return this.completedCount.get();
+    }
+
+    public long getRejectedCount() {
+        return this.rejectedCount.get();
+    }
+
+    /**
+     * @return the sum of the times tasks waited in the queue before they started
+     */
+    public long getTotalWaitTimeNanos() {
+        return this.totalWaitTimeNanos.get();
+    }
+
+    public long getMaxWaitTimeNanos() {
+        return this.maxWaitTimeNanos.get();
+    }
+
+    /**
+     * Stops accepting tasks. Queued tasks are still executed.
+     */
+    public void shutdown() {
+        this.executor.shutdown();
+    }
+
+    public boolean isShutdown() {
+        return this.executor.isShutdown();
+    }
+
+    private void recordWaitTime(long nanos) {
+        this.totalWaitTimeNanos.addAndGet(nanos);
+        this.maxWaitTimeNanos.accumulateAndGet(nanos, Math::max);
+    }
+
+    @Override
+    public String toString() {
+        return "JdbcExecutor{" +
+                "poolSize=" + getPoolSize() +
+                ", active=" + getActiveCount() +
+                ", queueDepth=" + getQueueDepth() +
+                ", rejected=" + getRejectedCount() +
+                '}';
+    }
+
+    private static final class DaemonThreadFactory implements ThreadFactory {
+
+        private final AtomicInteger threadCount = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, "lsql-jdbc-" + this.threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+
+}
@@ -0,0 +1,301 @@
+package com.w11k.lsql.jdbc;
+
+import com.google.common.cache.CacheStats;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.ref.WeakReference;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.WeakHashMap;
+
+/**
+ * Caches {@link PreparedStatement} instances per {@link Connection} and SQL string.
+ * <p/>
+ * A statement obtained with {@link #prepare(Connection, String, boolean)} is checked out and
+ * will not be handed out again until it was passed to {@link #release(PreparedStatement)}.
+ * Released statements are kept in a per-connection LRU list. Statements that fall out of the
+ * list are closed.
+ * <p/>
+ * The lists are keyed by connection identity. Idle statements reference their connection, so
+ * the lists are never collected by the garbage collector. Lists of closed connections are
+ * dropped when {@link #prepare(Connection, String, boolean)} misses the cache.
+ * A connection that is taken out of use without being closed must be passed to
+ * {@link #evict(Connection)}.
+ * <p/>
+ * The cache only pays off if the connection provider returns the same {@link Connection}
+ * instance for subsequent calls, e.g. a transaction-bound connection.
+ */
+public class PreparedStatementCache {
+
+    private final Logger logger = LoggerFactory.getLogger(getClass());
+
+    private final int maxSizePerConnection;
+
+    private final Map<Connection, StatementList> idleStatements = new IdentityHashMap<>();
+
+    private final Map<PreparedStatement, CheckedOutStatement> checkedOutStatements = new WeakHashMap<>();
+
+    private long hitCount = 0;
+
+    private long missCount = 0;
+
+    private long prepareFailureCount = 0;
+
+    private long totalPrepareTimeNanos = 0;
+
+    private long evictionCount = 0;
+
+    public PreparedStatementCache(int maxSizePerConnection) {
+        this.maxSizePerConnection = maxSizePerConnection;
+    }
+
+    public boolean isEnabled() {
+        return this.maxSizePerConnection > 0;
+    }
+
+    public int getMaxSizePerConnection() {
+        return this.maxSizePerConnection;
+    }
+
+    /**
+     * Returns an idle cached statement for the connection and SQL string or prepares a new one.
+     * The statement is checked out until it gets released.
+     */
+    public PreparedStatement prepare(Connection connection,
+                                     String sqlString,
+                                     boolean returnAutoGeneratedKeys) throws SQLException {
+
+        Key key = new Key(sqlString, returnAutoGeneratedKeys);
+        synchronized (this) {
+            StatementList statements = this.idleStatements.get(connection);
+            if (statements != null) {
+                PreparedStatement ps = statements.remove(key);
+                if (ps != null && !ps.isClosed()) {
+                    this.hitCount++;
+                    this.checkedOutStatements.put(ps, new CheckedOutStatement(connection, key));
+                    return ps;
+                }
+            }
+        }
+        this.purgeClosedConnections();
+
+        long start = System.nanoTime();
+        PreparedStatement ps;
+        try {
+            if (returnAutoGeneratedKeys) {
+                ps = connection.prepareStatement(sqlString, Statement.RETURN_GENERATED_KEYS);
+            } else {
+                ps = connection.prepareStatement(sqlString, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            }
+        } catch (SQLException e) {
+            synchronized (this) {
+                this.prepareFailureCount++;
+            }
+            throw e;
+        }
+        long duration = System.nanoTime() - start;
+
+        synchronized (this) {
+            this.missCount++;
+            this.totalPrepareTimeNanos += duration;
+            this.checkedOutStatements.put(ps, new CheckedOutStatement(connection, key));
+        }
+        return ps;
+    }
+
+    /**
+     * Returns a checked out statement to the cache.
+     *
+     * @return {@code false} if the statement was not created by this cache
+     */
+    public boolean release(PreparedStatement ps) throws SQLException {
+        CheckedOutStatement checkedOut;
+        synchronized (this) {
+            checkedOut = this.checkedOutStatements.remove(ps);
+        }
+        if (checkedOut == null) {
+            return false;
+        }
+
+        Connection connection = checkedOut.connection.get();
+        if (connection == null || connection.isClosed() || ps.isClosed()) {
+            return true;
+        }
+
+        // reset the per-execution state
+        try {
+            ps.clearParameters();
+            ps.clearBatch();
+            ps.setQueryTimeout(0);
+            ps.setFetchSize(0);
+            ps.setMaxRows(0);
+        } catch (SQLException e) {
+            // the statement is no longer checked out and must not leak
+            closeQuietly(ps);
+            throw e;
+        }
+        synchronized (this) {
+            StatementList statements = this.idleStatements.get(connection);
+            if (statements == null) {
+                statements = new StatementList();
+                this.idleStatements.put(connection, statements);
+            }
+            PreparedStatement previous = statements.put(checkedOut.key, ps);
+            if (previous != null && previous != ps) {
+                // the same SQL was checked out twice, keep the most recent one
+                this.evictionCount++;
+                closeQuietly(previous);
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Closes and removes all idle statements. Checked out statements are not affected.
+     */
+    public synchronized void clear() {
+        for (StatementList statements : this.idleStatements.values()) {
+            statements.values().forEach(this::closeQuietly);
+        }
+        this.idleStatements.clear();
+    }
+
+    /**
+     * Closes and removes the idle statements of the connection. Should be called before a
+     * connection is closed or returned to a pool.
+     */
+    public synchronized void evict(Connection connection) {
+        StatementList statements = this.idleStatements.remove(connection);
+        if (statements != null) {
+            statements.values().forEach(this::closeQuietly);
+        }
+    }
+
+    public synchronized int getConnectionCount() {
+        return this.idleStatements.size();
+    }
+
+    public synchronized int getIdleStatementCount() {
+        int count = 0;
+        for (StatementList statements : this.idleStatements.values()) {
+            count += statements.size();
+        }
+        return count;
+    }
+
+    /**
+     * Returns the cache statistics. Loads are prepare calls, their time is the time spent in
+     * {@link Connection#prepareStatement(String)}.
+     */
+    public synchronized CacheStats stats() {
+        return new CacheStats(
+                this.hitCount,
+                this.missCount,
+                this.missCount,
+                this.prepareFailureCount,
+                this.totalPrepareTimeNanos,
+                this.evictionCount);
+    }
+
+    /**
+     * Drops the lists of closed connections. The connections are checked without holding the
+     * lock, so a slow {@link Connection#isClosed()} does not block other threads.
+     */
+    private void purgeClosedConnections() {
+        List<Connection> connections;
+        synchronized (this) {
+            connections = new ArrayList<>(this.idleStatements.keySet());
+        }
+        List<Connection> closedConnections = new ArrayList<>();
+        for (Connection connection : connections) {
+            boolean closed;
+            try {
+                closed = connection.isClosed();
+            } catch (SQLException e) {
+                closed = true;
+            }
+            if (closed) {
+                closedConnections.add(connection);
+            }
+        }
+        closedConnections.forEach(this::evict);
+    }
+
+    private void closeQuietly(PreparedStatement ps) {
+        try {
+            ps.close();
+        } catch (SQLException e) {
+            this.logger.debug("Failed to close cached statement", e);
+        }
+    }
+
+    private final class StatementList extends LinkedHashMap<Key, PreparedStatement> {
+
+        StatementList() {
+            super(16, 0.75f, true);
+        }
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Key, PreparedStatement> eldest) {
+            if (this.size() > PreparedStatementCache.this.maxSizePerConnection) {
+                PreparedStatementCache.this.evictionCount++;
+                closeQuietly(eldest.getValue());
+                return true;
+            }
+            return false;
+        }
+    }
+
+    private static final class CheckedOutStatement {
+
+        final WeakReference<Connection> connection;
+
+        final Key key;
+
+        CheckedOutStatement(Connection connection, Key key) {
+            this.connection = new WeakReference<>(connection);
+            this.key = key;
+        }
+    }
+
+    private static final class Key {
+
+        final String sqlString;
+
+        final boolean returnAutoGeneratedKeys;
+
+        Key(String sqlString, boolean returnAutoGeneratedKeys) {
+            this.sqlString = sqlString;
+            this.returnAutoGeneratedKeys = returnAutoGeneratedKeys;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (o == null || getClass() != o.getClass()) {
+                return false;
+            }
+            Key key = (Key) o;
+            return this.returnAutoGeneratedKeys == key.returnAutoGeneratedKeys
+                    && this.sqlString.equals(key.sqlString);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(this.sqlString, this.returnAutoGeneratedKeys);
+        }
+    }
+
+}
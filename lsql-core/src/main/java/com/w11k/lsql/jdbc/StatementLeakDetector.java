@@ -0,0 +1,116 @@
+package com.w11k.lsql.jdbc;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Maps;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.sql.Statement;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+/**
+ * Tracks statements between their creation and their release. Statements that are still open
+ * after the configured threshold are reported once with the stack trace of their creation.
+ * <p/>
+ * Disabled if the threshold is 0. Tracking records a stack trace per statement, so this is
+ * meant for development and testing.
+ * <p/>
+ * There is no background thread. {@link #reportLeaks()} runs whenever a statement is opened,
+ * so a leak is only logged once the application opens another statement. Applications that
+ * can be idle for a long time should call {@link #reportLeaks()} periodically, e.g. from a
+ * {@link java.util.concurrent.ScheduledExecutorService}.
+ */
+public class StatementLeakDetector {
+
+    private final Logger logger = LoggerFactory.getLogger(getClass());
+
+    private final long thresholdMillis;
+
+    private final Map<Statement, OpenStatement> openStatements = new WeakHashMap<>();
+
+    public StatementLeakDetector(long thresholdMillis) {
+        this.thresholdMillis = thresholdMillis;
+    }
+
+    public boolean isEnabled() {
+        return this.thresholdMillis > 0;
+    }
+
+    /**
+     * Starts tracking the statement and reports the statements that exceeded the threshold.
+     */
+    public void opened(Statement statement, String source) {
+        if (!this.isEnabled()) {
+            return;
+        }
+        OpenStatement openStatement = new OpenStatement(source, new Throwable("Statement created here"));
+        synchronized (this) {
+            this.openStatements.put(statement, openStatement);
+        }
+        this.reportLeaks();
+    }
+
+    public void released(Statement statement) {
+        if (!this.isEnabled()) {
+            return;
+        }
+        synchronized (this) {
+            this.openStatements.remove(statement);
+        }
+    }
+
+    /**
+     * Returns the number of open statements per source, e.g. {@code file.sql#statementName}.
+     */
+    public synchronized Map<String, Integer> getOpenStatementCounts() {
+        Map<String, Integer> counts = Maps.newTreeMap();
+        for (OpenStatement openStatement : this.openStatements.values()) {
+            counts.merge(openStatement.source, 1, Integer::sum);
+        }
+        return counts;
+    }
+
+    /**
+     * Logs all statements that exceeded the threshold and were not reported before.
+     *
+     * @return the sources of the newly reported statements
+     */
+    public List<String> reportLeaks() {
+        if (!this.isEnabled()) {
+            return ImmutableList.of();
+        }
+
+        ImmutableList.Builder<String> leaked = ImmutableList.builder();
+        long now = System.currentTimeMillis();
+        synchronized (this) {
+            for (OpenStatement openStatement : this.openStatements.values()) {
+                if (!openStatement.reported && now - openStatement.createdAt >= this.thresholdMillis) {
+                    openStatement.reported = true;
+                    leaked.add(openStatement.source);
+                    this.logger.warn("Statement '" + openStatement.source + "' is still open after "
+                            + (now - openStatement.createdAt) + "ms", openStatement.creationStack);
+                }
+            }
+        }
+        return leaked.build();
+    }
+
+    private static final class OpenStatement {
+
+        final String source;
+
+        final Throwable creationStack;
+
+        final long createdAt = System.currentTimeMillis();
+
+        boolean reported = false;
+
+        OpenStatement(String source, Throwable creationStack) {
+            this.source = source;
+            this.creationStack = creationStack;
+        }
+    }
+
+}
@@ -9,48 +9,77 @@ import com.w11k.lsql.LSql;
 import com.w11k.lsql.ResultSetColumn;
 import com.w11k.lsql.ResultSetWithColumns;
 import com.w11k.lsql.converter.Converter;
+import com.w11k.lsql.exceptions.DatabaseAccessException;
+import io.reactivex.Emitter;
+import io.reactivex.Flowable;
 import io.reactivex.Observable;
 import io.reactivex.functions.Function;
-import io.reactivex.subjects.Subject;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.ResultSetMetaData;
 import java.sql.SQLException;
 import java.util.*;
+import java.util.concurrent.Callable;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 import static com.google.common.base.Optional.absent;
 import static com.google.common.base.Optional.of;
 
-public abstract class AbstractQuery<T> {
+/**
+ * Base class for queries. A query owns its {@link PreparedStatement}. The terminal operations
+ * {@link #toList()}, {@link #first()} and {@link #toTree()} close the query, as does closing
+ * the cursor of {@link #iterator()} or {@link #stream()} and the end of an {@link #rx()}
+ * subscription. Flowables only close the ResultSet of each subscription. Call {@link #close()}
+ * if the query is used with {@link #flowable()} or {@link #createResultSetWithColumns()}.
+ */
+public abstract class AbstractQuery<T> implements AutoCloseable {
 
     private final Logger logger = LoggerFactory.getLogger(getClass());
 
     private final LSql lSql;
 
-    private final PreparedStatement preparedStatement;
+    private PreparedStatement preparedStatement;
+
+    private Callable<PreparedStatement> preparedStatementFactory;
+
+    private Integer pendingQueryTimeout;
+
+    private Integer pendingFetchSize;
 
     private Map<String, Converter> converters = Maps.newHashMap();
 
     private boolean ignoreDuplicateColumns = false;
 
+    private ResultSet currentResultSet;
+
+    private boolean closed = false;
+
+    private DecoderPlanCache decoderPlanCache;
+
+    private ResultSetDecoderPlan currentDecoderPlan;
+
+    private QueryResultCache.Lookup resultCacheLookup;
+
+    /**
+     * @param preparedStatement the statement, or {@code null} if it is created on first use, see
+     *                          {@link #setPreparedStatementFactory(Callable)}
+     */
     public AbstractQuery(LSql lSql, PreparedStatement preparedStatement, Map<String, Converter> outConverters) {
         this.lSql = lSql;
         this.preparedStatement = preparedStatement;
 
         if (outConverters != null) {
-            this.setConverters(outConverters);
+            // copy, the map might be shared with other queries of the same statement
+            this.converters.putAll(outConverters);
         }
 
-        Integer defaultQueryTimeoutInSeconds = lSql.getConfig().getDefaultQueryTimeoutInSeconds();
-        if (defaultQueryTimeoutInSeconds != null) {
-            try {
-                preparedStatement.setQueryTimeout(defaultQueryTimeoutInSeconds);
-            } catch (SQLException e) {
-                throw new RuntimeException(e);
-            }
+        if (preparedStatement != null) {
+            applyDefaults(preparedStatement);
         }
     }
 
@@ -63,8 +92,52 @@ public abstract class AbstractQuery<T> {
         return this;
     }
 
+    /**
+     * Returns the statement of this query. A deferred statement gets created by this call.
+     */
     public PreparedStatement getPreparedStatement() {
-        return preparedStatement;
+        if (this.preparedStatement == null && this.preparedStatementFactory != null) {
+            if (this.closed) {
+                throw new IllegalStateException("Query is already closed");
+            }
+            PreparedStatement ps;
+            try {
+                ps = this.preparedStatementFactory.call();
+            } catch (SQLException e) {
+                throw new DatabaseAccessException(e);
+            } catch (RuntimeException e) {
+                throw e;
+            } catch (Exception e) {
+                throw new RuntimeException(e);
+            }
+            this.preparedStatementFactory = null;
+            this.preparedStatement = ps;
+            try {
+                applyDefaults(ps);
+                if (this.pendingQueryTimeout != null) {
+                    ps.setQueryTimeout(this.pendingQueryTimeout);
+                }
+                if (this.pendingFetchSize != null) {
+                    ps.setFetchSize(this.pendingFetchSize);
+                }
+            } catch (SQLException e) {
+                throw new DatabaseAccessException(e);
+            }
+        }
+        return this.preparedStatement;
+    }
+
+    /**
+     * Defers the creation of the statement until the query gets executed. Only valid if the query
+     * was created without a statement. Lets a {@link QueryResultCache} hit skip the connection and
+     * the statement entirely.
+     */
+    public AbstractQuery<T> setPreparedStatementFactory(Callable<PreparedStatement> preparedStatementFactory) {
+        if (this.preparedStatement != null) {
+            throw new IllegalStateException("The query already has a PreparedStatement");
+        }
+        this.preparedStatementFactory = preparedStatementFactory;
+        return this;
     }
 
     public Map<String, Converter> getConverters() {
@@ -81,7 +154,27 @@ public abstract class AbstractQuery<T> {
         return this;
     }
 
+    /**
+     * Sets the cache used to reuse the column setup between executions of the same statement.
+     */
+    public AbstractQuery<T> setDecoderPlanCache(DecoderPlanCache decoderPlanCache) {
+        this.decoderPlanCache = decoderPlanCache;
+        return this;
+    }
+
+    /**
+     * Serves {@link #toList()} from the {@link QueryResultCache} and caches the result on a miss.
+     */
+    public AbstractQuery<T> setResultCacheLookup(QueryResultCache.Lookup resultCacheLookup) {
+        this.resultCacheLookup = resultCacheLookup;
+        return this;
+    }
+
     public AbstractQuery<T> setQueryTimeout(int seconds) {
+        if (this.preparedStatement == null) {
+            this.pendingQueryTimeout = seconds;
+            return this;
+        }
         try {
             this.preparedStatement.setQueryTimeout(seconds);
             return this;
@@ -90,25 +183,162 @@ public abstract class AbstractQuery<T> {
         }
     }
 
+    /**
+     * Sets the number of rows the driver fetches per round trip. Required for {@link #flowable()}
+     * to run in constant memory.
+     */
+    public AbstractQuery<T> setFetchSize(int rows) {
+        if (this.preparedStatement == null) {
+            this.pendingFetchSize = rows;
+            return this;
+        }
+        try {
+            this.preparedStatement.setFetchSize(rows);
+            return this;
+        } catch (SQLException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * Executes the query and returns a cursor that reads the rows on demand. Closing the cursor
+     * closes the query.
+     */
+    public QueryCursor<T> iterator() {
+        try {
+            return openCursor(true);
+        } catch (SQLException e) {
+            this.close();
+            throw new DatabaseAccessException(e);
+        } catch (RuntimeException e) {
+            this.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Executes the query and returns a sequential Stream backed by {@link #iterator()}. Closing the
+     * Stream closes the query.
+     */
+    public Stream<T> stream() {
+        QueryCursor<T> cursor = iterator();
+        Spliterator<T> spliterator = Spliterators.spliteratorUnknownSize(
+                cursor, Spliterator.ORDERED | Spliterator.NONNULL);
+        return StreamSupport.stream(spliterator, false).onClose(cursor::close);
+    }
+
     public List<T> toList() {
-        return rx().toList().blockingGet();
+        if (this.resultCacheLookup != null) {
+            return toListWithResultCache();
+        }
+        return readList();
     }
 
     public <R> List<R> toList(Function<T, R> mapper) {
-        return rx().map(mapper).toList().blockingGet();
+        if (this.resultCacheLookup != null) {
+            List<T> list = toListWithResultCache();
+            List<R> mapped = new ArrayList<>(list.size());
+            try {
+                for (T entity : list) {
+                    mapped.add(mapper.apply(entity));
+                }
+            } catch (RuntimeException e) {
+                throw e;
+            } catch (Exception e) {
+                throw new RuntimeException(e);
+            }
+            return mapped;
+        }
+        try (QueryCursor<T> cursor = iterator()) {
+            List<R> list = createListForCurrentPlan();
+            while (cursor.hasNext()) {
+                list.add(mapper.apply(cursor.next()));
+            }
+            return list;
+        } catch (RuntimeException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private List<T> readList() {
+        try (QueryCursor<T> cursor = iterator()) {
+            List<T> list = createListForCurrentPlan();
+            while (cursor.hasNext()) {
+                list.add(cursor.next());
+            }
+            return list;
+        }
+    }
+
+    private List<T> toListWithResultCache() {
+        // results read with other converters differ
+        Object resultType = Arrays.asList(getDecoderPlanKey(), Maps.newHashMap(this.converters));
+        List<T> cached = this.resultCacheLookup.get(resultType);
+        if (cached != null) {
+            // the statement is not executed
+            this.close();
+            List<T> list = new ArrayList<>(cached.size());
+            for (T entity : cached) {
+                list.add(copyEntity(entity));
+            }
+            return list;
+        }
+        // reads inside a transaction might see uncommitted writes
+        boolean cacheable = isAutoCommit();
+        List<T> list = readList();
+        if (cacheable) {
+            this.resultCacheLookup.put(resultType, list, this::copyEntity);
+        }
+        return list;
     }
 
     public abstract List<T> toTree();
 
     /**
-     * Executes the query and returns the first row in the result set. Return absent() if the result set is empty.
+     * Executes the query and reads all rows into a {@link ColumnarResult}. Numeric and boolean
+     * columns are stored in primitive arrays. Closes the query.
+     */
+    public ColumnarResult toColumns() {
+        try {
+            ResultSetWithColumns resultSetWithColumns = createResultSetWithColumns();
+            ResultSetDecoderPlan plan = this.currentDecoderPlan;
+            ColumnarResult.Builder builder = new ColumnarResult.Builder(
+                    this.lSql,
+                    resultSetWithColumns.getColumnsByLabel().values(),
+                    plan != null ? plan.getRowCountHint() : 0);
+
+            ResultSet resultSet = resultSetWithColumns.getResultSet();
+            while (resultSet.next()) {
+                builder.readRow(resultSet);
+            }
+            ColumnarResult result = builder.build();
+            if (plan != null) {
+                plan.setRowCountHint(result.getRowCount());
+            }
+            return result;
+        } catch (SQLException e) {
+            throw new DatabaseAccessException(e);
+        } finally {
+            this.close();
+        }
+    }
+
+    /**
+     * Executes the query and returns the first row, or absent() if the result set is empty. The
+     * driver is told to return at most one row, see {@link PreparedStatement#setMaxRows(int)}.
      */
     public Optional<T> first() {
-        List<T> list = rx().take(1).toList().blockingGet();
-        if (list.isEmpty()) {
-            return Optional.absent();
-        } else {
-            return of(list.get(0));
+        if (!this.closed) {
+            limitToFirstRow();
+        }
+        try (QueryCursor<T> cursor = iterator()) {
+            if (cursor.hasNext()) {
+                return of(cursor.next());
+            } else {
+                return Optional.absent();
+            }
         }
     }
 
@@ -124,7 +354,8 @@ public abstract class AbstractQuery<T> {
 
 
     /**
-     * Turns this query into an Observable.  Each subscription will trigger the underlying database operation.
+     * Turns this query into an Observable. The query is closed when the subscription terminates
+     * or gets disposed, so the Observable can be subscribed only once.
      *
      * @return the Observable
      */
@@ -133,40 +364,155 @@ public abstract class AbstractQuery<T> {
     }
 
     /**
-     * Turns this query into an Observable. Each subscription will trigger the underlying database operation.
+     * Turns this query into an Observable. The query is closed when the subscription terminates
+     * or gets disposed, so the Observable can be subscribed only once.
      * <p/>
      * This is a low-level API to directly work with the JDBC ResultSet.
      *
      * @return the Observable
      */
     public Observable<ResultSetWithColumns> rxResultSet() {
+        return Observable.using(
+                () -> this,
+                query -> Observable.create(emitter -> {
+                    try {
+                        ResultSetWithColumns resultSetWithColumns = query.createResultSetWithColumns();
+                        ResultSet resultSet = resultSetWithColumns.getResultSet();
+                        query.checkConformityOnce(resultSetWithColumns);
+
+                        // check for disposal first, a disposed subscription closes the query
+                        while (!emitter.isDisposed() && resultSet.next()) {
+                            emitter.onNext(resultSetWithColumns);
+                        }
+                        emitter.onComplete();
+                    } catch (SQLException e) {
+                        if (!emitter.isDisposed()) {
+                            emitter.onError(e);
+                        }
+                    }
+                }),
+                AbstractQuery::close);
+    }
 
-        return Subject.create(emitter -> {
-            try {
-                ResultSetWithColumns resultSetWithColumns = createResultSetWithColumns();
-                checkConformity(resultSetWithColumns.getConverters());
+    /**
+     * Turns this query into a Flowable that reads a row from the ResultSet only when it was
+     * requested downstream. Each subscription triggers the underlying database operation.
+     * <p/>
+     * Combine with {@link #setFetchSize(int)} to stream large results. If a fetch size is set and
+     * the dialect requires a transaction for streaming (PostgreSQL), autocommit is disabled for
+     * the duration of the subscription.
+     *
+     * @return the Flowable
+     */
+    public Flowable<T> flowable() {
+        return Flowable.generate(
+                () -> openCursor(false),
+                (ResultSetCursor cursor, Emitter<T> emitter) -> {
+                    if (cursor.hasNext()) {
+                        emitter.onNext(cursor.next());
+                    } else {
+                        emitter.onComplete();
+                    }
+                },
+                ResultSetCursor::close);
+    }
 
-                while (resultSetWithColumns.getResultSet().next() && !emitter.isDisposed()) {
-                    emitter.onNext(resultSetWithColumns);
-                }
-                resultSetWithColumns.getResultSet().close();
-                emitter.onComplete();
-            } catch (SQLException e) {
-                emitter.onError(e);
-            }
-        });
+    /**
+     * Like {@link #toTree()}, but returns each top-level entity as soon as it is complete. The
+     * identity map only holds the entities of the current top-level entity, so memory is bounded
+     * by the largest single tree instead of the whole result.
+     * <p/>
+     * The statement must have exactly one top-level marker column and must be ordered by it,
+     * otherwise a top-level entity might be returned more than once. Closing the cursor closes
+     * the query.
+     */
+    public QueryCursor<T> treeIterator() {
+        try {
+            return openTreeCursor(true);
+        } catch (SQLException e) {
+            this.close();
+            throw new DatabaseAccessException(e);
+        } catch (RuntimeException e) {
+            this.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Emits the top-level entities like {@link #treeIterator()}, reading rows only on downstream
+     * demand. Each subscription executes the statement.
+     */
+    public Flowable<T> rxTree() {
+        return Flowable.generate(
+                () -> openTreeCursor(false),
+                (QueryCursor<T> cursor, Emitter<T> emitter) -> {
+                    if (cursor.hasNext()) {
+                        emitter.onNext(cursor.next());
+                    } else {
+                        emitter.onComplete();
+                    }
+                },
+                QueryCursor::close);
+    }
+
+    /**
+     * Creates the entities of {@link #toTree()}, {@link #treeIterator()} and {@link #rxTree()}.
+     */
+    protected abstract EntityCreator createTreeEntityCreator();
+
+    @SuppressWarnings("unchecked")
+    private QueryCursor<T> openTreeCursor(boolean closeQuery) throws SQLException {
+        return (QueryCursor<T>) new QueryToTreeConverter(this, createTreeEntityCreator()).getTreeCursor(closeQuery);
+    }
+
+    /**
+     * Closes the current ResultSet and releases the PreparedStatement. Queries must not be
+     * used after they were closed. Calling this method more than once has no effect.
+     */
+    @Override
+    public void close() {
+        if (this.closed) {
+            return;
+        }
+        this.closed = true;
+
+        if (this.currentResultSet != null) {
+            closeResultSet(this.currentResultSet);
+        }
+        this.preparedStatementFactory = null;
+        if (this.preparedStatement != null) {
+            this.lSql.getStatementCreator().releasePreparedStatement(this.lSql, this.preparedStatement);
+        }
+    }
+
+    public boolean isClosed() {
+        return this.closed;
     }
 
     public ResultSetWithColumns createResultSetWithColumns() {
+        if (this.closed) {
+            throw new IllegalStateException("Query is already closed");
+        }
         try {
-            ResultSet resultSet = AbstractQuery.this.preparedStatement.executeQuery();
+            ResultSet resultSet = getPreparedStatement().executeQuery();
+            this.currentResultSet = resultSet;
             ResultSetMetaData metaData = resultSet.getMetaData();
 
+            // reuse the column setup of a previous execution with the same shape
+            this.currentDecoderPlan = null;
+            if (this.decoderPlanCache != null) {
+                ResultSetDecoderPlan plan = this.decoderPlanCache.get(getDecoderPlanKey());
+                if (plan != null && plan.matches(metaData, this.converters, this.ignoreDuplicateColumns)) {
+                    this.currentDecoderPlan = plan;
+                    return plan.createResultSetWithColumns(resultSet, metaData);
+                }
+            }
+
             // used to find duplicates
             // or unused converter
             Set<String> processedColumnLabels = Sets.newLinkedHashSet();
 
-            List<ResultSetColumn> resultSetColumns = Lists.newLinkedList();
+            List<ResultSetColumn> resultSetColumns = Lists.newArrayList();
             LinkedHashMap<String, Converter> converters = Maps.newLinkedHashMap();
 
             for (int i = 1; i <= metaData.getColumnCount(); i++) {
@@ -180,7 +526,8 @@ public abstract class AbstractQuery<T> {
 
                 Optional<Converter> converter = getConverterForResultSetColumn(metaData, i, columnLabel, false);
                 if (converter.isPresent()) {
-                    ResultSetColumn resultSetColumn = new ResultSetColumn(i, columnLabel, converter.get());
+                    ResultSetColumn resultSetColumn = new ResultSetColumn(
+                            i, columnLabel, converter.get().specializeForColumn(metaData, i));
                     boolean nullable = metaData.isNullable(i) == ResultSetMetaData.columnNullable;
                     resultSetColumn.setNullable(nullable);
                     resultSetColumns.add(resultSetColumn);
@@ -196,7 +543,15 @@ public abstract class AbstractQuery<T> {
                 }
             }
 
-            return new ResultSetWithColumns(resultSet, metaData, resultSetColumns, converters);
+            ResultSetWithColumns resultSetWithColumns =
+                    new ResultSetWithColumns(resultSet, metaData, resultSetColumns, converters);
+            if (this.decoderPlanCache != null) {
+                ResultSetDecoderPlan plan = new ResultSetDecoderPlan(
+                        metaData, this.converters, this.ignoreDuplicateColumns, resultSetWithColumns);
+                this.decoderPlanCache.put(getDecoderPlanKey(), plan);
+                this.currentDecoderPlan = plan;
+            }
+            return resultSetWithColumns;
         } catch (SQLException e) {
             throw new RuntimeException(e);
         }
@@ -256,6 +611,37 @@ public abstract class AbstractQuery<T> {
         }
     }
 
+    private void applyDefaults(PreparedStatement ps) {
+        try {
+            Integer defaultQueryTimeoutInSeconds = this.lSql.getConfig().getDefaultQueryTimeoutInSeconds();
+            if (defaultQueryTimeoutInSeconds != null) {
+                ps.setQueryTimeout(defaultQueryTimeoutInSeconds);
+            }
+            Integer defaultFetchSize = this.lSql.getConfig().getDefaultFetchSize();
+            if (defaultFetchSize != null) {
+                ps.setFetchSize(defaultFetchSize);
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * Identifies the decoder plan of this query type in the statement's {@link DecoderPlanCache}.
+     */
+    protected Object getDecoderPlanKey() {
+        return getClass();
+    }
+
+    /**
+     * Copies an entity that is stored in or returned from the {@link QueryResultCache}, so that
+     * callers can not modify cached results. The copy may share the column values. The default
+     * implementation shares the instance, subclasses with mutable entities must override it.
+     */
+    protected T copyEntity(T entity) {
+        return entity;
+    }
+
     protected abstract T createEntity();
 
     protected abstract void checkConformity(Map<String, Converter> converters);
@@ -267,7 +653,103 @@ public abstract class AbstractQuery<T> {
         return lSql.getConverterForSqlType(columnSqlType);
     }
 
-    private T extractEntity(ResultSetWithColumns resultSetWithColumns) {
+    private void closeResultSet(ResultSet resultSet) {
+        try {
+            resultSet.close();
+        } catch (SQLException e) {
+            throw new DatabaseAccessException(e);
+        } finally {
+            if (this.currentResultSet == resultSet) {
+                this.currentResultSet = null;
+            }
+        }
+    }
+
+    private void checkConformityOnce(ResultSetWithColumns resultSetWithColumns) {
+        ResultSetDecoderPlan plan = this.currentDecoderPlan;
+        if (plan == null || !plan.isConformityChecked()) {
+            checkConformity(resultSetWithColumns.getConverters());
+            if (plan != null) {
+                plan.setConformityChecked();
+            }
+        }
+    }
+
+    private ResultSetCursor openCursor(boolean closeQuery) throws SQLException {
+        Connection autoCommitConnection = disableAutoCommitForStreaming();
+        try {
+            ResultSetWithColumns resultSetWithColumns = createResultSetWithColumns();
+            checkConformityOnce(resultSetWithColumns);
+            return new ResultSetCursor(resultSetWithColumns, autoCommitConnection, closeQuery);
+        } catch (RuntimeException e) {
+            if (this.currentResultSet != null) {
+                closeResultSet(this.currentResultSet);
+            }
+            restoreAutoCommit(autoCommitConnection);
+            throw e;
+        }
+    }
+
+    private void limitToFirstRow() {
+        try {
+            PreparedStatement ps = getPreparedStatement();
+            if (ps.getMaxRows() != 1) {
+                ps.setMaxRows(1);
+            }
+            // a fetch size requires a transaction on some drivers, see openCursor()
+            if (!this.lSql.isTransactionRequiredForStreaming() && ps.getFetchSize() == 0) {
+                ps.setFetchSize(1);
+            }
+        } catch (SQLException e) {
+            throw new DatabaseAccessException(e);
+        }
+    }
+
+    private boolean isAutoCommit() {
+        try {
+            return getPreparedStatement().getConnection().getAutoCommit();
+        } catch (SQLException e) {
+            throw new DatabaseAccessException(e);
+        }
+    }
+
+    private <E> List<E> createListForCurrentPlan() {
+        ResultSetDecoderPlan plan = this.currentDecoderPlan;
+        return plan != null ? new ArrayList<>(plan.getRowCountHint()) : new ArrayList<>();
+    }
+
+    /**
+     * Disables autocommit if a fetch size is set and the dialect requires a transaction for
+     * streaming.
+     *
+     * @return the connection to pass to {@link #restoreAutoCommit(Connection)} or {@code null}
+     */
+    Connection disableAutoCommitForStreaming() throws SQLException {
+        PreparedStatement ps = getPreparedStatement();
+        if (this.lSql.isTransactionRequiredForStreaming() && ps.getFetchSize() > 0) {
+            Connection connection = ps.getConnection();
+            if (connection.getAutoCommit()) {
+                connection.setAutoCommit(false);
+                return connection;
+            }
+        }
+        return null;
+    }
+
+    void restoreAutoCommit(Connection connection) {
+        if (connection != null) {
+            try {
+                connection.setAutoCommit(true);
+            } catch (SQLException e) {
+                throw new DatabaseAccessException(e);
+            }
+        }
+    }
+
+    /**
+     * Creates the entity for the current row of the ResultSet.
+     */
+    protected T extractEntity(ResultSetWithColumns resultSetWithColumns) {
         ResultSet resultSet = resultSetWithColumns.getResultSet();
         Collection<ResultSetColumn> columnList = resultSetWithColumns.getColumnsByLabel().values();
         T entity = createEntity();
@@ -283,4 +765,86 @@ public abstract class AbstractQuery<T> {
         }
         return entity;
     }
+
+    private final class ResultSetCursor implements QueryCursor<T> {
+
+        private final ResultSetWithColumns resultSetWithColumns;
+
+        private final ResultSet resultSet;
+
+        private final ResultSetDecoderPlan plan;
+
+        private final Connection autoCommitConnection;
+
+        private final boolean closeQuery;
+
+        private boolean advanced = false;
+
+        private boolean hasRow = false;
+
+        private int rowCount = 0;
+
+        private boolean closed = false;
+
+        ResultSetCursor(ResultSetWithColumns resultSetWithColumns, Connection autoCommitConnection, boolean closeQuery) {
+            this.resultSetWithColumns = resultSetWithColumns;
+            this.resultSet = resultSetWithColumns.getResultSet();
+            this.plan = AbstractQuery.this.currentDecoderPlan;
+            this.autoCommitConnection = autoCommitConnection;
+            this.closeQuery = closeQuery;
+        }
+
+        @Override
+        public boolean hasNext() {
+            if (this.closed) {
+                return false;
+            }
+            if (!this.advanced) {
+                try {
+                    this.hasRow = this.resultSet.next();
+                } catch (SQLException e) {
+                    close();
+                    throw new DatabaseAccessException(e);
+                }
+                this.advanced = true;
+                if (!this.hasRow) {
+                    if (this.plan != null) {
+                        this.plan.setRowCountHint(this.rowCount);
+                    }
+                    close();
+                }
+            }
+            return this.hasRow;
+        }
+
+        @Override
+        public T next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            this.advanced = false;
+            this.rowCount++;
+            return extractEntity(this.resultSetWithColumns);
+        }
+
+        @Override
+        public void close() {
+            if (this.closed) {
+                return;
+            }
+            this.closed = true;
+            try {
+                closeResultSet(this.resultSet);
+            } finally {
+                try {
+                    restoreAutoCommit(this.autoCommitConnection);
+                } finally {
+                    if (this.closeQuery) {
+                        AbstractQuery.this.close();
+                    }
+                }
+            }
+        }
+    }
+
 }
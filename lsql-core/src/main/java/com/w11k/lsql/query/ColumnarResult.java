@@ -0,0 +1,393 @@
+package com.w11k.lsql.query;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Maps;
+import com.w11k.lsql.LSql;
+import com.w11k.lsql.ResultSetColumn;
+import com.w11k.lsql.converter.Converter;
+import com.w11k.lsql.converter.PrimitiveConverter;
+
+import java.lang.reflect.Array;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Column-oriented result of {@link AbstractQuery#toColumns()}. Columns with a
+ * {@link PrimitiveConverter} are stored in {@code int[]}, {@code long[]}, {@code double[]} or
+ * {@code boolean[]} arrays, all other columns in an array of the converter's Java type, e.g.
+ * {@code String[]}. SQL NULL values are recorded in a per-column bitmap, the array contains the
+ * default value of the element type at these positions.
+ * <p/>
+ * The returned arrays are not copied and have exactly {@link #getRowCount()} elements.
+ */
+public final class ColumnarResult {
+
+    private final int rowCount;
+
+    private final Map<String, ColumnBuffer> columns;
+
+    private ColumnarResult(int rowCount, Map<String, ColumnBuffer> columns) {
+        this.rowCount = rowCount;
+        this.columns = columns;
+    }
+
+    public int getRowCount() {
+        return this.rowCount;
+    }
+
+    public List<String> getColumnNames() {
+        return ImmutableList.copyOf(this.columns.keySet());
+    }
+
+    /**
+     * @return the array element type of the column, e.g. {@code int.class} or {@code String.class}
+     */
+    public Class<?> getColumnType(String columnName) {
+        return getColumn(columnName).getElementType();
+    }
+
+    public int[] getInts(String columnName) {
+        return getArray(columnName, int[].class);
+    }
+
+    public long[] getLongs(String columnName) {
+        return getArray(columnName, long[].class);
+    }
+
+    public double[] getDoubles(String columnName) {
+        return getArray(columnName, double[].class);
+    }
+
+    public boolean[] getBooleans(String columnName) {
+        return getArray(columnName, boolean[].class);
+    }
+
+    public String[] getStrings(String columnName) {
+        return getArray(columnName, String[].class);
+    }
+
+    /**
+     * @return the values of a column that is not stored as primitive array
+     */
+    public Object[] getObjects(String columnName) {
+        return getArray(columnName, Object[].class);
+    }
+
+    public boolean isNull(String columnName, int row) {
+        return getColumn(columnName).nulls.get(row);
+    }
+
+    /**
+     * @return a copy of the null bitmap of the column
+     */
+    public BitSet getNulls(String columnName) {
+        return (BitSet) getColumn(columnName).nulls.clone();
+    }
+
+    private ColumnBuffer getColumn(String columnName) {
+        ColumnBuffer column = this.columns.get(columnName);
+        if (column == null) {
+            throw new IllegalArgumentException("Unknown column '" + columnName + "'");
+        }
+        return column;
+    }
+
+    private <A> A getArray(String columnName, Class<A> arrayType) {
+        Object array = getColumn(columnName).getArray();
+        if (!arrayType.isInstance(array)) {
+            throw new IllegalArgumentException("Column '" + columnName + "' is of type '"
+                    + array.getClass().getComponentType().getSimpleName() + "', "
+                    + "not '" + arrayType.getComponentType().getSimpleName() + "'");
+        }
+        return arrayType.cast(array);
+    }
+
+    static final class Builder {
+
+        private final LSql lSql;
+
+        private final LinkedHashMap<String, ColumnBuffer> columns = Maps.newLinkedHashMap();
+
+        private int rowCount = 0;
+
+        Builder(LSql lSql, Collection<ResultSetColumn> resultSetColumns, int initialCapacity) {
+            this.lSql = lSql;
+            int capacity = Math.max(initialCapacity, 16);
+            for (ResultSetColumn column : resultSetColumns) {
+                this.columns.put(column.getName(), createBuffer(column, capacity));
+            }
+        }
+
+        void readRow(ResultSet resultSet) throws SQLException {
+            for (ColumnBuffer column : this.columns.values()) {
+                column.read(this.lSql, resultSet, this.rowCount);
+            }
+            this.rowCount++;
+        }
+
+        ColumnarResult build() {
+            for (ColumnBuffer column : this.columns.values()) {
+                column.trim(this.rowCount);
+            }
+            return new ColumnarResult(this.rowCount, this.columns);
+        }
+
+        private static ColumnBuffer createBuffer(ResultSetColumn column, int capacity) {
+            Converter converter = column.getConverter();
+            if (converter instanceof PrimitiveConverter) {
+                PrimitiveConverter primitiveConverter = (PrimitiveConverter) converter;
+                switch (primitiveConverter.getPrimitiveType()) {
+                    case INT:
+                        return new IntBuffer(column.getPosition(), primitiveConverter, capacity);
+                    case LONG:
+                        return new LongBuffer(column.getPosition(), primitiveConverter, capacity);
+                    case DOUBLE:
+                        return new DoubleBuffer(column.getPosition(), primitiveConverter, capacity);
+                    case BOOLEAN:
+                        return new BooleanBuffer(column.getPosition(), primitiveConverter, capacity);
+                }
+            }
+            return new ObjectBuffer(column.getPosition(), converter, capacity);
+        }
+    }
+
+    private abstract static class ColumnBuffer {
+
+        final int position;
+
+        final BitSet nulls = new BitSet();
+
+        ColumnBuffer(int position) {
+            this.position = position;
+        }
+
+        abstract Class<?> getElementType();
+
+        abstract Object getArray();
+
+        abstract void read(LSql lSql, ResultSet resultSet, int row) throws SQLException;
+
+        abstract void trim(int rowCount);
+
+        static int grow(int length, int row) {
+            return row < length ? length : Math.max(row + 1, length + (length >> 1));
+        }
+    }
+
+    private static final class IntBuffer extends ColumnBuffer {
+
+        private final PrimitiveConverter converter;
+
+        private int[] values;
+
+        IntBuffer(int position, PrimitiveConverter converter, int capacity) {
+            super(position);
+            this.converter = converter;
+            this.values = new int[capacity];
+        }
+
+        @Override
+        Class<?> getElementType() {
+            return int.class;
+        }
+
+        @Override
+        Object getArray() {
+            return this.values;
+        }
+
+        @Override
+        void read(LSql lSql, ResultSet resultSet, int row) throws SQLException {
+            if (row == this.values.length) {
+                this.values = Arrays.copyOf(this.values, grow(this.values.length, row));
+            }
+            this.values[row] = this.converter.getInt(resultSet, this.position);
+            if (resultSet.wasNull()) {
+                this.nulls.set(row);
+            }
+        }
+
+        @Override
+        void trim(int rowCount) {
+            if (this.values.length != rowCount) {
+                this.values = Arrays.copyOf(this.values, rowCount);
+            }
+        }
+    }
+
+    private static final class LongBuffer extends ColumnBuffer {
+
+        private final PrimitiveConverter converter;
+
+        private long[] values;
+
+        LongBuffer(int position, PrimitiveConverter converter, int capacity) {
+            super(position);
+            this.converter = converter;
+            this.values = new long[capacity];
+        }
+
+        @Override
+        Class<?> getElementType() {
+            return long.class;
+        }
+
+        @Override
+        Object getArray() {
+            return this.values;
+        }
+
+        @Override
+        void read(LSql lSql, ResultSet resultSet, int row) throws SQLException {
+            if (row == this.values.length) {
+                this.values = Arrays.copyOf(this.values, grow(this.values.length, row));
+            }
+            this.values[row] = this.converter.getLong(resultSet, this.position);
+            if (resultSet.wasNull()) {
+                this.nulls.set(row);
+            }
+        }
+
+        @Override
+        void trim(int rowCount) {
+            if (this.values.length != rowCount) {
+                this.values = Arrays.copyOf(this.values, rowCount);
+            }
+        }
+    }
+
+    private static final class DoubleBuffer extends ColumnBuffer {
+
+        private final PrimitiveConverter converter;
+
+        private double[] values;
+
+        DoubleBuffer(int position, PrimitiveConverter converter, int capacity) {
+            super(position);
+            this.converter = converter;
+            this.values = new double[capacity];
+        }
+
+        @Override
+        Class<?> getElementType() {
+            return double.class;
+        }
+
+        @Override
+        Object getArray() {
+            return this.values;
+        }
+
+        @Override
+        void read(LSql lSql, ResultSet resultSet, int row) throws SQLException {
+            if (row == this.values.length) {
+                this.values = Arrays.copyOf(this.values, grow(this.values.length, row));
+            }
+            this.values[row] = this.converter.getDouble(resultSet, this.position);
+            if (resultSet.wasNull()) {
+                this.nulls.set(row);
+            }
+        }
+
+        @Override
+        void trim(int rowCount) {
+            if (this.values.length != rowCount) {
+                this.values = Arrays.copyOf(this.values, rowCount);
+            }
+        }
+    }
+
+    private static final class BooleanBuffer extends ColumnBuffer {
+
+        private final PrimitiveConverter converter;
+
+        private boolean[] values;
+
+        BooleanBuffer(int position, PrimitiveConverter converter, int capacity) {
+            super(position);
+            this.converter = converter;
+            this.values = new boolean[capacity];
+        }
+
+        @Override
+        Class<?> getElementType() {
+            return boolean.class;
+        }
+
+        @Override
+        Object getArray() {
+            return this.values;
+        }
+
+        @Override
+        void read(LSql lSql, ResultSet resultSet, int row) throws SQLException {
+            if (row == this.values.length) {
+                this.values = Arrays.copyOf(this.values, grow(this.values.length, row));
+            }
+            this.values[row] = this.converter.getBoolean(resultSet, this.position);
+            if (resultSet.wasNull()) {
+                this.nulls.set(row);
+            }
+        }
+
+        @Override
+        void trim(int rowCount) {
+            if (this.values.length != rowCount) {
+                this.values = Arrays.copyOf(this.values, rowCount);
+            }
+        }
+    }
+
+    private static final class ObjectBuffer extends ColumnBuffer {
+
+        private final Converter converter;
+
+        private Object[] values;
+
+        ObjectBuffer(int position, Converter converter, int capacity) {
+            super(position);
+            this.converter = converter;
+            this.values = (Object[]) Array.newInstance(converter.getJavaType(), capacity);
+        }
+
+        @Override
+        Class<?> getElementType() {
+            return this.values.getClass().getComponentType();
+        }
+
+        @Override
+        Object getArray() {
+            return this.values;
+        }
+
+        @Override
+        void read(LSql lSql, ResultSet resultSet, int row) throws SQLException {
+            if (row == this.values.length) {
+                this.values = Arrays.copyOf(this.values, grow(this.values.length, row));
+            }
+            Object value = this.converter.getValueFromResultSet(lSql, resultSet, this.position);
+            if (value != null && !this.values.getClass().getComponentType().isInstance(value)) {
+                // the converter returned a value that does not match its Java type
+                this.values = Arrays.copyOf(this.values, this.values.length, Object[].class);
+            }
+            this.values[row] = value;
+            if (value == null) {
+                this.nulls.set(row);
+            }
+        }
+
+        @Override
+        void trim(int rowCount) {
+            if (this.values.length != rowCount) {
+                this.values = Arrays.copyOf(this.values, rowCount);
+            }
+        }
+    }
+
+}
@@ -0,0 +1,30 @@
+package com.w11k.lsql.query;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Keeps the {@link ResultSetDecoderPlan}s of a statement, one per query type (e.g. the POJO class).
+ * A plan is reused while the ResultSet has the same shape and replaced otherwise.
+ */
+public final class DecoderPlanCache {
+
+    private final Map<Object, ResultSetDecoderPlan> plans = new ConcurrentHashMap<>();
+
+    ResultSetDecoderPlan get(Object key) {
+        return this.plans.get(key);
+    }
+
+    void put(Object key, ResultSetDecoderPlan plan) {
+        this.plans.put(key, plan);
+    }
+
+    public int size() {
+        return this.plans.size();
+    }
+
+    public void clear() {
+        this.plans.clear();
+    }
+
+}
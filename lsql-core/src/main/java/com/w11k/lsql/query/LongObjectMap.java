@@ -0,0 +1,90 @@
+package com.w11k.lsql.query;
+
+import java.util.Arrays;
+
+/**
+ * Open addressing hash map with primitive {@code long} keys. Avoids the boxing and entry
+ * allocation of a {@link java.util.HashMap} for keys that fit into a long.
+ */
+final class LongObjectMap<V> {
+
+    private static final int INITIAL_CAPACITY = 16;
+
+    private long[] keys = new long[INITIAL_CAPACITY];
+
+    private Object[] values = new Object[INITIAL_CAPACITY];
+
+    private int size = 0;
+
+    @SuppressWarnings("unchecked")
+    V get(long key) {
+        int mask = this.keys.length - 1;
+        int index = hash(key) & mask;
+        Object value;
+        while ((value = this.values[index]) != null) {
+            if (this.keys[index] == key) {
+                return (V) value;
+            }
+            index = (index + 1) & mask;
+        }
+        return null;
+    }
+
+    /**
+     * @param value must not be {@code null}
+     */
+    void put(long key, V value) {
+        int mask = this.keys.length - 1;
+        int index = hash(key) & mask;
+        while (this.values[index] != null) {
+            if (this.keys[index] == key) {
+                this.values[index] = value;
+                return;
+            }
+            index = (index + 1) & mask;
+        }
+        this.keys[index] = key;
+        this.values[index] = value;
+        this.size++;
+        if (this.size * 2 > this.keys.length) {
+            resize();
+        }
+    }
+
+    void clear() {
+        if (this.size > 0) {
+            Arrays.fill(this.values, null);
+            this.size = 0;
+        }
+    }
+
+    private void resize() {
+        long[] oldKeys = this.keys;
+        Object[] oldValues = this.values;
+        this.keys = new long[oldKeys.length * 2];
+        this.values = new Object[oldValues.length * 2];
+        int mask = this.keys.length - 1;
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldValues[i] != null) {
+                int index = hash(oldKeys[i]) & mask;
+                while (this.values[index] != null) {
+                    index = (index + 1) & mask;
+                }
+                this.keys[index] = oldKeys[i];
+                this.values[index] = oldValues[i];
+            }
+        }
+    }
+
+    private static int hash(long key) {
+        // finalizer of MurmurHash3
+        long h = key;
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb93e2dd1c785L;
+        h ^= h >>> 33;
+        return (int) h;
+    }
+
+}
@@ -23,7 +23,11 @@ public class PojoQuery<T> extends AbstractQuery<T> {
     @SuppressWarnings("unchecked")
     @Override
     public List<T> toTree() {
-        return (List<T>) new QueryToTreeConverter(this, new PojoEntityCreator<T>(this.pojoClass)).getTree();
+        try {
+            return (List<T>) new QueryToTreeConverter(this, createTreeEntityCreator()).getTree();
+        } finally {
+            this.close();
+        }
     }
 
     @Override
@@ -31,11 +35,26 @@ public class PojoQuery<T> extends AbstractQuery<T> {
         return this.pojoMapper.newInstance();
     }
 
+    @Override
+    protected T copyEntity(T entity) {
+        return this.pojoMapper.copy(entity);
+    }
+
+    @Override
+    protected Object getDecoderPlanKey() {
+        return this.pojoClass;
+    }
+
     @Override
     protected void checkConformity(Map<String, Converter> converters) {
         this.pojoMapper.checkConformity(converters);
     }
 
+    @Override
+    protected EntityCreator createTreeEntityCreator() {
+        return new PojoEntityCreator<T>(this.pojoClass);
+    }
+
     @Override
     protected void setValue(T entity, String name, Object value) {
         this.pojoMapper.setValue(entity, name, value);
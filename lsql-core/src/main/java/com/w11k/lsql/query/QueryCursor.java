@@ -0,0 +1,42 @@
+package com.w11k.lsql.query;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.function.Function;
+
+/**
+ * Pulls the rows of an executed query one by one from the open ResultSet. The cursor closes
+ * itself after the last row. Use try-with-resources to close it if the iteration stops early.
+ */
+public interface QueryCursor<T> extends Iterator<T>, AutoCloseable {
+
+    @Override
+    void close();
+
+    /**
+     * @return a cursor that applies the mapper to every row of this cursor
+     */
+    default <R> QueryCursor<R> map(Function<? super T, ? extends R> mapper) {
+        QueryCursor<T> source = this;
+        return new QueryCursor<R>() {
+            @Override
+            public boolean hasNext() {
+                return source.hasNext();
+            }
+
+            @Override
+            public R next() {
+                if (!source.hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                return mapper.apply(source.next());
+            }
+
+            @Override
+            public void close() {
+                source.close();
+            }
+        };
+    }
+
+}
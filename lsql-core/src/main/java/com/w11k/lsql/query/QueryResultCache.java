@@ -0,0 +1,326 @@
+package com.w11k.lsql.query;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+import com.google.common.cache.RemovalCause;
+import com.google.common.cache.RemovalListener;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * Caches the results of {@link AbstractQuery#toList()} for statements that opted in with
+ * {@link com.w11k.lsql.statement.AbstractSqlStatement#cacheResults(String...)}. Entries are keyed
+ * by the statement, the parameter values and the result type and are evicted by size and age.
+ * <p/>
+ * Each entry records the tables the statement reads. Writes through {@link com.w11k.lsql.Table}
+ * invalidate all entries that read the written table. Writes that bypass the {@link com.w11k.lsql.LSql}
+ * instance, e.g. plain SQL statements or other applications, are only picked up after the entries
+ * expired.
+ * <p/>
+ * Results read with autocommit disabled are not cached, since they might contain uncommitted
+ * writes. A write inside a transaction invalidates the entries before the transaction commits.
+ * A concurrent reader on another connection can therefore still cache the previous state, which
+ * is then served until the entry expires.
+ */
+public class QueryResultCache {
+
+    private final Cache<Key, Entry> cache;
+
+    private final ConcurrentMap<String, AtomicLong> tableVersions = new ConcurrentHashMap<>();
+
+    private final ConcurrentMap<String, Set<Key>> keysByTable = new ConcurrentHashMap<>();
+
+    private final AtomicLong cachedRowCount = new AtomicLong();
+
+    private final AtomicLong cachedValueCount = new AtomicLong();
+
+    private final AtomicLong invalidationCount = new AtomicLong();
+
+    /**
+     * @param maxEntries the maximum number of cached results
+     * @param ttlMillis  the time after which a cached result expires, 0 to keep results until
+     *                   they get evicted or invalidated
+     */
+    public QueryResultCache(long maxEntries, long ttlMillis) {
+        CacheBuilder<Object, Object> builder = CacheBuilder.newBuilder()
+                .maximumSize(maxEntries)
+                .recordStats();
+        if (ttlMillis > 0) {
+            builder.expireAfterWrite(ttlMillis, TimeUnit.MILLISECONDS);
+        }
+        this.cache = builder.removalListener((RemovalListener<Key, Entry>) notification -> {
+            Entry entry = notification.getValue();
+            if (entry != null) {
+                this.cachedRowCount.addAndGet(-entry.rows.size());
+                this.cachedValueCount.addAndGet(-entry.valueCount);
+            }
+            Key key = notification.getKey();
+            if (key != null && notification.getCause() != RemovalCause.REPLACED) {
+                unindex(key);
+            }
+        }).build();
+    }
+
+    /**
+     * Starts a lookup for a statement execution. Writes to one of the tables after this call
+     * prevent the result of the execution from being cached.
+     *
+     * @param statementKey identifies the statement, e.g. its SQL string
+     * @param parameters   the parameter values of the execution
+     * @param tables       the tables read by the statement
+     */
+    public Lookup lookup(Object statementKey, Map<String, Object> parameters, Set<String> tables) {
+        Set<String> normalized = normalizeTableNames(tables);
+        return new Lookup(statementKey, Maps.newHashMap(parameters), normalized, readVersions(normalized));
+    }
+
+    /**
+     * Removes all entries that read one of the tables.
+     */
+    public void invalidateTables(String... tableNames) {
+        Set<String> tables = normalizeTableNames(ImmutableSet.copyOf(tableNames));
+        for (String table : tables) {
+            this.tableVersions.computeIfAbsent(table, t -> new AtomicLong()).incrementAndGet();
+        }
+        this.invalidationCount.incrementAndGet();
+        for (String table : tables) {
+            Set<Key> keys = this.keysByTable.get(table);
+            if (keys != null) {
+                this.cache.invalidateAll(ImmutableSet.copyOf(keys));
+            }
+        }
+    }
+
+    public void invalidateAll() {
+        for (AtomicLong version : this.tableVersions.values()) {
+            version.incrementAndGet();
+        }
+        this.invalidationCount.incrementAndGet();
+        this.cache.invalidateAll();
+    }
+
+    /**
+     * @return hit, miss and eviction counts, e.g. {@code getStats().hitRate()}
+     */
+    public CacheStats getStats() {
+        return this.cache.stats();
+    }
+
+    /**
+     * @return the number of cached results
+     */
+    public long size() {
+        this.cache.cleanUp();
+        return this.cache.size();
+    }
+
+    /**
+     * @return the number of rows in all cached results
+     */
+    public long getCachedRowCount() {
+        this.cache.cleanUp();
+        return this.cachedRowCount.get();
+    }
+
+    /**
+     * @return the number of column values in all cached results, an estimate of the memory footprint.
+     * Results of entities other than maps count one value per row.
+     */
+    public long getCachedValueCount() {
+        this.cache.cleanUp();
+        return this.cachedValueCount.get();
+    }
+
+    /**
+     * @return the number of invalidations caused by writes
+     */
+    public long getInvalidationCount() {
+        return this.invalidationCount.get();
+    }
+
+    private void index(Key key) {
+        for (String table : key.tables) {
+            this.keysByTable.computeIfAbsent(table, t -> ConcurrentHashMap.newKeySet()).add(key);
+        }
+    }
+
+    private void unindex(Key key) {
+        for (String table : key.tables) {
+            Set<Key> keys = this.keysByTable.get(table);
+            if (keys != null) {
+                keys.remove(key);
+            }
+        }
+        // the same key might have been put again concurrently
+        if (this.cache.asMap().containsKey(key)) {
+            index(key);
+        }
+    }
+
+    private long[] readVersions(Set<String> tables) {
+        long[] versions = new long[tables.size()];
+        int i = 0;
+        for (String table : tables) {
+            AtomicLong version = this.tableVersions.get(table);
+            versions[i++] = version == null ? 0 : version.get();
+        }
+        return versions;
+    }
+
+    /**
+     * Tables are compared by their unqualified, lower case name, so a statement that declares
+     * {@code public.person} is invalidated by writes to {@code person}. Tables with the same
+     * name in different schemas invalidate each other.
+     */
+    private static Set<String> normalizeTableNames(Set<String> tables) {
+        ImmutableSet.Builder<String> builder = ImmutableSet.builder();
+        for (String table : tables) {
+            String unqualified = table.substring(table.lastIndexOf('.') + 1);
+            builder.add(unqualified.toLowerCase(Locale.ROOT));
+        }
+        return builder.build();
+    }
+
+    /**
+     * A pending lookup of one statement execution.
+     */
+    public final class Lookup {
+
+        private final Object statementKey;
+
+        private final Map<String, Object> parameters;
+
+        private final Set<String> tables;
+
+        private final long[] versions;
+
+        private Lookup(Object statementKey, Map<String, Object> parameters, Set<String> tables, long[] versions) {
+            this.statementKey = statementKey;
+            this.parameters = parameters;
+            this.tables = tables;
+            this.versions = versions;
+        }
+
+        /**
+         * @param resultType distinguishes results of different entity types, e.g. the decoder plan key
+         * @return the cached entities or {@code null}. The list must not be modified.
+         */
+        @SuppressWarnings("unchecked")
+        public <T> List<T> get(Object resultType) {
+            Entry entry = QueryResultCache.this.cache.getIfPresent(createKey(resultType));
+            return entry == null ? null : (List<T>) entry.rows;
+        }
+
+        /**
+         * Caches the entities unless one of the tables was written since this lookup was started.
+         *
+         * @param copy creates the instances that get cached, the passed list stays with the caller
+         */
+        public <T> void put(Object resultType, List<T> rows, Function<T, T> copy) {
+            if (!isCurrent()) {
+                return;
+            }
+            List<Object> copies = Lists.newArrayListWithCapacity(rows.size());
+            long valueCount = 0;
+            for (T row : rows) {
+                T copied = copy.apply(row);
+                copies.add(copied);
+                valueCount += copied instanceof Map ? ((Map<?, ?>) copied).size() : 1;
+            }
+            Key key = createKey(resultType);
+            Entry entry = new Entry(Collections.unmodifiableList(copies), valueCount);
+            QueryResultCache.this.cachedRowCount.addAndGet(entry.rows.size());
+            QueryResultCache.this.cachedValueCount.addAndGet(entry.valueCount);
+            QueryResultCache.this.cache.put(key, entry);
+            index(key);
+
+            // a write might have invalidated the tables between the check and the put
+            if (!isCurrent()) {
+                QueryResultCache.this.cache.invalidate(key);
+            }
+        }
+
+        private boolean isCurrent() {
+            long[] current = readVersions(this.tables);
+            for (int i = 0; i < current.length; i++) {
+                if (current[i] != this.versions[i]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private Key createKey(Object resultType) {
+            return new Key(this.statementKey, this.parameters, this.tables, resultType);
+        }
+    }
+
+    private static final class Key {
+
+        private final Object statementKey;
+
+        private final Map<String, Object> parameters;
+
+        private final Set<String> tables;
+
+        private final Object resultType;
+
+        private final int hashCode;
+
+        Key(Object statementKey, Map<String, Object> parameters, Set<String> tables, Object resultType) {
+            this.statementKey = statementKey;
+            this.parameters = parameters;
+            this.tables = tables;
+            this.resultType = resultType;
+            this.hashCode = Objects.hash(statementKey, parameters, tables, resultType);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (o == null || getClass() != o.getClass()) {
+                return false;
+            }
+            Key key = (Key) o;
+            return this.hashCode == key.hashCode
+                    && this.statementKey.equals(key.statementKey)
+                    && this.parameters.equals(key.parameters)
+                    && this.tables.equals(key.tables)
+                    && this.resultType.equals(key.resultType);
+        }
+
+        @Override
+        public int hashCode() {
+            return this.hashCode;
+        }
+    }
+
+    private static final class Entry {
+
+        private final List<Object> rows;
+
+        private final long valueCount;
+
+        Entry(List<Object> rows, long valueCount) {
+            this.rows = rows;
+            this.valueCount = valueCount;
+        }
+    }
+
+}
@@ -6,47 +6,108 @@ import com.google.common.collect.Maps;
 import com.w11k.lsql.LSql;
 import com.w11k.lsql.ResultSetColumn;
 import com.w11k.lsql.converter.Converter;
+import com.w11k.lsql.exceptions.DatabaseAccessException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.sql.Connection;
 import java.sql.ResultSet;
 import java.sql.ResultSetMetaData;
 import java.sql.SQLException;
+import java.util.ArrayDeque;
+import java.util.Deque;
 import java.util.List;
 import java.util.Map;
+import java.util.NoSuchElementException;
 import java.util.TreeMap;
 
-import static com.google.common.collect.Lists.newLinkedList;
-
 public class QueryToTreeConverter {
 
-    private static class SegmentHeader {
-        private int firstColumn;
+    /**
+     * A group of columns that starts with a marker column. The hierarchy is resolved once per
+     * ResultSet, the rows are processed without any string operations.
+     */
+    private static final class Segment {
+
+        private final int markerColumn;
+
+        private final Converter markerConverter;
+
+        private final ResultSetColumn[] columns;
+
+        /**
+         * Index of the parent segment, -1 for top-level segments
+         */
+        private final int parent;
+
+        private final String fieldNameInParent;
+
+        private final boolean isList;
+
+        // Entities by parent entity id and marker value
+        private final LongObjectMap<Node> entitiesByIntKey = new LongObjectMap<>();
+
+        private final Map<SegmentKey, Node> entitiesByObjectKey = Maps.newHashMap();
 
-        private int lastColumn;
+        Segment(int markerColumn,
+                Converter markerConverter,
+                ResultSetColumn[] columns,
+                int parent,
+                String fieldNameInParent,
+                boolean isList) {
 
-        public SegmentHeader(int firstColumn, int lastColumn) {
-            this.firstColumn = firstColumn;
-            this.lastColumn = lastColumn;
+            this.markerColumn = markerColumn;
+            this.markerConverter = markerConverter;
+            this.columns = columns;
+            this.parent = parent;
+            this.fieldNameInParent = fieldNameInParent;
+            this.isList = isList;
         }
 
-        public int getFirstColumn() {
-            return firstColumn;
+        Node get(int parentId, Object markerValue) {
+            if (isIntKey(markerValue)) {
+                return this.entitiesByIntKey.get(intKey(parentId, markerValue));
+            }
+            return this.entitiesByObjectKey.get(new SegmentKey(parentId, markerValue));
+        }
+
+        void put(int parentId, Object markerValue, Node node) {
+            if (isIntKey(markerValue)) {
+                this.entitiesByIntKey.put(intKey(parentId, markerValue), node);
+            } else {
+                this.entitiesByObjectKey.put(new SegmentKey(parentId, markerValue), node);
+            }
         }
 
-        public int getLastColumn() {
-            return lastColumn;
+        void clear() {
+            this.entitiesByIntKey.clear();
+            this.entitiesByObjectKey.clear();
+        }
+
+        private static boolean isIntKey(Object value) {
+            if (value instanceof Integer || value instanceof Short || value instanceof Byte) {
+                return true;
+            }
+            if (value instanceof Long) {
+                long l = (Long) value;
+                return l >= Integer.MIN_VALUE && l <= Integer.MAX_VALUE;
+            }
+            return false;
+        }
+
+        private static long intKey(int parentId, Object value) {
+            return ((long) parentId << 32) | (((Number) value).intValue() & 0xFFFFFFFFL);
         }
     }
 
-    private static class MarkerColumnValue {
+    private static final class SegmentKey {
 
-        private final String path;
+        private final int parentId;
 
         private final Object value;
 
-        public MarkerColumnValue(String path, Object value) {
-            this.path = path;
+        SegmentKey(int parentId, Object value) {
+            this.parentId = parentId;
             this.value = value;
         }
 
@@ -54,24 +115,25 @@ public class QueryToTreeConverter {
         public boolean equals(Object o) {
             if (this == o) return true;
             if (o == null || getClass() != o.getClass()) return false;
-            MarkerColumnValue that = (MarkerColumnValue) o;
-            return path.equals(that.path) && value.equals(that.value);
-
+            SegmentKey that = (SegmentKey) o;
+            return parentId == that.parentId && value.equals(that.value);
         }
 
         @Override
         public int hashCode() {
-            int result = path.hashCode();
-            result = 31 * result + value.hashCode();
-            return result;
+            return 31 * parentId + value.hashCode();
         }
+    }
 
-        @Override
-        public String toString() {
-            return "MarkerColumnValue{" +
-                    "path='" + path + '\'' +
-                    ", value=" + value +
-                    '}';
+    private static final class Node {
+
+        private final int id;
+
+        private final Object entity;
+
+        Node(int id, Object entity) {
+            this.id = id;
+            this.entity = entity;
         }
     }
 
@@ -101,112 +163,284 @@ public class QueryToTreeConverter {
     private List<?> buildTree()
             throws SQLException {
 
-        ResultSet resultSet = this.query.getPreparedStatement().executeQuery();
-        ResultSetMetaData metaData = resultSet.getMetaData();
+        try (ResultSet resultSet = this.query.getPreparedStatement().executeQuery()) {
+            return buildTree(resultSet);
+        }
+    }
 
-        // Table segments
-        TreeMap<String, SegmentHeader> segmentHeaders = Maps.newTreeMap();
+    /**
+     * Executes the query and returns a cursor that emits each top-level entity when the marker
+     * value of the top-level segment changes. The entities of completed top-level entities are
+     * evicted from the identity maps.
+     *
+     * @param closeQuery close the query when the cursor gets closed
+     */
+    public QueryCursor<Object> getTreeCursor(boolean closeQuery) throws SQLException {
+        Connection autoCommitConnection = this.query.disableAutoCommitForStreaming();
+        ResultSet resultSet = null;
+        try {
+            resultSet = this.query.getPreparedStatement().executeQuery();
+            Segment[] segments = createSegments(resultSet.getMetaData());
+            for (int i = 1; i < segments.length; i++) {
+                if (segments[i].parent < 0) {
+                    throw new IllegalStateException("A streamed tree requires exactly one top-level marker column");
+                }
+            }
+            return new TreeCursor(resultSet, new TreeBuilder(segments, true), autoCommitConnection, closeQuery);
+        } catch (SQLException | RuntimeException e) {
+            if (resultSet != null) {
+                resultSet.close();
+            }
+            this.query.restoreAutoCommit(autoCommitConnection);
+            throw e;
+        }
+    }
+
+    private List<?> buildTree(ResultSet resultSet)
+            throws SQLException {
+
+        TreeBuilder builder = new TreeBuilder(createSegments(resultSet.getMetaData()), false);
+        List<Object> topLevelRows = Lists.newArrayList();
+        while (resultSet.next()) {
+            builder.processRow(resultSet, topLevelRows);
+        }
+        return topLevelRows;
+    }
+
+    /**
+     * Holds the identity maps while the rows of a ResultSet are processed.
+     */
+    private final class TreeBuilder {
+
+        private final Segment[] segments;
+
+        // the entity of each segment in the current row
+        private final Node[] rowNodes;
+
+        private final boolean evictCompletedRoots;
+
+        private int nextId = 1;
+
+        /**
+         * @param evictCompletedRoots clear the identity maps when a new top-level entity starts
+         */
+        TreeBuilder(Segment[] segments, boolean evictCompletedRoots) {
+            this.segments = segments;
+            this.rowNodes = new Node[segments.length];
+            this.evictCompletedRoots = evictCompletedRoots;
+        }
+
+        /**
+         * Creates the entities of the current row that were not seen before.
+         *
+         * @param topLevelRows receives new top-level entities
+         */
+        void processRow(ResultSet resultSet, List<Object> topLevelRows) throws SQLException {
+            // parents precede their children
+            for (int i = 0; i < this.segments.length; i++) {
+                Segment segment = this.segments[i];
+                this.rowNodes[i] = null;
+
+                // Has current row data for this segment?
+                Object markerValue = segment.markerConverter.getValueFromResultSet(
+                        lSql, resultSet, segment.markerColumn);
+                if (markerValue == null) {
+                    continue;
+                }
+
+                Node parentNode = null;
+                if (segment.parent >= 0) {
+                    parentNode = this.rowNodes[segment.parent];
+                    if (parentNode == null) {
+                        continue;
+                    }
+                }
+
+                int parentId = parentNode != null ? parentNode.id : 0;
+                Node node = segment.get(parentId, markerValue);
+                if (node == null) {
+                    if (parentNode == null && this.evictCompletedRoots) {
+                        // the previous top-level entity is complete
+                        for (Segment other : this.segments) {
+                            other.clear();
+                        }
+                        this.nextId = 1;
+                    }
+                    Object entity = createEntity(
+                            parentNode != null ? parentNode.entity : null,
+                            segment,
+                            resultSet);
+                    node = new Node(this.nextId++, entity);
+                    segment.put(parentId, markerValue, node);
+
+                    if (parentNode == null) {
+                        topLevelRows.add(entity);
+                    }
+                }
+                this.rowNodes[i] = node;
+            }
+        }
+    }
+
+    private final class TreeCursor implements QueryCursor<Object> {
+
+        private final ResultSet resultSet;
+
+        private final TreeBuilder builder;
+
+        private final Connection autoCommitConnection;
+
+        private final boolean closeQuery;
+
+        // top-level entities of the rows read so far, the last one might still get children
+        private final List<Object> topLevelRows = Lists.newArrayList();
+
+        private final Deque<Object> completed = new ArrayDeque<>();
+
+        private boolean exhausted = false;
+
+        private boolean closed = false;
+
+        TreeCursor(ResultSet resultSet, TreeBuilder builder, Connection autoCommitConnection, boolean closeQuery) {
+            this.resultSet = resultSet;
+            this.builder = builder;
+            this.autoCommitConnection = autoCommitConnection;
+            this.closeQuery = closeQuery;
+        }
+
+        @Override
+        public boolean hasNext() {
+            try {
+                while (this.completed.isEmpty() && !this.exhausted && !this.closed) {
+                    if (this.resultSet.next()) {
+                        this.builder.processRow(this.resultSet, this.topLevelRows);
+                        if (this.topLevelRows.size() > 1) {
+                            Object current = this.topLevelRows.remove(this.topLevelRows.size() - 1);
+                            this.completed.addAll(this.topLevelRows);
+                            this.topLevelRows.clear();
+                            this.topLevelRows.add(current);
+                        }
+                    } else {
+                        this.exhausted = true;
+                        this.completed.addAll(this.topLevelRows);
+                        this.topLevelRows.clear();
+                    }
+                }
+            } catch (SQLException e) {
+                close();
+                throw new DatabaseAccessException(e);
+            } catch (RuntimeException e) {
+                close();
+                throw e;
+            }
+            if (this.completed.isEmpty()) {
+                close();
+                return false;
+            }
+            return true;
+        }
+
+        @Override
+        public Object next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            return this.completed.poll();
+        }
+
+        @Override
+        public void close() {
+            if (this.closed) {
+                return;
+            }
+            this.closed = true;
+            try {
+                this.resultSet.close();
+            } catch (SQLException e) {
+                throw new DatabaseAccessException(e);
+            } finally {
+                try {
+                    query.restoreAutoCommit(this.autoCommitConnection);
+                } finally {
+                    if (this.closeQuery) {
+                        query.close();
+                    }
+                }
+            }
+        }
+    }
+
+    private Segment[] createSegments(ResultSetMetaData metaData) throws SQLException {
+        // Table segments, the path order puts parents before their children
+        TreeMap<String, int[]> segmentHeaders = Maps.newTreeMap();
 
         // Normal columns
-        Map<Integer, ResultSetColumn> columns = Maps.newLinkedHashMap();
+        Map<Integer, ResultSetColumn> columns = Maps.newHashMap();
 
         // Build table segments and columns meta data
         int lastMarkerIndex = 1;
         String lastLabel = metaData.getColumnLabel(lastMarkerIndex).replaceAll(" ", "");
         assert isColumnMarker(lastLabel);
-        columns.put(1, new ResultSetColumn(1, lastLabel, new MarkerColumnConverter()));
         for (int i = 2; i <= metaData.getColumnCount(); i++) {
             String label = metaData.getColumnLabel(i);
             if (isColumnMarker(label)) {
                 label = label.replaceAll(" ", "");
-                columns.put(i, new ResultSetColumn(i, label, new MarkerColumnConverter()));
                 assert !segmentHeaders.containsKey(lastLabel);
-                segmentHeaders.put(lastLabel, new SegmentHeader(lastMarkerIndex, i - 1));
+                segmentHeaders.put(lastLabel, new int[]{lastMarkerIndex, i - 1});
                 lastLabel = label;
                 lastMarkerIndex = i;
             } else {
                 label = lSql.identifierSqlToJava(label);
                 Optional<Converter> converter = this.query.getConverterForResultSetColumn(metaData, i, label, false);
                 if (converter.isPresent()) {
-                    columns.put(i, new ResultSetColumn(i, label, converter.get()));
+                    columns.put(i, new ResultSetColumn(i, label, converter.get().specializeForColumn(metaData, i)));
                 }
             }
         }
-        segmentHeaders.put(lastLabel, new SegmentHeader(lastMarkerIndex, metaData.getColumnCount()));
-
-        // Entities
-        Map<List<MarkerColumnValue>, Object> entities = Maps.newHashMap();
-        List<Object> topLevelRows = Lists.newLinkedList();
-
-        // Iterate rows
-        while (resultSet.next()) {
-            TreeMap<String, Object> markerColumnValues = Maps.newTreeMap();
-
-            // First get marker column values to be independent from the marker ordering
-            for (Map.Entry<String, SegmentHeader> segment : segmentHeaders.entrySet()) {
-                int firstColumnIndex = segment.getValue().getFirstColumn();
-                ResultSetColumn rsc = columns.get(firstColumnIndex);
-
-                String path = rsc.getName();
-                Object value = rsc.getConverter().getValueFromResultSet(this.lSql, resultSet, firstColumnIndex);
-
-                markerColumnValues.put(path, value);
-            }
-
-            // Iterate segments and create entities
-            for (Map.Entry<String, SegmentHeader> segment : segmentHeaders.entrySet()) {
-
-                // Has current row data for this segment?
-                if (markerColumnValues.get(segment.getKey()) == null) {
-                    continue;
+        segmentHeaders.put(lastLabel, new int[]{lastMarkerIndex, metaData.getColumnCount()});
+
+        List<String> paths = Lists.newArrayList(segmentHeaders.keySet());
+        Segment[] segments = new Segment[paths.size()];
+        for (int s = 0; s < segments.length; s++) {
+            String path = paths.get(s);
+            int[] header = segmentHeaders.get(path);
+
+            List<ResultSetColumn> segmentColumns = Lists.newArrayList();
+            for (int i = header[0] + 1; i <= header[1]; i++) {
+                ResultSetColumn column = columns.get(i);
+                if (column != null) {
+                    segmentColumns.add(column);
                 }
+            }
 
-                // create entity for current segment
-                List<MarkerColumnValue> fullPath = getFullPath(segment, markerColumnValues);
-                if (!entities.containsKey(fullPath)) {
-                    List<MarkerColumnValue> parentPath = fullPath.subList(0, fullPath.size() - 1);
-                    Object parent = entities.get(parentPath);
-
-                    String path = segment.getKey();
-                    String fieldNameInParent = getFieldNameInParent(path);
-                    boolean isList = isPathList(path);
-
-                    Object entity = createEntity(
-                            parent,
-                            fieldNameInParent,
-                            isList,
-                            resultSet,
-                            columns,
-                            segment.getValue().getFirstColumn() + 1,
-                            segment.getValue().getLastColumn());
-
-                    entities.put(fullPath, entity);
-
-                    if (fullPath.size() == 1) {
-                        topLevelRows.add(entity);
-                    }
+            // the parent is the longest other path that is a prefix of this path
+            int parent = -1;
+            for (int p = 0; p < s; p++) {
+                if (path.startsWith(paths.get(p))) {
+                    parent = p;
                 }
             }
-        }
 
-        return topLevelRows;
+            segments[s] = new Segment(
+                    header[0],
+                    new MarkerColumnConverter(),
+                    segmentColumns.toArray(new ResultSetColumn[segmentColumns.size()]),
+                    parent,
+                    getFieldNameInParent(path),
+                    isPathList(path));
+        }
+        return segments;
     }
 
     private Object createEntity(Object parent,
-                                String fieldNameInParent,
-                                boolean isList,
-                                ResultSet resultSet,
-                                Map<Integer, ResultSetColumn> columns,
-                                int firstColumn,
-                                int lastColumn) {
-
-        Object entity = this.entityCreator.createEntity(parent, fieldNameInParent, isList);
-        for (int i = firstColumn; i <= lastColumn; i++) {
-            ResultSetColumn column = columns.get(i);
+                                Segment segment,
+                                ResultSet resultSet) {
+
+        Object entity = this.entityCreator.createEntity(parent, segment.fieldNameInParent, segment.isList);
+        for (ResultSetColumn column : segment.columns) {
             try {
-                String label = column.getName();
-                Object val = column.getConverter().getValueFromResultSet(lSql, resultSet, i);
-                this.entityCreator.setValue(entity, label, val);
+                Object val = column.getConverter().getValueFromResultSet(lSql, resultSet, column.getPosition());
+                this.entityCreator.setValue(entity, column.getName(), val);
             } catch (SQLException e) {
                 throw new RuntimeException(e);
             }
@@ -215,19 +449,6 @@ public class QueryToTreeConverter {
         return entity;
     }
 
-    private List<MarkerColumnValue> getFullPath(Map.Entry<String, SegmentHeader> segment,
-                                                TreeMap<String, Object> markerColumnValues) {
-
-        List<MarkerColumnValue> fullPath = newLinkedList();
-        String path = segment.getKey();
-        for (Map.Entry<String, Object> entry : markerColumnValues.entrySet()) {
-            if (path.startsWith(entry.getKey())) {
-                fullPath.add(new MarkerColumnValue(entry.getKey(), entry.getValue()));
-            }
-        }
-        return fullPath;
-    }
-
     private boolean isColumnMarker(String rawLabel) {
         rawLabel = rawLabel.trim();
         return rawLabel.startsWith("/") || rawLabel.startsWith("=");
@@ -0,0 +1,108 @@
+package com.w11k.lsql.query;
+
+import com.google.common.collect.ImmutableList;
+import com.w11k.lsql.ResultSetColumn;
+import com.w11k.lsql.ResultSetWithColumns;
+import com.w11k.lsql.converter.Converter;
+
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * The columns and converters of a query's ResultSet. Valid as long as the ResultSet has the same
+ * column types and labels and the query uses the same converters.
+ */
+final class ResultSetDecoderPlan {
+
+    /**
+     * Upper bound for the initial capacity of result buffers. A single large result must not
+     * make every later execution pre-allocate that many slots.
+     */
+    static final int MAX_ROW_COUNT_HINT = 1024;
+
+    private final int[] columnTypes;
+
+    private final String[] columnLabels;
+
+    private final Map<String, Converter> queryConverters;
+
+    private final boolean ignoreDuplicateColumns;
+
+    private final ImmutableList<ResultSetColumn> columns;
+
+    private final Map<String, ResultSetColumn> columnsByLabel;
+
+    private final LinkedHashMap<String, Converter> converters;
+
+    private volatile boolean conformityChecked = false;
+
+    private volatile int rowCountHint = 0;
+
+    ResultSetDecoderPlan(ResultSetMetaData metaData,
+                         Map<String, Converter> queryConverters,
+                         boolean ignoreDuplicateColumns,
+                         ResultSetWithColumns resultSetWithColumns) throws SQLException {
+
+        int count = metaData.getColumnCount();
+        this.columnTypes = new int[count];
+        this.columnLabels = new String[count];
+        for (int i = 0; i < count; i++) {
+            this.columnTypes[i] = metaData.getColumnType(i + 1);
+            this.columnLabels[i] = metaData.getColumnLabel(i + 1);
+        }
+        // copy, values might be null
+        this.queryConverters = Collections.unmodifiableMap(new HashMap<>(queryConverters));
+        this.ignoreDuplicateColumns = ignoreDuplicateColumns;
+        this.columns = ImmutableList.copyOf(resultSetWithColumns.getColumns());
+        this.columnsByLabel = resultSetWithColumns.getColumnsByLabel();
+        this.converters = resultSetWithColumns.getConverters();
+    }
+
+    boolean matches(ResultSetMetaData metaData,
+                    Map<String, Converter> queryConverters,
+                    boolean ignoreDuplicateColumns) throws SQLException {
+
+        if (this.ignoreDuplicateColumns != ignoreDuplicateColumns
+                || metaData.getColumnCount() != this.columnTypes.length
+                || !this.queryConverters.equals(queryConverters)) {
+            return false;
+        }
+        for (int i = 0; i < this.columnTypes.length; i++) {
+            if (metaData.getColumnType(i + 1) != this.columnTypes[i]
+                    || !this.columnLabels[i].equals(metaData.getColumnLabel(i + 1))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    ResultSetWithColumns createResultSetWithColumns(ResultSet resultSet, ResultSetMetaData metaData) {
+        return new ResultSetWithColumns(resultSet, metaData, this.columns, this.columnsByLabel, this.converters);
+    }
+
+    boolean isConformityChecked() {
+        return this.conformityChecked;
+    }
+
+    void setConformityChecked() {
+        this.conformityChecked = true;
+    }
+
+    /**
+     * @return the number of rows of the last completely read ResultSet, at most
+     * {@link #MAX_ROW_COUNT_HINT}
+     */
+    int getRowCountHint() {
+        return Math.min(this.rowCountHint, MAX_ROW_COUNT_HINT);
+    }
+
+    void setRowCountHint(int rowCountHint) {
+        this.rowCountHint = rowCountHint;
+    }
+
+}
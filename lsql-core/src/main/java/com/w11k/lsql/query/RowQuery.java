@@ -1,15 +1,28 @@
 package com.w11k.lsql.query;
 
+import com.google.common.collect.ImmutableList;
+import com.w11k.lsql.ColumnIndex;
+import com.w11k.lsql.IndexedRow;
 import com.w11k.lsql.LSql;
+import com.w11k.lsql.ResultSetColumn;
+import com.w11k.lsql.ResultSetWithColumns;
 import com.w11k.lsql.Row;
 import com.w11k.lsql.converter.Converter;
 
 import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Collection;
 import java.util.List;
 import java.util.Map;
 
 public class RowQuery extends AbstractQuery<Row> {
 
+    // the column index is shared by all rows with the same columns
+    private ColumnIndex columnIndex;
+
+    private Collection<ResultSetColumn> columnIndexSource;
+
     public RowQuery(LSql lSql, PreparedStatement preparedStatement, Map<String, Converter> outConverters) {
         super(lSql, preparedStatement, outConverters);
     }
@@ -17,7 +30,37 @@ public class RowQuery extends AbstractQuery<Row> {
     @SuppressWarnings("unchecked")
     @Override
     public List<Row> toTree() {
-        return (List<Row>) new QueryToTreeConverter(this, new RowEntityCreator()).getTree();
+        try {
+            return (List<Row>) new QueryToTreeConverter(this, createTreeEntityCreator()).getTree();
+        } finally {
+            this.close();
+        }
+    }
+
+    @Override
+    protected Row extractEntity(ResultSetWithColumns resultSetWithColumns) {
+        Collection<ResultSetColumn> columns = resultSetWithColumns.getColumnsByLabel().values();
+        if (this.columnIndexSource != columns) {
+            this.columnIndex = ColumnIndex.of(ImmutableList.copyOf(resultSetWithColumns.getColumnsByLabel().keySet()));
+            this.columnIndexSource = columns;
+        }
+
+        ResultSet resultSet = resultSetWithColumns.getResultSet();
+        Object[] values = new Object[this.columnIndex.size()];
+        int i = 0;
+        for (ResultSetColumn column : columns) {
+            try {
+                values[i++] = column.getConverter().getValueFromResultSet(getlSql(), resultSet, column.getPosition());
+            } catch (SQLException e) {
+                throw new RuntimeException(e);
+            }
+        }
+        return new IndexedRow(this.columnIndex, values);
+    }
+
+    @Override
+    protected Row copyEntity(Row entity) {
+        return entity.copy();
     }
 
     @Override
@@ -30,6 +73,11 @@ public class RowQuery extends AbstractQuery<Row> {
         // noop
     }
 
+    @Override
+    protected EntityCreator createTreeEntityCreator() {
+        return new RowEntityCreator();
+    }
+
     @Override
     protected void setValue(Row entity, String name, Object value) {
         entity.put(name, value);
@@ -41,6 +41,10 @@ public class LSqlFile {
 
     private final Map<String, SqlStatementToPreparedStatement> statements = Maps.newHashMap();
 
+    private String contentHash;
+
+    private boolean loadedFromIndex = false;
+
     public LSqlFile(LSql lSql, String fileNameForDescription, String path) {
         this.lSql = lSql;
         this.fileNameForDescription = fileNameForDescription;
@@ -54,6 +58,17 @@ public class LSqlFile {
         return copyOf(statements);
     }
 
+    /**
+     * @return {@code true} if the statements were created from a precompiled {@link LSqlFileIndex}
+     */
+    public boolean isLoadedFromIndex() {
+        return loadedFromIndex;
+    }
+
+    public String getContentHash() {
+        return contentHash;
+    }
+
     public AbstractSqlStatement<RowQuery> statement(String name) {
         final SqlStatementToPreparedStatement stmtToPs = getStatement(name);
         return new AbstractSqlStatement<RowQuery>(stmtToPs) {
@@ -93,6 +108,84 @@ public class LSqlFile {
         logger.info("Reading SQL file '" + fileNameForDescription + "'");
         statements.clear();
 
+        InputStream is = openStream(path);
+        if (is == null) {
+            throw new RuntimeException("Unable to read file '" + path + "'");
+        }
+
+        String content;
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(is))) {
+            content = CharStreams.toString(reader);
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+        this.contentHash = LSqlFileIndex.hashContent(content);
+
+        if (loadFromIndex(content)) {
+            return;
+        }
+
+        Matcher startMatcher = STMT_BLOCK_BEGIN.matcher(content);
+
+        int endOfLastMatch = -1;
+        while (startMatcher.find()) {
+            if (startMatcher.start() <= endOfLastMatch) {
+                continue;
+            }
+
+            String stmtName = startMatcher.group(1);
+            String typeAnnotation = "";
+            if (stmtName.contains(":")) {
+                int idxColon = stmtName.indexOf(":");
+                typeAnnotation = stmtName.substring(idxColon + 1);
+                stmtName = stmtName.substring(0, idxColon);
+            }
+
+            String sub = content.substring(startMatcher.end());
+            Matcher endMatcher = STMT_BLOCK_END.matcher(sub);
+            if (!endMatcher.find()) {
+                throw new IllegalStateException(
+                        "Could not find the end of the SQL expression '" +
+                                stmtName + "'. Did you add ';' at the end?");
+            }
+            sub = sub.substring(0, endMatcher.end()).trim();
+            endOfLastMatch = startMatcher.start() + (startMatcher.end() - startMatcher.start()) + endMatcher.end();
+
+            if (!this.areAllLinesCommented(sub)) {
+                logger.debug("Found SQL statement '{}'", stmtName);
+                SqlStatementToPreparedStatement stmt = new SqlStatementToPreparedStatement(
+                        lSql, fileNameForDescription, stmtName, typeAnnotation, sub);
+                statements.put(stmtName, stmt);
+            }
+        }
+    }
+
+    private boolean loadFromIndex(String content) {
+        InputStream is = openStream(path + LSqlFileIndex.FILE_EXTENSION);
+        if (is == null) {
+            return false;
+        }
+
+        LSqlFileIndex index;
+        try (InputStream indexStream = is) {
+            index = LSqlFileIndex.read(indexStream);
+        } catch (IOException e) {
+            logger.warn("Ignoring unreadable index for SQL file '" + fileNameForDescription + "'", e);
+            return false;
+        }
+
+        if (!index.isValidFor(content)) {
+            logger.info("Ignoring outdated index for SQL file '" + fileNameForDescription + "'");
+            return false;
+        }
+
+        logger.debug("Using index for SQL file '{}'", fileNameForDescription);
+        statements.putAll(index.createStatements(lSql, fileNameForDescription));
+        this.loadedFromIndex = true;
+        return true;
+    }
+
+    private InputStream openStream(String path) {
         // a) try to load path via classloader
         InputStream is = getClass().getResourceAsStream(path);
         if (is == null) {
@@ -100,49 +193,10 @@ public class LSqlFile {
                 // b) try to load path via file system
                 is = new FileInputStream(path);
             } catch (FileNotFoundException e) {
-                throw new RuntimeException("Unable to read file '" + path + "'");
+                return null;
             }
         }
-
-        try {
-            BufferedReader reader = new BufferedReader(new InputStreamReader(is));
-            String content = CharStreams.toString(reader);
-            Matcher startMatcher = STMT_BLOCK_BEGIN.matcher(content);
-
-            int endOfLastMatch = -1;
-            while (startMatcher.find()) {
-                if (startMatcher.start() <= endOfLastMatch) {
-                    continue;
-                }
-
-                String stmtName = startMatcher.group(1);
-                String typeAnnotation = "";
-                if (stmtName.contains(":")) {
-                    int idxColon = stmtName.indexOf(":");
-                    typeAnnotation = stmtName.substring(idxColon + 1);
-                    stmtName = stmtName.substring(0, idxColon);
-                }
-
-                String sub = content.substring(startMatcher.end());
-                Matcher endMatcher = STMT_BLOCK_END.matcher(sub);
-                if (!endMatcher.find()) {
-                    throw new IllegalStateException(
-                            "Could not find the end of the SQL expression '" +
-                                    stmtName + "'. Did you add ';' at the end?");
-                }
-                sub = sub.substring(0, endMatcher.end()).trim();
-                endOfLastMatch = startMatcher.start() + (startMatcher.end() - startMatcher.start()) + endMatcher.end();
-
-                if (!this.areAllLinesCommented(sub)) {
-                    logger.debug("Found SQL statement '{}'", stmtName);
-                    SqlStatementToPreparedStatement stmt = new SqlStatementToPreparedStatement(
-                            lSql, fileNameForDescription, stmtName, typeAnnotation, sub);
-                    statements.put(stmtName, stmt);
-                }
-            }
-        } catch (IOException e) {
-            throw new RuntimeException(e);
-        }
+        return is;
     }
 
     private boolean areAllLinesCommented(String sqlString) {
@@ -0,0 +1,197 @@
+package com.w11k.lsql.sqlfile;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.hash.Hashing;
+import com.w11k.lsql.LSql;
+import com.w11k.lsql.statement.SqlStatementToPreparedStatement;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Precompiled form of an {@link LSqlFile}: statement boundaries, parameter positions and type
+ * aliases. Created by the CLI and stored next to the SQL file with the extension {@code .sql.idx}.
+ * <p/>
+ * The index contains the hash of the SQL file it was created from. {@link LSqlFile} only uses an
+ * index with the current {@link #VERSION} and a matching hash, otherwise the file gets parsed.
+ */
+public final class LSqlFileIndex {
+
+    public static final int VERSION = 1;
+
+    public static final String FILE_EXTENSION = ".idx";
+
+    private static final ObjectMapper MAPPER = new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT);
+
+    public static String hashContent(String content) {
+        return Hashing.murmur3_128().hashString(content, StandardCharsets.UTF_8).toString();
+    }
+
+    public static LSqlFileIndex create(LSqlFile lSqlFile) {
+        List<StatementEntry> entries = Lists.newArrayList();
+        for (SqlStatementToPreparedStatement stmt : lSqlFile.getStatements().values()) {
+            List<SqlStatementToPreparedStatement.Parameter> parameters = Lists.newArrayList();
+            stmt.getParameters().values().forEach(parameters::addAll);
+            parameters.sort(Comparator.comparingInt(SqlStatementToPreparedStatement.Parameter::getStartIndex));
+
+            entries.add(new StatementEntry(
+                    stmt.getStatementName(),
+                    stmt.getTypeAnnotation(),
+                    stmt.getSqlString(),
+                    parameters,
+                    stmt.getOutConverterAliases()));
+        }
+        entries.sort(Comparator.comparing(e -> e.name));
+        return new LSqlFileIndex(VERSION, lSqlFile.getContentHash(), entries);
+    }
+
+    public static LSqlFileIndex read(InputStream inputStream) throws IOException {
+        JsonNode root = MAPPER.readTree(inputStream);
+        if (root == null || !root.has("version")) {
+            throw new IOException("Not an LSqlFile index");
+        }
+
+        List<StatementEntry> entries = Lists.newArrayList();
+        for (JsonNode stmtNode : root.path("statements")) {
+            List<SqlStatementToPreparedStatement.Parameter> parameters = Lists.newArrayList();
+            for (JsonNode p : stmtNode.path("parameters")) {
+                parameters.add(new SqlStatementToPreparedStatement.Parameter(
+                        p.path("name").asText(),
+                        p.path("type").asText(),
+                        p.path("start").asInt(),
+                        p.path("end").asInt(),
+                        p.path("default").asText()));
+            }
+
+            Map<String, String> outConverterAliases = Maps.newHashMap();
+            Iterator<Map.Entry<String, JsonNode>> fields = stmtNode.path("outConverterAliases").fields();
+            while (fields.hasNext()) {
+                Map.Entry<String, JsonNode> field = fields.next();
+                outConverterAliases.put(field.getKey(), field.getValue().asText());
+            }
+
+            entries.add(new StatementEntry(
+                    stmtNode.path("name").asText(),
+                    stmtNode.path("typeAnnotation").asText(),
+                    stmtNode.path("sql").asText(),
+                    parameters,
+                    outConverterAliases));
+        }
+
+        return new LSqlFileIndex(root.path("version").asInt(), root.path("contentHash").asText(), entries);
+    }
+
+    private final int version;
+
+    private final String contentHash;
+
+    private final ImmutableList<StatementEntry> statements;
+
+    private LSqlFileIndex(int version, String contentHash, List<StatementEntry> statements) {
+        this.version = version;
+        this.contentHash = contentHash;
+        this.statements = ImmutableList.copyOf(statements);
+    }
+
+    public int getVersion() {
+        return this.version;
+    }
+
+    public String getContentHash() {
+        return this.contentHash;
+    }
+
+    public int getNumberOfStatements() {
+        return this.statements.size();
+    }
+
+    /**
+     * @return {@code true} if this index has the current version and was created from the content
+     */
+    public boolean isValidFor(String content) {
+        return this.version == VERSION && this.contentHash.equals(hashContent(content));
+    }
+
+    public Map<String, SqlStatementToPreparedStatement> createStatements(LSql lSql, String statementSourceName) {
+        ImmutableMap.Builder<String, SqlStatementToPreparedStatement> builder = ImmutableMap.builder();
+        for (StatementEntry entry : this.statements) {
+            builder.put(entry.name, new SqlStatementToPreparedStatement(
+                    lSql,
+                    statementSourceName,
+                    entry.name,
+                    entry.typeAnnotation,
+                    entry.sql,
+                    entry.parameters,
+                    entry.outConverterAliases));
+        }
+        return builder.build();
+    }
+
+    public void write(OutputStream outputStream) throws IOException {
+        ObjectNode root = MAPPER.createObjectNode();
+        root.put("version", this.version);
+        root.put("contentHash", this.contentHash);
+        ArrayNode stmtNodes = root.putArray("statements");
+        for (StatementEntry entry : this.statements) {
+            ObjectNode stmtNode = stmtNodes.addObject();
+            stmtNode.put("name", entry.name);
+            stmtNode.put("typeAnnotation", entry.typeAnnotation);
+            stmtNode.put("sql", entry.sql);
+
+            ArrayNode parameterNodes = stmtNode.putArray("parameters");
+            for (SqlStatementToPreparedStatement.Parameter p : entry.parameters) {
+                ObjectNode parameterNode = parameterNodes.addObject();
+                parameterNode.put("name", p.getName());
+                parameterNode.put("type", p.getJavaTypeAlias());
+                parameterNode.put("start", p.getStartIndex());
+                parameterNode.put("end", p.getEndIndex());
+                parameterNode.put("default", p.getDefaultValue());
+            }
+
+            ObjectNode aliasNodes = stmtNode.putObject("outConverterAliases");
+            new TreeMap<>(entry.outConverterAliases).forEach(aliasNodes::put);
+        }
+        MAPPER.writeValue(outputStream, root);
+    }
+
+    private static final class StatementEntry {
+
+        final String name;
+
+        final String typeAnnotation;
+
+        final String sql;
+
+        final List<SqlStatementToPreparedStatement.Parameter> parameters;
+
+        final Map<String, String> outConverterAliases;
+
+        StatementEntry(String name,
+                       String typeAnnotation,
+                       String sql,
+                       List<SqlStatementToPreparedStatement.Parameter> parameters,
+                       Map<String, String> outConverterAliases) {
+            this.name = name;
+            this.typeAnnotation = typeAnnotation;
+            this.sql = sql;
+            this.parameters = parameters;
+            this.outConverterAliases = outConverterAliases;
+        }
+    }
+
+}
@@ -1,23 +1,54 @@
 package com.w11k.lsql.statement;
 
 import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
 import com.w11k.lsql.LSql;
 import com.w11k.lsql.Row;
 import com.w11k.lsql.converter.Converter;
 import com.w11k.lsql.exceptions.DatabaseAccessException;
+import com.w11k.lsql.query.AbstractQuery;
+import com.w11k.lsql.query.QueryResultCache;
 
 import java.sql.PreparedStatement;
+import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
+import java.util.function.UnaryOperator;
 
-public abstract class AbstractSqlStatement<T> {
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkState;
+
+/**
+ * A parameterized SQL statement. Each call to {@link #query()} creates a new query that owns its
+ * {@link PreparedStatement}. Closing the statement closes all of its queries that are still open.
+ */
+public abstract class AbstractSqlStatement<T> implements AutoCloseable {
 
     private final SqlStatementToPreparedStatement sqlStatementToPreparedStatement;
 
     private final Map<String, Converter> parameterConverters = Maps.newHashMap();
 
+    private final Set<AutoCloseable> openQueries = Collections.newSetFromMap(new WeakHashMap<>());
+
+    private Integer fetchSize = null;
+
+    private Set<String> resultCacheTables = null;
+
+    private long offset = 0;
+
+    private Long limit = null;
+
+    private SqlStatementToPreparedStatement treePageStatement = null;
+
     public AbstractSqlStatement(SqlStatementToPreparedStatement sqlStatementToPreparedStatement) {
         this.sqlStatementToPreparedStatement = sqlStatementToPreparedStatement;
     }
@@ -27,6 +58,81 @@ public abstract class AbstractSqlStatement<T> {
         return this;
     }
 
+    /**
+     * Sets the JDBC fetch size of the queries created by this statement. Overrides
+     * {@link com.w11k.lsql.Config#getDefaultFetchSize()}.
+     */
+    public AbstractSqlStatement<T> setFetchSize(Integer fetchSize) {
+        this.fetchSize = fetchSize;
+        return this;
+    }
+
+    /**
+     * Restricts the queries created by this statement to the first {@code limit} rows.
+     */
+    public AbstractSqlStatement<T> limit(long limit) {
+        return page(0, limit);
+    }
+
+    /**
+     * Restricts the queries created by this statement to {@code limit} rows after skipping
+     * {@code offset} rows. The SQL gets rewritten with the syntax of the dialect, see
+     * {@link com.w11k.lsql.dialects.StatementCreator#createLimitedSelect(String, long, long)}.
+     * The statement should define an order.
+     */
+    public AbstractSqlStatement<T> page(long offset, long limit) {
+        checkArgument(offset >= 0, "offset must be >= 0");
+        checkArgument(limit > 0, "limit must be > 0");
+        checkState(this.treePageStatement == null, "page() can not be combined with treePage()");
+        this.offset = offset;
+        this.limit = limit;
+        return this;
+    }
+
+    /**
+     * Restricts the queries created by this statement to the rows of {@code limit} root entities
+     * after skipping {@code offset} root entities, e.g. for {@link AbstractQuery#toTree()}. Unlike
+     * {@link #page(long, long)}, trees are never cut in half. The root entities are ordered by the
+     * value of the root marker column, see
+     * {@link com.w11k.lsql.dialects.StatementCreator#createRootPageSelect(String, long, long)}.
+     */
+    public AbstractSqlStatement<T> treePage(long offset, long limit) {
+        checkArgument(offset >= 0, "offset must be >= 0");
+        checkArgument(limit > 0, "limit must be > 0");
+        checkState(this.limit == null, "treePage() can not be combined with page()");
+        SqlStatementToPreparedStatement statement = this.sqlStatementToPreparedStatement;
+        String sql = statement.getlSql().getStatementCreator()
+                .createRootPageSelect(statement.getSqlString(), offset, limit);
+        // the parsed page statement is shared by all statements with the same source and page
+        this.treePageStatement = statement.getlSql().getCompiledStatement(
+                sql,
+                statement.getStatementSourceName(),
+                statement.getStatementName(),
+                statement.getTypeAnnotation());
+        return this;
+    }
+
+    /**
+     * Caches the results of {@link AbstractQuery#toList()} in the {@link QueryResultCache}, keyed by
+     * the statement and the parameter values. Writes through {@link com.w11k.lsql.Table} to one of
+     * the tables invalidate the cached results. Results read inside a transaction, i.e. with
+     * autocommit disabled, are not cached. The queries prepare their statement on first use, so a
+     * cache hit neither obtains a connection nor prepares a statement.
+     *
+     * @param tables the tables read by the statement in the Java or SQL format, optionally
+     *               qualified by the schema
+     */
+    public AbstractSqlStatement<T> cacheResults(String... tables) {
+        LSql lSql = this.sqlStatementToPreparedStatement.getlSql();
+        ImmutableSet.Builder<String> names = ImmutableSet.builder();
+        for (String table : tables) {
+            // the name might be given in the Java or in the SQL format
+            names.add(table, lSql.identifierJavaToSql(table));
+        }
+        this.resultCacheTables = names.build();
+        return this;
+    }
+
     public T query() {
         return query(Maps.<String, Object>newHashMap());
     }
@@ -36,18 +142,88 @@ public abstract class AbstractSqlStatement<T> {
     }
 
     public T query(Map<String, Object> queryParameters) {
+        SqlStatementToPreparedStatement statement = this.treePageStatement != null
+                ? this.treePageStatement
+                : this.sqlStatementToPreparedStatement;
         try {
-            PreparedStatement ps = this.sqlStatementToPreparedStatement.createPreparedStatement(queryParameters, this.parameterConverters);
-            return createQueryInstance(
-                    this.sqlStatementToPreparedStatement.getlSql(),
+            // with a result cache, the statement is prepared on first use so that a hit skips it
+            boolean deferred = this.resultCacheTables != null;
+            PreparedStatement ps = deferred ? null : statement.createPreparedStatement(
+                    queryParameters, this.parameterConverters, createSqlRewrite());
+            T query = createQueryInstance(
+                    statement.getlSql(),
                     ps,
-                    this.sqlStatementToPreparedStatement.getOutConverters());
+                    statement.getOutConverters());
+            if (query instanceof AbstractQuery) {
+                AbstractQuery<?> abstractQuery = (AbstractQuery<?>) query;
+                abstractQuery.setDecoderPlanCache(statement.getDecoderPlanCache());
+                if (deferred) {
+                    Map<String, Object> parameters = Maps.newHashMap(queryParameters);
+                    UnaryOperator<String> sqlRewrite = createSqlRewrite();
+                    abstractQuery.setPreparedStatementFactory(() -> statement.createPreparedStatement(
+                            parameters, this.parameterConverters, sqlRewrite));
+
+                    QueryResultCache resultCache = statement.getlSql().getQueryResultCache();
+                    List<Object> statementKey = Arrays.asList(statement.getSqlString(), this.offset, this.limit,
+                            Maps.newHashMap(this.parameterConverters));
+                    abstractQuery.setResultCacheLookup(
+                            resultCache.lookup(statementKey, parameters, this.resultCacheTables));
+                }
+                if (this.fetchSize != null) {
+                    abstractQuery.setFetchSize(this.fetchSize);
+                }
+            } else {
+                checkState(!deferred, "cacheResults() requires queries derived from AbstractQuery");
+            }
+            if (query instanceof AutoCloseable) {
+                synchronized (this.openQueries) {
+                    this.openQueries.add((AutoCloseable) query);
+                }
+            }
+            return query;
         } catch (SQLException e) {
             throw new RuntimeException(e);
         }
 
     }
 
+    /**
+     * Creates and consumes the query on the {@link com.w11k.lsql.jdbc.JdbcExecutor}, e.g.
+     * {@code statement.queryAsync(params, RowQuery::toList)}.
+     */
+    public <R> CompletableFuture<R> queryAsync(Map<String, Object> queryParameters, Function<T, R> consumer) {
+        return this.sqlStatementToPreparedStatement.getlSql().executeAsync(
+                () -> consumer.apply(query(queryParameters)));
+    }
+
+    public long count(Object... keyVals) {
+        return count(Row.fromKeyVals(keyVals));
+    }
+
+    /**
+     * Counts the rows of the statement with {@code SELECT COUNT(*) FROM (...)}, see
+     * {@link com.w11k.lsql.dialects.StatementCreator#createCountSelect(String)}. Ignores
+     * {@link #page(long, long)} and {@link #treePage(long, long)}.
+     */
+    public long count(Map<String, Object> queryParameters) {
+        LSql lSql = this.sqlStatementToPreparedStatement.getlSql();
+        return queryLong(queryParameters, sql -> lSql.getStatementCreator().createCountSelect(sql));
+    }
+
+    public boolean exists(Object... keyVals) {
+        return exists(Row.fromKeyVals(keyVals));
+    }
+
+    /**
+     * Checks if the statement returns at least one row without reading the rows, see
+     * {@link com.w11k.lsql.dialects.StatementCreator#createExistsSelect(String)}. Ignores
+     * {@link #page(long, long)} and {@link #treePage(long, long)}.
+     */
+    public boolean exists(Map<String, Object> queryParameters) {
+        LSql lSql = this.sqlStatementToPreparedStatement.getlSql();
+        return queryLong(queryParameters, sql -> lSql.getStatementCreator().createExistsSelect(sql)) != 0;
+    }
+
     public void execute() {
         execute(Maps.<String, Object>newHashMap());
     }
@@ -59,12 +235,102 @@ public abstract class AbstractSqlStatement<T> {
     public void execute(Map<String, Object> queryParameters) {
         try {
             PreparedStatement ps = this.sqlStatementToPreparedStatement.createPreparedStatement(queryParameters, this.parameterConverters);
-            ps.execute();
+            LSql lSql = this.sqlStatementToPreparedStatement.getlSql();
+            try {
+                ps.execute();
+            } finally {
+                lSql.getStatementCreator().releasePreparedStatement(lSql, ps);
+            }
+        } catch (SQLException e) {
+            throw new DatabaseAccessException(e);
+        }
+    }
+
+    /**
+     * Runs {@link #execute(Map)} on the {@link com.w11k.lsql.jdbc.JdbcExecutor}.
+     */
+    public CompletableFuture<Void> executeAsync(Map<String, Object> queryParameters) {
+        return this.sqlStatementToPreparedStatement.getlSql().executeAsync(() -> {
+            execute(queryParameters);
+            return null;
+        });
+    }
+
+    /**
+     * Executes the statement for each parameter set using JDBC batches of
+     * {@link com.w11k.lsql.Config#getBatchChunkSize()} rows.
+     *
+     * @return the update count for each parameter set
+     */
+    public int[] executeBatch(Iterable<? extends Map<String, Object>> parameterSets) {
+        return executeBatch(parameterSets, this.sqlStatementToPreparedStatement.getlSql().getConfig().getBatchChunkSize());
+    }
+
+    /**
+     * Executes the statement for each parameter set using JDBC batches of {@code chunkSize} rows.
+     *
+     * @return the update count for each parameter set
+     */
+    public int[] executeBatch(Iterable<? extends Map<String, Object>> parameterSets, int chunkSize) {
+        try {
+            return this.sqlStatementToPreparedStatement.executeBatch(parameterSets, this.parameterConverters, chunkSize);
+        } catch (SQLException e) {
+            throw new DatabaseAccessException(e);
+        }
+    }
+
+    /**
+     * Closes all queries created by this statement.
+     */
+    @Override
+    public void close() {
+        List<AutoCloseable> queries;
+        synchronized (this.openQueries) {
+            queries = Lists.newArrayList(this.openQueries);
+            this.openQueries.clear();
+        }
+        for (AutoCloseable query : queries) {
+            try {
+                query.close();
+            } catch (RuntimeException e) {
+                throw e;
+            } catch (Exception e) {
+                throw new RuntimeException(e);
+            }
+        }
+    }
+
+    /**
+     * @return the value of the first column of the first row or 0 if there is no row
+     */
+    private long queryLong(Map<String, Object> queryParameters, UnaryOperator<String> sqlRewrite) {
+        LSql lSql = this.sqlStatementToPreparedStatement.getlSql();
+        try {
+            PreparedStatement ps = this.sqlStatementToPreparedStatement.createPreparedStatement(
+                    queryParameters, this.parameterConverters, sqlRewrite);
+            try {
+                ps.setMaxRows(1);
+                try (ResultSet resultSet = ps.executeQuery()) {
+                    return resultSet.next() ? resultSet.getLong(1) : 0;
+                }
+            } finally {
+                lSql.getStatementCreator().releasePreparedStatement(lSql, ps);
+            }
         } catch (SQLException e) {
             throw new DatabaseAccessException(e);
         }
     }
 
+    private UnaryOperator<String> createSqlRewrite() {
+        if (this.limit == null) {
+            return null;
+        }
+        long offset = this.offset;
+        long limit = this.limit;
+        LSql lSql = this.sqlStatementToPreparedStatement.getlSql();
+        return sql -> lSql.getStatementCreator().createLimitedSelect(sql, offset, limit);
+    }
+
     abstract protected T createQueryInstance(LSql lSql, PreparedStatement ps, Map<String, Converter> outConverters);
 
     public ImmutableMap<String, List<SqlStatementToPreparedStatement.Parameter>> getParameters() {
@@ -5,6 +5,7 @@ import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
 import com.google.common.primitives.Doubles;
+import com.google.common.primitives.Ints;
 import com.google.common.primitives.Longs;
 import com.w11k.lsql.LSql;
 import com.w11k.lsql.ListLiteralQueryParameter;
@@ -12,16 +13,19 @@ import com.w11k.lsql.LiteralQueryParameter;
 import com.w11k.lsql.QueryParameter;
 import com.w11k.lsql.converter.Converter;
 import com.w11k.lsql.exceptions.QueryException;
+import com.w11k.lsql.query.DecoderPlanCache;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.sql.PreparedStatement;
 import java.sql.SQLException;
 import java.util.*;
+import java.util.function.UnaryOperator;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
 import static com.google.common.base.CharMatcher.anyOf;
+import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.base.Splitter.on;
 import static com.google.common.collect.Lists.newLinkedList;
 
@@ -50,9 +54,22 @@ public class SqlStatementToPreparedStatement {
 
     private final String sqlString;
 
-    private final Map<String, List<Parameter>> parameters;
+    private final ImmutableMap<String, List<Parameter>> parameters;
 
-    private final Map<String, Converter> outConverters;
+    private final ImmutableMap<String, String> outConverterAliases;
+
+    private final ImmutableMap<String, Converter> outConverters;
+
+    private final SqlTemplate template;
+
+    private final ImmutableMap<String, int[]> slotIndexesByName;
+
+    private final BindingSlot[] bindingSlots;
+
+    private final DecoderPlanCache decoderPlanCache = new DecoderPlanCache();
+
+    private final ThreadLocal<BoundParameters> boundParameters =
+            ThreadLocal.withInitial(() -> new BoundParameters(getBindingSlotCount()));
 
     public SqlStatementToPreparedStatement(LSql lSql, String statementSourceName, String statementName, String typeAnnotation, String sqlString) {
         this.lSql = lSql;
@@ -60,8 +77,43 @@ public class SqlStatementToPreparedStatement {
         this.statementName = statementName.trim();
         this.typeAnnotation = typeAnnotation.trim();
         this.sqlString = sqlString;
-        this.parameters = parseParameters();
-        this.outConverters = parseOutConverters();
+        this.parameters = ImmutableMap.copyOf(parseParameters());
+        this.outConverterAliases = ImmutableMap.copyOf(parseOutConverterAliases());
+        this.outConverters = resolveOutConverters();
+        this.template = compileTemplate();
+        this.slotIndexesByName = createSlotIndexesByName();
+        this.bindingSlots = createBindingSlots();
+    }
+
+    /**
+     * Creates the statement from already parsed parameters and out converter aliases, e.g. read
+     * from a {@link com.w11k.lsql.sqlfile.LSqlFileIndex}. The SQL string is not scanned.
+     */
+    public SqlStatementToPreparedStatement(LSql lSql,
+                                           String statementSourceName,
+                                           String statementName,
+                                           String typeAnnotation,
+                                           String sqlString,
+                                           List<Parameter> parameters,
+                                           Map<String, String> outConverterAliases) {
+        this.lSql = lSql;
+        this.statementSourceName = statementSourceName;
+        this.statementName = statementName.trim();
+        this.typeAnnotation = typeAnnotation.trim();
+        this.sqlString = sqlString;
+
+        Map<String, List<Parameter>> parametersByName = Maps.newHashMap();
+        for (Parameter p : parameters) {
+            checkArgument(p.startIndex >= 0 && p.startIndex < p.endIndex && p.endIndex <= sqlString.length(),
+                    "Invalid position for parameter '" + p.name + "' in statement '" + statementName + "'");
+            parametersByName.computeIfAbsent(p.name, k -> Lists.newLinkedList()).add(p);
+        }
+        this.parameters = ImmutableMap.copyOf(parametersByName);
+        this.outConverterAliases = ImmutableMap.copyOf(outConverterAliases);
+        this.outConverters = resolveOutConverters();
+        this.template = compileTemplate();
+        this.slotIndexesByName = createSlotIndexesByName();
+        this.bindingSlots = createBindingSlots();
     }
 
     public com.w11k.lsql.LSql getlSql() {
@@ -85,13 +137,31 @@ public class SqlStatementToPreparedStatement {
     }
 
     public ImmutableMap<String, List<Parameter>> getParameters() {
-        return ImmutableMap.copyOf(this.parameters);
+        return this.parameters;
     }
 
     public Map<String, Converter> getOutConverters() {
         return outConverters;
     }
 
+    /**
+     * Returns the type aliases of the result column annotations by Java column name.
+     */
+    public ImmutableMap<String, String> getOutConverterAliases() {
+        return this.outConverterAliases;
+    }
+
+    public SqlTemplate getTemplate() {
+        return this.template;
+    }
+
+    /**
+     * Returns the cached ResultSet decoder plans of the queries created for this statement.
+     */
+    public DecoderPlanCache getDecoderPlanCache() {
+        return this.decoderPlanCache;
+    }
+
     private Map<String, List<Parameter>> parseParameters() {
         Map<String, List<Parameter>> found = Maps.newHashMap();
 
@@ -130,8 +200,9 @@ public class SqlStatementToPreparedStatement {
                 throw new IllegalArgumentException("Unable to find end marker for parameter '" + p.name + "'");
             }
 
+            String placeHolderValue = sqlString.substring(matcher.end(0), paramEnd).trim();
+            p.defaultValue = placeHolderValue;
             if (Strings.isNullOrEmpty(p.javaTypeAlias)) {
-                String placeHolderValue = sqlString.substring(matcher.end(0), paramEnd).trim();
                 if (placeHolderValue.startsWith("'") && placeHolderValue.endsWith("'")) {
                     p.javaTypeAlias = "string";
                 } else if (Doubles.tryParse(placeHolderValue) != null && placeHolderValue.contains(".")) {
@@ -146,10 +217,6 @@ public class SqlStatementToPreparedStatement {
             paramEnd += QUERY_ARG_END.length();
             p.endIndex = paramEnd;
 
-
-            // Placeholder for PreparedStatement
-            p.placeholder = "?" + Strings.repeat(" ", p.endIndex - p.startIndex - 1);
-
             List<Parameter> parametersForName = found.containsKey(p.name) ? found.get(p.name) : Lists.newLinkedList();
 
             parametersForName.add(p);
@@ -158,6 +225,37 @@ public class SqlStatementToPreparedStatement {
         return found;
     }
 
+    private SqlTemplate compileTemplate() {
+        List<Parameter> all = Lists.newArrayList();
+        for (List<Parameter> parametersForName : this.parameters.values()) {
+            all.addAll(parametersForName);
+        }
+        all.sort(Comparator.comparingInt(p -> p.startIndex));
+        return new SqlTemplate(this.lSql, this.sqlString, all);
+    }
+
+    private ImmutableMap<String, int[]> createSlotIndexesByName() {
+        Map<String, List<Integer>> indexes = Maps.newHashMap();
+        for (int i = 0; i < this.template.getNumberOfSlots(); i++) {
+            String name = this.template.getSlot(i).name;
+            indexes.computeIfAbsent(name, k -> Lists.newArrayList()).add(i);
+        }
+
+        ImmutableMap.Builder<String, int[]> builder = ImmutableMap.builder();
+        for (Map.Entry<String, List<Integer>> entry : indexes.entrySet()) {
+            builder.put(entry.getKey(), Ints.toArray(entry.getValue()));
+        }
+        return builder.build();
+    }
+
+    private BindingSlot[] createBindingSlots() {
+        BindingSlot[] slots = new BindingSlot[this.template.getNumberOfSlots()];
+        for (int i = 0; i < slots.length; i++) {
+            slots[i] = new BindingSlot(this.lSql, this.template.getSlot(i));
+        }
+        return slots;
+    }
+
     private String extractParameterName(String sqlString, int start) {
         String left = sqlString.substring(0, start);
         left = left.trim();
@@ -171,10 +269,10 @@ public class SqlStatementToPreparedStatement {
         return name.trim();
     }
 
-    private Map<String, Converter> parseOutConverters() {
+    private Map<String, String> parseOutConverterAliases() {
         Matcher matcher = OUT_TYPE_ANNOTATION.matcher(this.sqlString);
 
-        Map<String, Converter> converters = Maps.newHashMap();
+        Map<String, String> aliases = Maps.newHashMap();
         while (matcher.find()) {
             // find word left from OUT_TYPE_ANNOTATION
             String alias = matcher.group(2);
@@ -188,11 +286,18 @@ public class SqlStatementToPreparedStatement {
             }
 
             String javaColumnName = this.getlSql().identifierSqlToJava(wordLeft);
-            Converter converter = this.getlSql().getConverterForAlias(alias);
-            converters.put(javaColumnName, converter);
+            aliases.put(javaColumnName, alias);
         }
 
-        return converters;
+        return aliases;
+    }
+
+    private ImmutableMap<String, Converter> resolveOutConverters() {
+        ImmutableMap.Builder<String, Converter> converters = ImmutableMap.builder();
+        for (Map.Entry<String, String> entry : this.outConverterAliases.entrySet()) {
+            converters.put(entry.getKey(), this.lSql.getConverterForAlias(entry.getValue()));
+        }
+        return converters.build();
     }
 
     private void log(Map<String, Object> queryParameters) {
@@ -209,123 +314,294 @@ public class SqlStatementToPreparedStatement {
         }
     }
 
-    private String processRawConversions(String sql, List<ParameterInPreparedStatement> parameterInPreparedStatements) {
-        int lastIndex = 0;
-        StringBuilder sqlCopy = new StringBuilder();
-
-        // Separate iteration because the following iteration will destroy the indexes
-        for (ParameterInPreparedStatement pips : parameterInPreparedStatements) {
-            if (pips.value instanceof LiteralQueryParameter) {
-                LiteralQueryParameter literalQueryParameter = (LiteralQueryParameter) pips.value;
-                sqlCopy.append(sql.substring(lastIndex, pips.parameter.startIndex));
-                sqlCopy.append(literalQueryParameter.getSqlString());
-                lastIndex = pips.parameter.endIndex;
-            }
-        }
-        sqlCopy.append(sql.substring(lastIndex));
-
-        return sqlCopy.toString();
+    public PreparedStatement createPreparedStatement(Map<String, Object> queryParameters,
+                                                     Map<String, Converter> parameterConverters) throws SQLException {
+        return createPreparedStatement(queryParameters, parameterConverters, null);
     }
 
+    /**
+     * @param sqlRewrite applied to the rendered SQL before it gets prepared, e.g. to restrict the
+     *                   number of rows. Must not change the order of the placeholders.
+     *                   {@code null} uses the rendered SQL.
+     */
     public PreparedStatement createPreparedStatement(Map<String, Object> queryParameters,
-                                                     Map<String, Converter> parameterConverters) throws SQLException {
+                                                     Map<String, Converter> parameterConverters,
+                                                     UnaryOperator<String> sqlRewrite) throws SQLException {
         log(queryParameters);
 
-        List<ParameterInPreparedStatement> parameterInPreparedStatements = newLinkedList();
-        String sqlStringCopy = this.sqlString;
-        for (String queryParameter : queryParameters.keySet()) {
-            List<Parameter> parametersByName = this.parameters.get(queryParameter);
-            if (parametersByName == null) {
-                throw new QueryException("Unused query parameter: " + queryParameter);
+        BoundParameters bound = bindParameters(queryParameters, parameterConverters);
+        try {
+            String sql = this.template.render(bound.present, bound.values);
+            if (sqlRewrite != null) {
+                sql = sqlRewrite.apply(sql);
             }
+            PreparedStatement ps = createTrackedPreparedStatement(sql);
 
-            for (Parameter p : parametersByName) {
-                String left = sqlStringCopy.substring(0, p.startIndex);
-                String right = sqlStringCopy.substring(p.endIndex);
-                sqlStringCopy = left + p.placeholder + right;
-
-                ParameterInPreparedStatement pips = new ParameterInPreparedStatement();
-                pips.parameter = p;
-                pips.value = queryParameters.get(queryParameter);
+            try {
+                setParameters(ps, bound);
+            } catch (RuntimeException | SQLException e) {
+                this.lSql.getStatementCreator().releasePreparedStatement(this.lSql, ps);
+                throw e;
+            }
 
-                // converter specified by API
-                if (parameterConverters != null) {
-                    pips.converter = parameterConverters.get(pips.parameter.name);
-                }
+            return ps;
+        } finally {
+            bound.release();
+        }
+    }
 
-                // converter specified by statement's 'param: type' annotation
-                if (pips.converter == null) {
-                    String parameterTypeAlias = p.getJavaTypeAlias();
-                    if (!Strings.isNullOrEmpty(parameterTypeAlias)) {
-                        pips.converter = this.lSql.getConverterForAlias(parameterTypeAlias);
+    /**
+     * Executes the statement once per parameter set with JDBC batching. Consecutive parameter sets
+     * that render the same SQL share one {@link PreparedStatement}, which is flushed every
+     * {@code chunkSize} rows.
+     *
+     * @return the update counts in the order of the parameter sets
+     */
+    public int[] executeBatch(Iterable<? extends Map<String, Object>> parameterSets,
+                              Map<String, Converter> parameterConverters,
+                              int chunkSize) throws SQLException {
+
+        checkArgument(chunkSize > 0, "chunkSize must be greater than 0");
+        this.logger.debug("Executing statement '{}' as batch", getDescriptiveStatementName());
+
+        List<int[]> updateCounts = Lists.newArrayList();
+        int totalCount = 0;
+        PreparedStatement ps = null;
+        String currentSql = null;
+        int rowsInChunk = 0;
+
+        try {
+            for (Map<String, Object> parameterSet : parameterSets) {
+                BoundParameters bound = bindParameters(parameterSet, parameterConverters);
+                try {
+                    String sql = this.template.render(bound.present, bound.values);
+
+                    if (ps != null && (rowsInChunk == chunkSize || !sql.equals(currentSql))) {
+                        int[] counts = ps.executeBatch();
+                        updateCounts.add(counts);
+                        totalCount += counts.length;
+                        rowsInChunk = 0;
+                        if (!sql.equals(currentSql)) {
+                            this.lSql.getStatementCreator().releasePreparedStatement(this.lSql, ps);
+                            ps = null;
+                        }
+                    }
+                    if (ps == null) {
+                        ps = createTrackedPreparedStatement(sql);
+                        currentSql = sql;
                     }
-                }
 
-                // check if the param type is correct
-                if (pips.converter != null
-                        && !(pips.value instanceof QueryParameter)
-                        && !(pips.value instanceof ListLiteralQueryParameter)
-                        && !pips.converter.isValueValid(pips.value)) {
-
-                    throw new IllegalArgumentException("Value for parameter '" + p.name + "' has the wrong type. "
-                            + "Expected: " + pips.converter.getJavaType().getCanonicalName()
-                            + ", actual: " + pips.value.getClass().getName());
+                    setParameters(ps, bound);
+                    ps.addBatch();
+                    rowsInChunk++;
+                } finally {
+                    bound.release();
                 }
+            }
 
-                parameterInPreparedStatements.add(pips);
+            if (ps != null && rowsInChunk > 0) {
+                int[] counts = ps.executeBatch();
+                updateCounts.add(counts);
+                totalCount += counts.length;
+            }
+        } finally {
+            if (ps != null) {
+                this.lSql.getStatementCreator().releasePreparedStatement(this.lSql, ps);
             }
         }
 
-        // sort parameters by their position in the SQL statement
-        parameterInPreparedStatements.sort(Comparator.comparingInt(o -> o.parameter.startIndex));
+        int[] result = new int[totalCount];
+        int offset = 0;
+        for (int[] counts : updateCounts) {
+            System.arraycopy(counts, 0, result, offset, counts.length);
+            offset += counts.length;
+        }
+        return result;
+    }
 
-        // RAW conversions
-        sqlStringCopy = processRawConversions(sqlStringCopy, parameterInPreparedStatements);
+    private PreparedStatement createTrackedPreparedStatement(String sql) {
+        return this.lSql.getStatementCreator().createPreparedStatement(
+                this.lSql, sql, false, getDescriptiveStatementName());
+    }
 
-        PreparedStatement ps = this.lSql.getStatementCreator()
-                .createPreparedStatement(this.lSql, sqlStringCopy, false);
+    /**
+     * Binds into the scratch state of the current thread. The result must be released after use.
+     */
+    private BoundParameters bindParameters(Map<String, Object> queryParameters,
+                                           Map<String, Converter> parameterConverters) {
 
-        int offset = 0;
-        for (int i = 0; i < parameterInPreparedStatements.size(); i++) {
-            ParameterInPreparedStatement pips = parameterInPreparedStatements.get(i);
-
-            if (pips.value instanceof QueryParameter) {
-                QueryParameter queryParameter = (QueryParameter) pips.value;
-                queryParameter.set(ps, i + 1);
-            } else if (pips.value instanceof LiteralQueryParameter) {
-                LiteralQueryParameter dqp = (LiteralQueryParameter) pips.value;
-                for (int localIndex = 0; localIndex < dqp.getNumberOfQueryParameters(); localIndex++) {
-                    dqp.set(ps, i + 1 + offset + localIndex, localIndex);
+        BoundParameters bound = this.boundParameters.get();
+        if (bound.inUse) {
+            // re-entrant call from a converter or parameter
+            bound = new BoundParameters(this.bindingSlots.length);
+        }
+        bound.inUse = true;
+
+        for (Map.Entry<String, Object> entry : queryParameters.entrySet()) {
+            int[] slotIndexes = this.slotIndexesByName.get(entry.getKey());
+            if (slotIndexes == null) {
+                bound.release();
+                throw new QueryException("Unused query parameter: " + entry.getKey());
+            }
+
+            Object value = entry.getValue();
+
+            // converter specified by API
+            Converter apiConverter = parameterConverters != null ? parameterConverters.get(entry.getKey()) : null;
+
+            for (int slotIndex : slotIndexes) {
+                BindingSlot slot = this.bindingSlots[slotIndex];
+
+                // converter specified by statement's 'param: type' annotation
+                Converter converter = apiConverter != null ? apiConverter : slot.getTypeAliasConverter(this.lSql);
+
+                // check if the param type is correct
+                if (converter != null
+                        && !(value instanceof QueryParameter)
+                        && !(value instanceof ListLiteralQueryParameter)
+                        && !converter.isValueValid(value)) {
+
+                    bound.release();
+                    throw new IllegalArgumentException("Value for parameter '" + slot.parameter.name + "' has the wrong type. "
+                            + "Expected: " + converter.getJavaType().getCanonicalName()
+                            + ", actual: " + value.getClass().getName());
                 }
 
-                // -1 because one ? was already set
-                offset += dqp.getNumberOfQueryParameters() - 1;
+                bound.present.set(slotIndex);
+                bound.values[slotIndex] = value;
+                bound.converters[slotIndex] = converter;
             }
-//            else if (pips.value == null) {
-//                ps.setNull(i + offset + 1, Types.OTHER);
-//            }
-            else {
+        }
+        return bound;
+    }
+
+    private void setParameters(PreparedStatement ps, BoundParameters bound) throws SQLException {
+        int psIndex = 1;
+        for (int i = bound.present.nextSetBit(0); i >= 0; i = bound.present.nextSetBit(i + 1)) {
+            Object value = bound.values[i];
+
+            if (value instanceof QueryParameter) {
+                ((QueryParameter) value).set(ps, psIndex++);
+            } else if (value instanceof LiteralQueryParameter) {
+                LiteralQueryParameter dqp = (LiteralQueryParameter) value;
+                int count = dqp.getNumberOfQueryParameters(this.lSql);
+                for (int localIndex = 0; localIndex < count; localIndex++) {
+                    dqp.set(this.lSql, ps, psIndex + localIndex, localIndex);
+                }
+                psIndex += count;
+            } else {
                 // converter by param type
-                if (pips.converter == null && pips.value != null) {
-                    pips.converter = this.lSql.getConverterForJavaType(pips.value.getClass());
+                Converter converter = bound.converters[i];
+                if (converter == null && value != null) {
+                    converter = this.bindingSlots[i].getConverterForJavaType(this.lSql, value.getClass());
                 }
-                if (pips.converter == null) {
-                    throw new IllegalArgumentException(this.statementName + ": no registered converter for parameter " + pips);
+                if (converter == null) {
+                    throw new IllegalArgumentException(this.statementName + ": no registered converter for parameter "
+                            + this.template.getSlot(i) + " with value " + value);
                 }
-                pips.converter.setValueInStatement(this.lSql, ps, i + offset + 1, pips.value);
+                converter.setValueInStatement(this.lSql, ps, psIndex++, value);
             }
         }
+    }
 
-        return ps;
+    private int getBindingSlotCount() {
+        return this.bindingSlots.length;
     }
 
     private String getDescriptiveStatementName() {
         return this.statementSourceName + "#" + this.statementName;
     }
 
-    public static final class Parameter {
-        String placeholder;
+    private static final class BoundParameters {
+
+        final BitSet present;
+
+        final Object[] values;
+
+        final Converter[] converters;
+
+        boolean inUse = false;
+
+        BoundParameters(int slotCount) {
+            this.present = new BitSet(slotCount);
+            this.values = new Object[slotCount];
+            this.converters = new Converter[slotCount];
+        }
+
+        /**
+         * Clears the bound values so that the scratch state does not keep them reachable.
+         */
+        void release() {
+            for (int i = this.present.nextSetBit(0); i >= 0; i = this.present.nextSetBit(i + 1)) {
+                this.values[i] = null;
+                this.converters[i] = null;
+            }
+            this.present.clear();
+            this.inUse = false;
+        }
+    }
+
+    /**
+     * Binding information of a parameter occurrence, resolved once per statement.
+     */
+    private static final class BindingSlot {
+
+        final Parameter parameter;
+
+        final Converter typeAliasConverter;
+
+        final boolean typeAliasResolved;
+
+        // memo for untyped parameters, replaced as a whole if the value class changes
+        JavaTypeConverter lastJavaTypeConverter;
+
+        BindingSlot(LSql lSql, Parameter parameter) {
+            this.parameter = parameter;
+            Converter converter = null;
+            boolean resolved = true;
+            if (!Strings.isNullOrEmpty(parameter.javaTypeAlias)) {
+                try {
+                    converter = lSql.getConverterForAlias(parameter.javaTypeAlias);
+                } catch (IllegalStateException e) {
+                    // unknown alias, fail when the parameter is used
+                    resolved = false;
+                }
+            }
+            this.typeAliasConverter = converter;
+            this.typeAliasResolved = resolved;
+        }
 
+        Converter getTypeAliasConverter(LSql lSql) {
+            if (!this.typeAliasResolved) {
+                return lSql.getConverterForAlias(this.parameter.javaTypeAlias);
+            }
+            return this.typeAliasConverter;
+        }
+
+        Converter getConverterForJavaType(LSql lSql, Class<?> javaType) {
+            JavaTypeConverter last = this.lastJavaTypeConverter;
+            if (last != null && last.javaType == javaType) {
+                return last.converter;
+            }
+            Converter converter = lSql.getConverterForJavaType(javaType);
+            this.lastJavaTypeConverter = new JavaTypeConverter(javaType, converter);
+            return converter;
+        }
+    }
+
+    private static final class JavaTypeConverter {
+
+        final Class<?> javaType;
+
+        final Converter converter;
+
+        JavaTypeConverter(Class<?> javaType, Converter converter) {
+            this.javaType = javaType;
+            this.converter = converter;
+        }
+    }
+
+    public static final class Parameter {
         String name;
 
         String javaTypeAlias;
@@ -334,6 +610,19 @@ public class SqlStatementToPreparedStatement {
 
         int endIndex;
 
+        String defaultValue;
+
+        Parameter() {
+        }
+
+        public Parameter(String name, String javaTypeAlias, int startIndex, int endIndex, String defaultValue) {
+            this.name = name;
+            this.javaTypeAlias = javaTypeAlias;
+            this.startIndex = startIndex;
+            this.endIndex = endIndex;
+            this.defaultValue = defaultValue;
+        }
+
         public String getName() {
             return name;
         }
@@ -350,32 +639,18 @@ public class SqlStatementToPreparedStatement {
             return javaTypeAlias;
         }
 
+        public String getDefaultValue() {
+            return defaultValue;
+        }
+
         @Override
         public String toString() {
             return "Parameter{" +
-                    "placeholder='" + placeholder + '\'' +
-                    ", name='" + name + '\'' +
+                    "name='" + name + '\'' +
                     ", javaTypeAlias='" + javaTypeAlias + '\'' +
                     ", startIndex=" + startIndex +
                     ", endIndex=" + endIndex +
-                    '}';
-        }
-    }
-
-    private final class ParameterInPreparedStatement {
-
-        Parameter parameter;
-
-        Object value;
-
-        Converter converter;
-
-        @Override
-        public String toString() {
-            return "ParameterInPreparedStatement{" +
-                    "parameter=" + parameter +
-                    "converter=" + converter +
-                    ", value=" + value +
+                    ", defaultValue='" + defaultValue + '\'' +
                     '}';
         }
     }
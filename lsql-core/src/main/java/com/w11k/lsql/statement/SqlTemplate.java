@@ -0,0 +1,152 @@
+package com.w11k.lsql.statement;
+
+import com.w11k.lsql.LSql;
+import com.w11k.lsql.LiteralQueryParameter;
+
+import java.util.BitSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Immutable, pre-compiled form of a SQL statement with parameter markers.
+ * <p>
+ * The SQL string is split once into literal chunks and parameter slots. Rendering
+ * walks the chunks in a single pass and replaces each slot either with a
+ * {@code ?} (parameter provided), the SQL of a {@link LiteralQueryParameter} or the
+ * statement's default value (parameter not provided). The marker comments are
+ * dropped from the rendered SQL.
+ * <p>
+ * Rendered strings are cached per parameter-presence signature, unless a
+ * {@link LiteralQueryParameter} contributes SQL that depends on its value.
+ */
+public final class SqlTemplate {
+
+    private static final int MAX_CACHED_SIGNATURES = 64;
+
+    private final LSql lSql;
+
+    private final String[] literals;
+
+    private final SqlStatementToPreparedStatement.Parameter[] slots;
+
+    private final String[] defaultValues;
+
+    private final boolean[] spaceBefore;
+
+    private final boolean[] spaceAfter;
+
+    private final int estimatedLength;
+
+    private final Map<BitSet, String> renderedBySignature = new ConcurrentHashMap<>();
+
+    /**
+     * @param lSql       used to render dialect-specific {@link LiteralQueryParameter}s
+     * @param sqlString  the original SQL string
+     * @param parameters all parameter occurrences, sorted by their start index
+     */
+    SqlTemplate(LSql lSql, String sqlString, List<SqlStatementToPreparedStatement.Parameter> parameters) {
+        this.lSql = lSql;
+        int count = parameters.size();
+        this.literals = new String[count + 1];
+        this.slots = parameters.toArray(new SqlStatementToPreparedStatement.Parameter[count]);
+        this.defaultValues = new String[count];
+        this.spaceBefore = new boolean[count];
+        this.spaceAfter = new boolean[count];
+
+        int lastIndex = 0;
+        int length = 0;
+        for (int i = 0; i < count; i++) {
+            SqlStatementToPreparedStatement.Parameter p = this.slots[i];
+            this.literals[i] = sqlString.substring(lastIndex, p.startIndex);
+            this.defaultValues[i] = p.defaultValue;
+            length += this.literals[i].length() + p.defaultValue.length();
+            lastIndex = p.endIndex;
+        }
+        this.literals[count] = sqlString.substring(lastIndex);
+        length += this.literals[count].length();
+        this.estimatedLength = length + 2 * count;
+
+        // the marker comments separated tokens, keep them apart when the comments are dropped
+        for (int i = 0; i < count; i++) {
+            this.spaceBefore[i] = endsWithWordChar(this.literals[i]);
+            this.spaceAfter[i] = startsWithWordChar(this.literals[i + 1]);
+        }
+    }
+
+    public int getNumberOfSlots() {
+        return this.slots.length;
+    }
+
+    public SqlStatementToPreparedStatement.Parameter getSlot(int index) {
+        return this.slots[index];
+    }
+
+    /**
+     * Renders the SQL for the given slot values.
+     *
+     * @param present per slot, whether a value was provided
+     * @param values  per slot, the provided value (only read for present slots)
+     */
+    public String render(BitSet present, Object[] values) {
+        boolean cacheable = true;
+        for (int i = present.nextSetBit(0); i >= 0; i = present.nextSetBit(i + 1)) {
+            if (values[i] instanceof LiteralQueryParameter) {
+                cacheable = false;
+                break;
+            }
+        }
+
+        if (!cacheable) {
+            return doRender(present, values);
+        }
+
+        String sql = this.renderedBySignature.get(present);
+        if (sql == null) {
+            sql = doRender(present, values);
+            if (this.renderedBySignature.size() < MAX_CACHED_SIGNATURES) {
+                this.renderedBySignature.putIfAbsent((BitSet) present.clone(), sql);
+            }
+        }
+        return sql;
+    }
+
+    private String doRender(BitSet present, Object[] values) {
+        StringBuilder sb = new StringBuilder(this.estimatedLength);
+        for (int i = 0; i < this.slots.length; i++) {
+            sb.append(this.literals[i]);
+
+            String slotSql;
+            if (!present.get(i)) {
+                slotSql = this.defaultValues[i];
+            } else if (values[i] instanceof LiteralQueryParameter) {
+                slotSql = ((LiteralQueryParameter) values[i]).getSqlString(this.lSql);
+            } else {
+                slotSql = "?";
+            }
+
+            if (this.spaceBefore[i] && startsWithWordChar(slotSql)) {
+                sb.append(' ');
+            }
+            sb.append(slotSql);
+            if (this.spaceAfter[i] && endsWithWordChar(slotSql)) {
+                sb.append(' ');
+            }
+        }
+        sb.append(this.literals[this.slots.length]);
+        return sb.toString();
+    }
+
+    private static boolean startsWithWordChar(String s) {
+        return !s.isEmpty() && isWordChar(s.charAt(0));
+    }
+
+    private static boolean endsWithWordChar(String s) {
+        return !s.isEmpty() && isWordChar(s.charAt(s.length() - 1));
+    }
+
+    private static boolean isWordChar(char c) {
+        return Character.isLetterOrDigit(c) || c == '_' || c == '\'' || c == '"' || c == '?';
+    }
+
+}
@@ -53,6 +53,21 @@ public abstract class AbstractLSqlTest {
             super.setUseColumnTypeForConverterLookupInQueries(useColumnTypeForConverterLookupInQueries);
         }
 
+        @Override
+        public void setPreparedStatementCacheSize(int preparedStatementCacheSize) {
+            super.setPreparedStatementCacheSize(preparedStatementCacheSize);
+        }
+
+        @Override
+        public void setJdbcExecutorClosesConnections(boolean jdbcExecutorClosesConnections) {
+            super.setJdbcExecutorClosesConnections(jdbcExecutorClosesConnections);
+        }
+
+        @Override
+        public void setStatementLeakDetectionThresholdMillis(long statementLeakDetectionThresholdMillis) {
+            super.setStatementLeakDetectionThresholdMillis(statementLeakDetectionThresholdMillis);
+        }
+
     }
 
     protected LSql lSql;
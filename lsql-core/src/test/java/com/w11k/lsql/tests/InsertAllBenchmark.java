@@ -0,0 +1,99 @@
+package com.w11k.lsql.tests;
+
+import com.google.common.collect.Lists;
+import com.w11k.lsql.Config;
+import com.w11k.lsql.LSql;
+import com.w11k.lsql.Row;
+import com.w11k.lsql.Table;
+import com.w11k.lsql.dialects.H2Dialect;
+import com.w11k.lsql.jdbc.ConnectionProviders;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares {@link Table#insertAll(Iterable)} (JDBC batches) with
+ * {@link Table#insertAllMultiRow(Iterable)} (multi-row VALUES) on an in-memory H2 database.
+ * <p/>
+ * Not part of the test run. Start it with
+ * {@code mvn -pl lsql-core test-compile exec:java -Dexec.classpathScope=test
+ * -Dexec.mainClass=com.w11k.lsql.tests.InsertAllBenchmark [-Dexec.args="<rows> <iterations>"]}
+ * or from the IDE.
+ */
+public class InsertAllBenchmark {
+
+    public static class BenchmarkConfig extends Config {
+        public BenchmarkConfig() {
+            this.setDialect(new H2Dialect());
+        }
+    }
+
+    private static final int WARMUP_ITERATIONS = 5;
+
+    public static void main(String[] args) throws Exception {
+        int rowCount = args.length > 0 ? Integer.parseInt(args[0]) : 5000;
+        int iterations = args.length > 1 ? Integer.parseInt(args[1]) : 10;
+
+        Class.forName("org.h2.Driver");
+        try (Connection connection = DriverManager.getConnection("jdbc:h2:mem:insertallbenchmark;mode=postgresql")) {
+            connection.setAutoCommit(false);
+            LSql lSql = new LSql(BenchmarkConfig.class, ConnectionProviders.fromInstance(connection));
+            lSql.executeRawSql("CREATE TABLE batch (id INTEGER PRIMARY KEY, age INT, name TEXT)");
+            lSql.executeRawSql("CREATE TABLE multi_row (id INTEGER PRIMARY KEY, age INT, name TEXT)");
+            Table batch = lSql.table("batch");
+            Table multiRow = lSql.table("multi_row");
+            List<Row> rows = createRows(rowCount);
+
+            for (int i = 0; i < WARMUP_ITERATIONS; i++) {
+                run(lSql, connection, batch, rows, false);
+                run(lSql, connection, multiRow, rows, true);
+            }
+
+            long batchNanos = 0;
+            long multiRowNanos = 0;
+            for (int i = 0; i < iterations; i++) {
+                batchNanos += run(lSql, connection, batch, rows, false);
+                multiRowNanos += run(lSql, connection, multiRow, rows, true);
+            }
+
+            System.out.println(String.format(
+                    "Inserted %d rows, average of %d iterations: JDBC batch %.2f ms, multi-row VALUES %.2f ms",
+                    rowCount,
+                    iterations,
+                    batchNanos / (double) iterations / TimeUnit.MILLISECONDS.toNanos(1),
+                    multiRowNanos / (double) iterations / TimeUnit.MILLISECONDS.toNanos(1)));
+        }
+    }
+
+    private static long run(LSql lSql, Connection connection, Table table, List<Row> rows, boolean multiRow)
+            throws Exception {
+
+        // insertAll puts the generated ids into the rows, so every run gets fresh copies
+        List<Row> copies = Lists.newArrayListWithCapacity(rows.size());
+        rows.forEach(row -> copies.add(new Row(row)));
+
+        long start = System.nanoTime();
+        if (multiRow) {
+            table.insertAllMultiRow(copies);
+        } else {
+            table.insertAll(copies);
+        }
+        connection.commit();
+        long duration = System.nanoTime() - start;
+
+        lSql.executeRawSql("DELETE FROM " + table.getTableName());
+        connection.commit();
+        return duration;
+    }
+
+    private static List<Row> createRows(int count) {
+        List<Row> rows = Lists.newArrayListWithCapacity(count);
+        for (int i = 0; i < count; i++) {
+            rows.add(Row.fromKeyVals("id", i, "age", i % 100, "name", "n" + i));
+        }
+        return rows;
+    }
+
+}
@@ -1,15 +1,33 @@
 package com.w11k.lsql.tests;
 
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
+import com.w11k.lsql.FanOut;
 import com.w11k.lsql.LSql;
+import com.w11k.lsql.Row;
+import com.w11k.lsql.exceptions.FanOutException;
+import com.w11k.lsql.query.RowQuery;
+import com.w11k.lsql.statement.AbstractSqlStatement;
 import com.w11k.lsql.exceptions.DatabaseAccessException;
 import com.w11k.lsql.jdbc.ConnectionUtils;
+import com.w11k.lsql.jdbc.JdbcExecutor;
+import org.apache.commons.dbcp.BasicDataSource;
 import org.testng.annotations.Test;
 
 import java.sql.Connection;
+import java.sql.DriverManager;
 import java.sql.SQLException;
+import java.util.List;
 import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
 import static org.testng.Assert.assertNotNull;
+import static org.testng.Assert.fail;
+import static org.testng.Assert.assertTrue;
 
 public class LSqlTest extends AbstractLSqlTest {
 
@@ -29,6 +47,148 @@ public class LSqlTest extends AbstractLSqlTest {
         ConnectionUtils.getConnection(l);
     }
 
+    @Test
+    public void jdbcExecutorRejectsTasksWhenQueueIsFull() throws Exception {
+        JdbcExecutor executor = new JdbcExecutor(1, 1, null);
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch started = new CountDownLatch(1);
+        try {
+            CompletableFuture<Integer> running = executor.submit(() -> {
+                started.countDown();
+                release.await();
+                return 1;
+            });
+            started.await(10, TimeUnit.SECONDS);
+            CompletableFuture<Integer> queued = executor.submit(() -> 2);
+            CompletableFuture<Integer> rejected = executor.submit(() -> 3);
+
+            assertEquals(executor.getQueueDepth(), 1);
+            assertEquals(executor.getRejectedCount(), 1);
+            assertTrue(rejected.isCompletedExceptionally());
+
+            release.countDown();
+            assertEquals(running.get(10, TimeUnit.SECONDS), (Integer) 1);
+            assertEquals(queued.get(10, TimeUnit.SECONDS), (Integer) 2);
+            assertTrue(executor.getMaxWaitTimeNanos() > 0);
+            assertEquals(executor.getSubmittedCount(), 2);
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void executeAsyncUsesAndClosesOneConnection() throws Exception {
+        createTable("CREATE TABLE table1 (id INT)");
+        List<Connection> connections = Lists.newCopyOnWriteArrayList();
+        LSql pooled = new LSql(TestConfig.class, () -> {
+            Connection connection = DriverManager.getConnection("jdbc:h2:mem:testdb;mode=postgresql");
+            connections.add(connection);
+            return connection;
+        });
+        try {
+            Connection used = pooled.executeAsync(() -> {
+                pooled.executeRawQuery("SELECT * FROM table1").toList();
+                return pooled.getConnectionProvider().call();
+            }).get(10, TimeUnit.SECONDS);
+
+            assertEquals(connections.size(), 1);
+            assertTrue(used == connections.get(0));
+            assertTrue(used.isClosed());
+        } finally {
+            pooled.shutdownJdbcExecutor();
+        }
+    }
+
+    @Test
+    public void executeAsyncReturnsDataSourceConnections() throws Exception {
+        createTable("CREATE TABLE table1 (id INT)");
+        BasicDataSource dataSource = new BasicDataSource();
+        dataSource.setDriverClassName("org.h2.Driver");
+        dataSource.setUrl("jdbc:h2:mem:testdb;mode=postgresql");
+        LSql pooled = new LSql(TestConfig.class, dataSource);
+        try {
+            for (int i = 0; i < 10; i++) {
+                pooled.executeAsync(() -> pooled.executeRawQuery("SELECT * FROM table1").toList())
+                        .get(10, TimeUnit.SECONDS);
+            }
+            assertEquals(dataSource.getNumActive(), 0);
+            assertEquals(pooled.getPreparedStatementCache().getConnectionCount(), 0);
+        } finally {
+            pooled.shutdownJdbcExecutor();
+            dataSource.close();
+        }
+    }
+
+    @Test
+    public void executeAsyncKeepsConnectionsOfSharedProviders() throws Exception {
+        createTable("CREATE TABLE table1 (id INT)");
+        lSql.executeAsync(() -> lSql.executeRawQuery("SELECT * FROM table1").toList()).get(10, TimeUnit.SECONDS);
+        assertFalse(lSql.getConnectionProvider().call().isClosed());
+    }
+
+    @Test
+    public void fanOutRunsAllInvocations() {
+        createTable("CREATE TABLE table1 (name TEXT, age INT)");
+        lSql.executeRawSql("INSERT INTO table1 (name, age) VALUES ('cus1', 20)");
+        lSql.executeRawSql("INSERT INTO table1 (name, age) VALUES ('cus2', 30)");
+        AbstractSqlStatement<RowQuery> statement =
+                lSql.createSqlStatement("SELECT * FROM table1 WHERE age > /*age=*/ 0 /**/");
+
+        FanOut fanOut = lSql.fanOut().maxParallelism(2);
+        FanOut.Invocation<List<Row>> all = fanOut.add("all", statement, Row.fromKeyVals("age", 0), RowQuery::toList);
+        FanOut.Invocation<List<Row>> old = fanOut.add("old", statement, Row.fromKeyVals("age", 25), RowQuery::toList);
+        FanOut.Invocation<Integer> count = fanOut.add("count", () -> lSql.executeRawQuery("SELECT * FROM table1").toList().size());
+        FanOut.Result result = fanOut.execute();
+
+        assertTrue(result.isSuccessful());
+        assertEquals(all.get().size(), 2);
+        assertEquals(old.get().size(), 1);
+        assertEquals(count.get(), (Integer) 2);
+        assertEquals(result.getTimings().keySet(), Sets.newLinkedHashSet(Lists.newArrayList("all", "old", "count")));
+    }
+
+    @Test
+    public void fanOutReturnsDataSourceConnections() throws Exception {
+        createTable("CREATE TABLE table1 (id INT)");
+        BasicDataSource dataSource = new BasicDataSource();
+        dataSource.setDriverClassName("org.h2.Driver");
+        dataSource.setUrl("jdbc:h2:mem:testdb;mode=postgresql");
+        LSql pooled = new LSql(TestConfig.class, dataSource);
+        try {
+            FanOut fanOut = pooled.fanOut().maxParallelism(2);
+            for (int i = 0; i < 4; i++) {
+                fanOut.add("query" + i, () -> pooled.executeRawQuery("SELECT * FROM table1").toList());
+            }
+            assertTrue(fanOut.execute().isSuccessful());
+            assertEquals(dataSource.getNumActive(), 0);
+        } finally {
+            pooled.shutdownJdbcExecutor();
+            dataSource.close();
+        }
+    }
+
+    @Test
+    public void fanOutFailFast() {
+        FanOut fanOut = lSql.fanOut().maxParallelism(1);
+        fanOut.add("fail", () -> lSql.executeRawQuery("SELECT * FROM wrong_table").toList());
+        FanOut.Invocation<Integer> skipped = fanOut.add("skipped", () -> 1);
+        try {
+            fanOut.execute();
+            fail("expected FanOutException");
+        } catch (FanOutException e) {
+            assertTrue(e.getMessage().contains("'fail'"));
+        }
+        assertTrue(skipped.isSkipped());
+
+        FanOut collecting = lSql.fanOut().maxParallelism(1).failFast(false);
+        collecting.add("fail", () -> lSql.executeRawQuery("SELECT * FROM wrong_table").toList());
+        FanOut.Invocation<Integer> ok = collecting.add("ok", () -> 1);
+        FanOut.Result result = collecting.execute();
+        assertFalse(result.isSuccessful());
+        assertEquals(result.getFailedInvocations().size(), 1);
+        assertEquals(ok.get(), (Integer) 1);
+    }
+
     @Test
     public void execute() {
         createTable("CREATE TABLE table1 (name TEXT, age INT)");
@@ -6,6 +6,8 @@ import com.w11k.lsql.exceptions.DeleteException;
 import com.w11k.lsql.exceptions.UpdateException;
 import org.testng.annotations.Test;
 
+import java.util.Arrays;
+
 import static org.testng.Assert.assertNotNull;
 import static org.testng.Assert.assertTrue;
 
@@ -22,6 +24,19 @@ public class RevisionSupportTest extends AbstractLSqlTest {
         assertNotNull(row1.get("revision"));
     }
 
+    @Test
+    public void insertAllSetsRevisions() {
+        createTable("CREATE TABLE table1 (id SERIAL PRIMARY KEY, age INT, revision INT DEFAULT 0)");
+        Table table1 = lSql.table("table1");
+        table1.enableRevisionSupport();
+
+        Row row1 = Row.fromKeyVals("age", 1);
+        Row row2 = Row.fromKeyVals("id", 10, "age", 2);
+        table1.insertAll(Arrays.asList(row1, row2));
+        assertNotNull(row1.get("revision"));
+        assertNotNull(row2.get("revision"));
+    }
+
     @Test
     public void updateIncreasesRevision() {
         createTable("CREATE TABLE table1 (id INTEGER PRIMARY KEY, age INT, revision INT DEFAULT 0)");
@@ -1,14 +1,22 @@
 package com.w11k.lsql.tests;
 
 import com.w11k.lsql.Row;
+import com.w11k.lsql.converter.Converter;
+import com.w11k.lsql.converter.PrimitiveConverter;
 import com.w11k.lsql.converter.predefined.JavaBoolToSqlStringConverter;
 import com.w11k.lsql.converter.types.IntConverter;
+import com.w11k.lsql.query.ColumnarResult;
 import com.w11k.lsql.query.RowQuery;
 import org.testng.annotations.Test;
 
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
 import java.sql.Types;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNull;
 import static org.testng.Assert.assertTrue;
 
 public class RowQueryConverterTest extends AbstractLSqlTest {
@@ -109,6 +117,56 @@ public class RowQueryConverterTest extends AbstractLSqlTest {
         assertEquals(row.getInt("c"), (Integer) 1);
     }
 
+    @Test
+    public void primitiveConvertersReadNullAndDefaultValues() {
+        createTable("CREATE TABLE table1 (id INT PRIMARY KEY, a INT, b BIGINT, c DOUBLE, d BOOLEAN)");
+        lSql.executeRawSql("INSERT INTO table1 (id, a, b, c, d) VALUES (1, 0, 0, 0, FALSE)");
+        lSql.executeRawSql("INSERT INTO table1 (id, a, b, c, d) VALUES (2, NULL, NULL, NULL, NULL)");
+        List<Row> rows = lSql.executeRawQuery("SELECT * FROM table1 ORDER BY id").toList();
+        assertEquals(rows.get(0).getInt("a"), (Integer) 0);
+        assertEquals(rows.get(0).getLong("b"), (Long) 0L);
+        assertEquals(rows.get(0).getDouble("c"), 0d);
+        assertEquals(rows.get(0).getBoolean("d"), Boolean.FALSE);
+        assertNull(rows.get(1).get("a"));
+        assertNull(rows.get(1).get("b"));
+        assertNull(rows.get(1).get("c"));
+        assertNull(rows.get(1).get("d"));
+
+        RowQuery query = lSql.executeRawQuery("SELECT id, a FROM table1 ORDER BY id");
+        query.addConverter("a", Converter.withDefaultValueForNull(new IntConverter(Types.INTEGER), -1));
+        assertEquals(query.toList().get(1).getInt("a"), (Integer) (-1));
+
+        // the wrapper keeps the typed reads of a primitive converter
+        Converter withDefault = Converter.withDefaultValueForNull(new IntConverter(Types.INTEGER), -1);
+        assertTrue(withDefault instanceof PrimitiveConverter);
+        query = lSql.executeRawQuery("SELECT id, a FROM table1 ORDER BY id");
+        query.addConverter("a", withDefault);
+        ColumnarResult columns = query.toColumns();
+        assertEquals(columns.getColumnType("a"), int.class);
+        assertEquals(columns.getInts("a")[0], 0);
+        assertTrue(columns.isNull("a", 1));
+    }
+
+    @Test
+    public void converterIsSpecializedOncePerColumn() {
+        createTable("CREATE TABLE table1 (id INT PRIMARY KEY, field INT)");
+        lSql.executeRawSql("INSERT INTO table1 (id, field) VALUES (1, 1)");
+        lSql.executeRawSql("INSERT INTO table1 (id, field) VALUES (2, 2)");
+        lSql.executeRawSql("INSERT INTO table1 (id, field) VALUES (3, 3)");
+
+        AtomicInteger specializations = new AtomicInteger();
+        RowQuery query = lSql.executeRawQuery("SELECT id, field FROM table1");
+        query.addConverter("field", new IntConverter(Types.INTEGER) {
+            @Override
+            public Converter specializeForColumn(ResultSetMetaData metaData, int position) throws SQLException {
+                specializations.incrementAndGet();
+                return super.specializeForColumn(metaData, position);
+            }
+        });
+        assertEquals(query.toList().size(), 3);
+        assertEquals(specializations.get(), 1);
+    }
+
     @Test(expectedExceptions = IllegalArgumentException.class)
     public void failOnUnusedConverter() {
         createTable("CREATE TABLE table1 (id INT PRIMARY KEY , field INT)");
@@ -1,13 +1,17 @@
 package com.w11k.lsql.tests;
 
+import com.google.common.collect.Lists;
 import com.w11k.lsql.ResultSetWithColumns;
 import com.w11k.lsql.Row;
+import com.w11k.lsql.query.ColumnarResult;
+import com.w11k.lsql.query.QueryCursor;
 import com.w11k.lsql.query.RowQuery;
 import io.reactivex.Observable;
 import org.testng.annotations.Test;
 
 import java.sql.SQLException;
 import java.util.List;
+import java.util.stream.Stream;
 
 import static org.testng.Assert.*;
 
@@ -46,6 +50,82 @@ public class RowQueryTest extends AbstractLSqlTest {
         assertTrue(ages.contains(30));
     }
 
+    @Test
+    public void queryIterator() {
+        createTable("CREATE TABLE table1 (name TEXT, age INT)");
+        lSql.executeRawSql("INSERT INTO table1 (name, age) VALUES ('cus1', 20)");
+        lSql.executeRawSql("INSERT INTO table1 (name, age) VALUES ('cus2', 30)");
+        RowQuery query = lSql.executeRawQuery("SELECT * FROM table1 ORDER BY age");
+        int sum = 0;
+        try (QueryCursor<Row> cursor = query.iterator()) {
+            while (cursor.hasNext()) {
+                sum += cursor.next().getInt("age");
+            }
+            assertFalse(cursor.hasNext());
+        }
+        assertEquals(sum, 50);
+        assertTrue(query.isClosed());
+    }
+
+    @Test
+    public void queryIteratorClosedEarly() {
+        createTable("CREATE TABLE table1 (name TEXT, age INT)");
+        lSql.executeRawSql("INSERT INTO table1 (name, age) VALUES ('cus1', 20)");
+        lSql.executeRawSql("INSERT INTO table1 (name, age) VALUES ('cus2', 30)");
+        RowQuery query = lSql.executeRawQuery("SELECT * FROM table1 ORDER BY age");
+        try (QueryCursor<Row> cursor = query.iterator()) {
+            assertEquals(cursor.next().getString("name"), "cus1");
+        }
+        assertTrue(query.isClosed());
+    }
+
+    @Test
+    public void queryStream() {
+        createTable("CREATE TABLE table1 (name TEXT, age INT)");
+        lSql.executeRawSql("INSERT INTO table1 (name, age) VALUES ('cus1', 20)");
+        lSql.executeRawSql("INSERT INTO table1 (name, age) VALUES ('cus2', 30)");
+        RowQuery query = lSql.executeRawQuery("SELECT * FROM table1");
+        try (Stream<Row> stream = query.stream()) {
+            assertEquals(stream.mapToInt(row -> row.getInt("age")).sum(), 50);
+        }
+        assertTrue(query.isClosed());
+    }
+
+    @Test
+    public void queryColumns() {
+        createTable("CREATE TABLE table1 (name TEXT, age INT, score DOUBLE)");
+        for (int i = 0; i < 40; i++) {
+            lSql.executeRawSql("INSERT INTO table1 (name, age, score) VALUES ('cus" + i + "', " + i + ", " + i + ".5)");
+        }
+        lSql.executeRawSql("INSERT INTO table1 (name, age, score) VALUES (NULL, NULL, NULL)");
+        RowQuery query = lSql.executeRawQuery("SELECT * FROM table1");
+        ColumnarResult columns = query.toColumns();
+        assertTrue(query.isClosed());
+
+        assertEquals(columns.getRowCount(), 41);
+        assertEquals(columns.getColumnNames(), Lists.newArrayList("name", "age", "score"));
+        assertEquals(columns.getColumnType("age"), int.class);
+
+        int[] ages = columns.getInts("age");
+        double[] scores = columns.getDoubles("score");
+        String[] names = columns.getStrings("name");
+        assertEquals(ages.length, 41);
+        assertEquals(ages[39], 39);
+        assertEquals(scores[39], 39.5);
+        assertEquals(names[39], "cus39");
+        assertFalse(columns.isNull("age", 39));
+        assertTrue(columns.isNull("age", 40));
+        assertTrue(columns.isNull("name", 40));
+        assertEquals(columns.getNulls("score").cardinality(), 1);
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void queryColumnsFailsOnWrongColumnType() {
+        createTable("CREATE TABLE table1 (name TEXT, age INT)");
+        lSql.executeRawSql("INSERT INTO table1 (name, age) VALUES ('cus1', 20)");
+        lSql.executeRawQuery("SELECT * FROM table1").toColumns().getLongs("age");
+    }
+
     @Test(expectedExceptions = IllegalStateException.class)
     public void failOnDuplicateColumnsInTheResultSet() {
         createTable("CREATE TABLE table1 (name TEXT, age INT)");
@@ -1,11 +1,17 @@
 package com.w11k.lsql.tests;
 
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
+import com.w11k.lsql.ColumnIndex;
+import com.w11k.lsql.IndexedRow;
 import com.w11k.lsql.Row;
 import com.w11k.lsql.WrongTypeException;
 import org.joda.time.DateTime;
 import org.joda.time.LocalDateTime;
 import org.testng.annotations.Test;
 
+import java.util.List;
+
 import static org.testng.Assert.*;
 
 public class RowTest extends AbstractLSqlTest {
@@ -26,6 +32,47 @@ public class RowTest extends AbstractLSqlTest {
         assertFalse(row2.containsKey("key2"));
     }
 
+    @Test
+    public void indexedRowBehavesLikeRow() {
+        ColumnIndex index = ColumnIndex.of(Lists.newArrayList("a", "b", "c"));
+        IndexedRow indexed = new IndexedRow(index, new Object[]{1, "val", null});
+        Row row = new Row().addKeyVals("a", 1, "b", "val", "c", null);
+
+        assertEquals(indexed, row);
+        assertEquals(row, indexed);
+        assertEquals(indexed.hashCode(), row.hashCode());
+        assertEquals(indexed.size(), 3);
+        assertEquals(indexed.getInt("a"), (Integer) 1);
+        assertEquals(indexed.getValueAt(1), "val");
+        assertTrue(indexed.containsKey("c"));
+        assertNull(indexed.getString("c"));
+        assertFalse(indexed.containsKey("x"));
+
+        // in place
+        indexed.put("a", 2);
+        indexed.remove("c");
+        assertEquals(indexed.getInt("a"), (Integer) 2);
+        assertFalse(indexed.containsKey("c"));
+        assertEquals(indexed.keySet(), Sets.newHashSet("a", "b"));
+
+        // copy
+        indexed.put("d", 4);
+        assertEquals(indexed.size(), 3);
+        assertEquals(indexed.getInt("d"), (Integer) 4);
+        assertEquals(indexed.getString("b"), "val");
+    }
+
+    @Test
+    public void queryReturnsIndexedRows() {
+        createTable("CREATE TABLE table1 (id INT PRIMARY KEY, name TEXT)");
+        lSql.executeRawSql("INSERT INTO table1 (id, name) VALUES (1, 'a')");
+        lSql.executeRawSql("INSERT INTO table1 (id, name) VALUES (2, 'b')");
+        List<Row> rows = lSql.executeRawQuery("SELECT * FROM table1 ORDER BY id").toList();
+        assertTrue(rows.get(0) instanceof IndexedRow);
+        assertSame(((IndexedRow) rows.get(0)).getColumnIndex(), ((IndexedRow) rows.get(1)).getColumnIndex());
+        assertEquals(rows.get(1).getString("name"), "b");
+    }
+
     @Test(expectedExceptions = IllegalArgumentException.class)
     public void getAsThrowsExceptionOnWrongKey() {
         Row r = new Row().addKeyVals("a", "1");
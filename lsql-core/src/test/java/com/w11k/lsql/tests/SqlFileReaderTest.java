@@ -1,11 +1,21 @@
 package com.w11k.lsql.tests;
 
 import com.google.common.collect.ImmutableMap;
+import com.google.common.io.Files;
 import com.w11k.lsql.sqlfile.LSqlFile;
+import com.w11k.lsql.sqlfile.LSqlFileIndex;
 import com.w11k.lsql.statement.SqlStatementToPreparedStatement;
 import org.testng.annotations.Test;
 
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.Charset;
+
 import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
 
 public class SqlFileReaderTest extends AbstractLSqlTest {
 
@@ -14,6 +24,43 @@ public class SqlFileReaderTest extends AbstractLSqlTest {
         LSqlFile lSqlFile = lSql.readSqlFile(getClass(), "twoStatements.sql");
         ImmutableMap<String, SqlStatementToPreparedStatement> stmts = lSqlFile.getStatements();
         assertEquals(stmts.size(), 2, "wrong number of SQL statements");
+        assertFalse(lSqlFile.isLoadedFromIndex());
+    }
+
+    @Test
+    public void readSqlFileFromIndex() throws IOException {
+        File dir = Files.createTempDir();
+        File sqlFile = new File(dir, "indexed.sql");
+        Files.write("-- stmt1\n"
+                + "SELECT id /*:int*/ FROM table1 WHERE id = /*=*/ 1 /**/ AND name = /*name=*/ 'a' /**/;\n"
+                + "\n"
+                + "-- stmt2:void\n"
+                + "DELETE FROM table1;\n", sqlFile, Charset.defaultCharset());
+
+        LSqlFile parsed = new LSqlFile(lSql, "indexed", sqlFile.getAbsolutePath());
+        assertFalse(parsed.isLoadedFromIndex());
+        try (OutputStream os = new FileOutputStream(sqlFile.getAbsolutePath() + LSqlFileIndex.FILE_EXTENSION)) {
+            LSqlFileIndex.create(parsed).write(os);
+        }
+
+        LSqlFile indexed = new LSqlFile(lSql, "indexed", sqlFile.getAbsolutePath());
+        assertTrue(indexed.isLoadedFromIndex());
+        assertEquals(indexed.getStatements().keySet(), parsed.getStatements().keySet());
+
+        SqlStatementToPreparedStatement expected = parsed.getSqlStatementToPreparedStatement("stmt1");
+        SqlStatementToPreparedStatement actual = indexed.getSqlStatementToPreparedStatement("stmt1");
+        assertEquals(actual.getSqlString(), expected.getSqlString());
+        assertEquals(actual.getParameters().keySet(), expected.getParameters().keySet());
+        assertEquals(actual.getParameters().get("name").get(0).getJavaTypeAlias(), "string");
+        assertEquals(actual.getOutConverterAliases(), expected.getOutConverterAliases());
+        assertEquals(actual.getOutConverters(), expected.getOutConverters());
+        assertEquals(indexed.getSqlStatementToPreparedStatement("stmt2").getTypeAnnotation(), "void");
+
+        // outdated index
+        Files.append("\n-- stmt3\nSELECT 1;\n", sqlFile, Charset.defaultCharset());
+        LSqlFile changed = new LSqlFile(lSql, "indexed", sqlFile.getAbsolutePath());
+        assertFalse(changed.isLoadedFromIndex());
+        assertEquals(changed.getStatements().size(), 3);
     }
 
 }
@@ -1,14 +1,25 @@
 package com.w11k.lsql.tests;
 
+import com.google.common.base.Joiner;
 import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Lists;
 import com.w11k.lsql.*;
 import com.w11k.lsql.converter.Converter;
+import com.w11k.lsql.converter.predefined.AtomicIntegerConverter;
+import com.w11k.lsql.dialects.DB2Dialect;
 import com.w11k.lsql.dialects.PostgresDialect;
+import com.w11k.lsql.dialects.SqlServerDialect;
+import com.w11k.lsql.dialects.StatementCreator;
 import com.w11k.lsql.exceptions.QueryException;
+import com.w11k.lsql.jdbc.PreparedStatementCache;
+import com.w11k.lsql.query.DecoderPlanCache;
+import com.w11k.lsql.query.QueryResultCache;
 import com.w11k.lsql.query.RowQuery;
 import com.w11k.lsql.statement.AbstractSqlStatement;
 import com.w11k.lsql.statement.SqlStatementToPreparedStatement;
+import com.w11k.lsql.statement.SqlTemplate;
+import io.reactivex.subscribers.TestSubscriber;
 import org.testng.Assert;
 import org.testng.SkipException;
 import org.testng.annotations.Test;
@@ -18,9 +29,14 @@ import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Types;
+import java.util.BitSet;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
 
 import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
 import static org.testng.Assert.assertTrue;
 
 public class SqlStatementTest extends AbstractLSqlTest {
@@ -363,6 +379,163 @@ public class SqlStatementTest extends AbstractLSqlTest {
         assertEquals(rows.size(), 1);
     }
 
+    @Test
+    public void flowableReadsRowsOnDemand() throws SQLException {
+        setup();
+        AbstractSqlStatement<RowQuery> statement = lSql.createSqlStatement("select * from person;").setFetchSize(2);
+        RowQuery query = statement.query();
+        assertEquals(query.getPreparedStatement().getFetchSize(), 2);
+        assertEquals(query.getPreparedStatement().getResultSetType(), ResultSet.TYPE_FORWARD_ONLY);
+
+        TestSubscriber<Row> subscriber = query.flowable().test(0);
+        subscriber.assertNoValues();
+        subscriber.request(2);
+        subscriber.assertValueCount(2);
+        subscriber.assertNotComplete();
+        subscriber.request(10);
+        subscriber.assertValueCount(5);
+        subscriber.assertComplete();
+        query.close();
+
+        // disposing closes the ResultSet
+        RowQuery query2 = statement.query();
+        TestSubscriber<Row> subscriber2 = query2.flowable().test(1);
+        subscriber2.assertValueCount(1);
+        subscriber2.dispose();
+        assertEquals(query2.flowable().count().blockingGet(), Long.valueOf(5));
+        query2.close();
+    }
+
+    @Test
+    public void decoderPlanIsReusedWhileResultSetShapeMatches() {
+        setup();
+        String sql = "select * from person where age > /*=*/ 0 /**/;";
+        DecoderPlanCache cache = lSql.getCompiledStatement(sql, "LSql", "createSqlStatement").getDecoderPlanCache();
+
+        List<Row> first = lSql.createSqlStatement(sql).query().toList();
+        List<Row> second = lSql.createSqlStatement(sql).query("age", 12).toList();
+        assertEquals(cache.size(), 1);
+        assertEquals(first.size(), 5);
+        assertEquals(second.size(), 3);
+        assertEquals(second.get(0).keySet(), first.get(0).keySet());
+
+        // different converters use a new plan
+        RowQuery query = lSql.createSqlStatement(sql).query();
+        query.addConverter("age", new Converter(String.class, Types.INTEGER) {
+            @Override
+            public void setValue(LSql lSql, PreparedStatement ps, int index, Object val) throws SQLException {
+                ps.setInt(index, Integer.parseInt((String) val));
+            }
+
+            @Override
+            public Object getValue(LSql lSql, ResultSet rs, int index) throws SQLException {
+                return String.valueOf(rs.getInt(index));
+            }
+        });
+        assertEquals(query.toList().get(0).get("age"), "11");
+        assertEquals(lSql.createSqlStatement(sql).query().toList().get(0).get("age"), 11);
+
+        // a changed table changes the shape
+        lSql.executeRawSql("ALTER TABLE person ADD COLUMN nickname VARCHAR(10)");
+        lSql.clearTables();
+        List<Row> third = lSql.createSqlStatement(sql).query().toList();
+        assertTrue(third.get(0).containsKey("nickname"));
+    }
+
+    @Test
+    public void untypedParameterWithChangingValueTypes() {
+        setup();
+        AbstractSqlStatement<RowQuery> statement = lSql.createSqlStatement(
+                "select * from person where id = /*id=*/ id /**/;");
+
+        assertEquals(statement.query("id", 1).toList().get(0).getString("fullname"), "a");
+        assertEquals(statement.query("id", 2L).toList().get(0).getString("fullname"), "b");
+        assertEquals(statement.query("id", 3).toList().get(0).getString("fullname"), "c");
+    }
+
+    @Test(expectedExceptions = IllegalStateException.class)
+    public void unknownParameterTypeAliasFailsWhenUsed() {
+        setup();
+        AbstractSqlStatement<RowQuery> statement = lSql.createSqlStatement(
+                "select * from person where id = /*id:unknown_alias=*/ 1 /**/;");
+
+        // the parameter is not used, the default value applies
+        assertEquals(statement.query().toList().size(), 1);
+        statement.query("id", 1).toList();
+    }
+
+    @Test
+    public void listLiteralQueryParameterBucketed() {
+        setup();
+
+        AbstractSqlStatement<RowQuery> statement = lSql.createSqlStatement("select * from person where" +
+                " age in (/*ages=*/ 11, 12, 13 /**/);");
+
+        ListLiteralQueryParameter<Integer> three = ListLiteralQueryParameter.of(11, 12, 13).bucketed();
+        ListLiteralQueryParameter<Integer> four = ListLiteralQueryParameter.of(11, 12, 13, 99).bucketed();
+        assertEquals(three.getNumberOfQueryParameters(), 4);
+        assertEquals(three.getSqlString(), four.getSqlString());
+        assertEquals(ListLiteralQueryParameter.of(1).bucketed().getNumberOfQueryParameters(), 1);
+        assertEquals(ListLiteralQueryParameter.of(1, 2, 3, 4, 5).bucketed().getNumberOfQueryParameters(), 8);
+
+        assertEquals(statement.query("ages", three).toList().size(), 3);
+        assertEquals(statement.query("ages", four).toList().size(), 3);
+        assertEquals(statement.query("ages", ListLiteralQueryParameter.ofInts(11, 12).bucketed()).toList().size(), 2);
+        assertEquals(statement.query("ages", ListLiteralQueryParameter.ofLongs(11, 12, 14).bucketed()).toList().size(), 3);
+    }
+
+    @Test
+    public void listLiteralQueryParameterSubclassCanAccessValues() {
+        ListLiteralQueryParameter<String> names = new ListLiteralQueryParameter<String>(Lists.newArrayList("a", "b")) {
+            @Override
+            public String getSqlString() {
+                return "'" + Joiner.on("','").join(this.values) + "'";
+            }
+        };
+        assertEquals(names.getSqlString(), "'a','b'");
+    }
+
+    @Test
+    public void listLiteralQueryParameterAsArray() {
+        setup();
+
+        AbstractSqlStatement<RowQuery> statement = lSql.createSqlStatement("select * from person where" +
+                " age in (/*ages=*/ 11, 12, 13 /**/);");
+
+        // falls back to the bucketed placeholders if the dialect has no array support
+        ListLiteralQueryParameter<Integer> ages = ListLiteralQueryParameter.ofInts(11, 12, 13).asArray();
+        String expectedSql = lSql.getInListArrayParameterSql().or("?,?,?,?");
+        assertEquals(ages.getSqlString(lSql), expectedSql);
+        assertEquals(statement.query("ages", ages).toList().size(), 3);
+        assertEquals(ages.getValues(), Lists.newArrayList(11, 12, 13));
+
+        List<Row> rows = lSql.createSqlStatement("select * from person where" +
+                " fullname in (/*fullnames=*/ 'a', 'b' /**/);")
+                .query("fullnames", ListLiteralQueryParameter.of("a", "b", "x").asArray()).toList();
+        assertEquals(rows.size(), 2);
+    }
+
+    @Test
+    public void listLiteralQueryParameterUsesRegisteredConverters() {
+        setup();
+        lSql.getConfig().getDialect().getConverterRegistry()
+                .addJavaToSqlConverter(new AtomicIntegerConverter(), true);
+
+        AbstractSqlStatement<RowQuery> statement = lSql.createSqlStatement("select * from person where" +
+                " age in (/*ages=*/ 11, 12, 13 /**/);");
+        ListLiteralQueryParameter<AtomicInteger> ages =
+                ListLiteralQueryParameter.of(new AtomicInteger(11), new AtomicInteger(12));
+
+        assertEquals(ages.getMode(), ListLiteralQueryParameter.Mode.EXACT);
+        assertEquals(statement.query("ages", ages).toList().size(), 2);
+        assertEquals(statement.query("ages", ages.bucketed()).toList().size(), 2);
+        assertEquals(statement.query("ages", ages.asArray()).toList().size(), 2);
+
+        // array elements are created with the value the converter writes
+        Converter converter = lSql.getConverterForJavaType(AtomicInteger.class);
+        assertEquals(converter.toJdbcValue(lSql, new AtomicInteger(11)), 11);
+    }
+
     @Test()
     public void listLiteralQueryParameterEmptyArray() {
         boolean skipTest = lSql.getDialectClass().equals(PostgresDialect.class);
@@ -501,6 +674,409 @@ public class SqlStatementTest extends AbstractLSqlTest {
         statement.query("age", "3").toList();
     }
 
+    @Test()
+    public void parsedStatementsAreCached() {
+        setup();
+        String sql = "select * from person where age > /*=*/ 18 /**/;";
+
+        lSql.createSqlStatement(sql, "test", "stmt").query("age", 12).toList();
+        lSql.createSqlStatement(sql, "test", "stmt").query("age", 13).toList();
+        lSql.createSqlStatement(sql, "test", "other").query("age", 13).toList();
+
+        assertEquals(lSql.getStatementCacheStats().missCount(), 2);
+        assertEquals(lSql.getStatementCacheStats().hitCount(), 1);
+        assertTrue(lSql.getCompiledStatement(sql, "test", "stmt") == lSql.getCompiledStatement(sql, "test", "stmt"));
+    }
+
+    @Test()
+    public void statementCacheIsClearedWhenConvertersChange() {
+        String sql = "select * from person where age > /*age: myint =*/ 18 /**/;";
+        SqlStatementToPreparedStatement before = lSql.getCompiledStatement(sql, "test", "stmt");
+
+        lSql.getConfig().getDialect().getConverterRegistry().addTypeAlias("myint", Integer.class);
+        SqlStatementToPreparedStatement after = lSql.getCompiledStatement(sql, "test", "stmt");
+        assertTrue(before != after);
+        assertTrue(after == lSql.getCompiledStatement(sql, "test", "stmt"));
+    }
+
+    @Test()
+    public void templateRendersCompactSql() {
+        SqlStatementToPreparedStatement statement = lSql.getCompiledStatement(
+                "select * from person where id = /*=*/ 1 /**/ and age > /*=*/ 18 /**/;", "test", "compact");
+        SqlTemplate template = statement.getTemplate();
+        assertEquals(template.getNumberOfSlots(), 2);
+
+        BitSet present = new BitSet();
+        present.set(1);
+        String sql = template.render(present, new Object[]{null, 20});
+        assertEquals(sql, "select * from person where id = 1 and age > ?;");
+        assertTrue(sql == template.render(present, new Object[]{null, 30}));
+
+        present.set(0);
+        Object[] values = {ListLiteralQueryParameter.of(1, 2), 20};
+        assertEquals(template.render(present, values), "select * from person where id = ?,? and age > ?;");
+    }
+
+    @Test()
+    public void queryIsClosedAfterTerminalOperation() throws SQLException {
+        setup();
+        RowQuery query = lSql.createSqlStatement("select * from person;").query();
+        assertEquals(query.toList().size(), 5);
+        assertTrue(query.isClosed());
+        assertTrue(query.getPreparedStatement().isClosed());
+    }
+
+    @Test()
+    public void closingTheStatementClosesItsQueries() throws SQLException {
+        setup();
+        AbstractSqlStatement<RowQuery> statement = lSql.createSqlStatement("select * from person;");
+        RowQuery query = statement.query();
+        query.flowable().take(1).blockingFirst();
+        assertFalse(query.isClosed());
+
+        statement.close();
+        assertTrue(query.isClosed());
+        assertTrue(query.getPreparedStatement().isClosed());
+    }
+
+    @Test()
+    public void rxClosesTheQueryWhenTheSubscriptionEnds() throws SQLException {
+        setup();
+        RowQuery completed = lSql.createSqlStatement("select * from person;").query();
+        assertEquals(completed.rx().toList().blockingGet().size(), 5);
+        assertTrue(completed.isClosed());
+        assertTrue(completed.getPreparedStatement().isClosed());
+
+        RowQuery disposed = lSql.createSqlStatement("select * from person;").query();
+        disposed.rx().take(1).blockingFirst();
+        assertTrue(disposed.isClosed());
+        assertTrue(disposed.getPreparedStatement().isClosed());
+    }
+
+    @Test()
+    public void leakDetectorReportsOpenStatements() throws InterruptedException {
+        this.addConfigHook(c -> c.setStatementLeakDetectionThresholdMillis(1));
+        setup();
+        RowQuery query = lSql.createSqlStatement("select * from person;", "file", "leaking").query();
+        assertEquals(lSql.getStatementLeakDetector().getOpenStatementCounts().get("file#leaking"), (Integer) 1);
+
+        Thread.sleep(5);
+        assertEquals(lSql.getStatementLeakDetector().reportLeaks(), Lists.newArrayList("file#leaking"));
+
+        query.close();
+        assertTrue(lSql.getStatementLeakDetector().getOpenStatementCounts().isEmpty());
+    }
+
+    @Test()
+    public void executeBatch() {
+        createTable();
+        AbstractSqlStatement<RowQuery> statement = lSql.createSqlStatement(
+                "insert into person (id, age, fullname) values (/*id=*/ 0 /**/, /*age=*/ 0 /**/, /*fullname=*/ 'x' /**/);");
+
+        List<Map<String, Object>> parameterSets = Lists.newArrayList(
+                Row.fromKeyVals("id", 1, "age", 11, "fullname", "a"),
+                Row.fromKeyVals("id", 2, "age", 12, "fullname", "b"),
+                Row.fromKeyVals("id", 3, "age", 13, "fullname", "c"),
+                Row.fromKeyVals("id", 4, "age", 14),
+                Row.fromKeyVals("id", 5, "age", 15, "fullname", "e"));
+
+        int[] counts = statement.executeBatch(parameterSets, 2);
+        assertEquals(counts, new int[]{1, 1, 1, 1, 1});
+
+        List<Row> rows = lSql.createSqlStatement("select * from person order by id;").query().toList();
+        assertEquals(rows.size(), 5);
+        assertEquals(rows.get(3).getString("fullname"), "x");
+        assertEquals(rows.get(4).getString("fullname"), "e");
+    }
+
+    @Test()
+    public void queriesOfACachedStatementDoNotShareConverters() {
+        setup();
+        String sql = "select count(*) as c from person;";
+
+        RowQuery q1 = lSql.createSqlStatement(sql).query();
+        q1.addConverter("c", lSql.getConverterForJavaType(Long.class));
+        RowQuery q2 = lSql.createSqlStatement(sql).query();
+
+        assertTrue(q1.getConverters().containsKey("c"));
+        assertTrue(q2.getConverters().isEmpty());
+    }
+
+    @Test
+    public void cachedStatementResultsAreInvalidatedByTableWrites() throws Exception {
+        setup();
+        lSql.getConnectionProvider().call().setAutoCommit(true);
+        AbstractSqlStatement<RowQuery> statement = lSql.createSqlStatement(
+                "SELECT * FROM person WHERE age > /*=*/ 12 /**/;").cacheResults("person");
+        QueryResultCache cache = lSql.getQueryResultCache();
+
+        List<Row> rows = statement.query("age", 12).toList();
+        assertEquals(rows.size(), 3);
+        assertEquals(cache.getStats().missCount(), 1);
+        assertEquals(cache.getCachedRowCount(), 3);
+        assertEquals(cache.getCachedValueCount(), 9);
+
+        // returned rows are copies
+        rows.get(0).put("age", 99);
+        List<Row> cached = statement.query("age", 12).toList();
+        assertEquals(cached.size(), 3);
+        assertEquals(cache.getStats().hitCount(), 1);
+        assertFalse(cached.get(0).getInt("age").equals(99));
+
+        // other parameter values are cached separately
+        assertEquals(statement.query("age", 14).toList().size(), 1);
+        assertEquals(cache.size(), 2);
+
+        // writes that bypass the tables are not seen
+        lSql.executeRawSql("INSERT INTO person (id, age, fullname) VALUES (6, 16, 'f')");
+        assertEquals(statement.query("age", 12).toList().size(), 3);
+
+        long invalidations = cache.getInvalidationCount();
+        lSql.table("person").insert(Row.fromKeyVals("id", 7, "age", 17, "fullname", "g"));
+        assertEquals(cache.size(), 0);
+        assertEquals(cache.getCachedRowCount(), 0);
+        assertEquals(statement.query("age", 12).toList().size(), 5);
+
+        lSql.table("person").delete(7);
+        assertEquals(statement.query("age", 12).toList().size(), 4);
+        assertEquals(cache.getInvalidationCount(), invalidations + 2);
+    }
+
+    @Test
+    public void cachedStatementResultsMatchQualifiedAndJavaTableNames() throws Exception {
+        setup();
+        lSql.executeRawSql("CREATE TABLE person_details (id INT PRIMARY KEY, note VARCHAR(10))");
+        lSql.getConnectionProvider().call().setAutoCommit(true);
+        QueryResultCache cache = lSql.getQueryResultCache();
+
+        AbstractSqlStatement<RowQuery> qualified = lSql.createSqlStatement(
+                "SELECT * FROM public.person;").cacheResults("public.person");
+        assertEquals(qualified.query().toList().size(), 5);
+        lSql.table("person").insert(Row.fromKeyVals("id", 6, "age", 16, "fullname", "f"));
+        assertEquals(cache.size(), 0);
+        assertEquals(qualified.query().toList().size(), 6);
+
+        // tables without a schema invalidate qualified names
+        cache.lookup("statement", ImmutableMap.of(), ImmutableSet.of("public.person"))
+                .put("rows", Lists.newArrayList(1), Function.identity());
+        assertEquals(cache.size(), 2);
+        cache.invalidateTables("person");
+        assertEquals(cache.size(), 0);
+
+        AbstractSqlStatement<RowQuery> javaName = lSql.createSqlStatement(
+                "SELECT * FROM person_details;").cacheResults("personDetails");
+        assertEquals(javaName.query().toList().size(), 0);
+        lSql.table("personDetails").insert(Row.fromKeyVals("id", 1, "note", "a"));
+        assertEquals(javaName.query().toList().size(), 1);
+    }
+
+    @Test
+    public void cachedStatementResultsDependOnConverters() throws Exception {
+        setup();
+        lSql.getConnectionProvider().call().setAutoCommit(true);
+        AbstractSqlStatement<RowQuery> statement = lSql.createSqlStatement(
+                "SELECT * FROM person WHERE age > /*=*/ 12 /**/;").cacheResults("person");
+        assertEquals(statement.query("age", 12).toList().size(), 3);
+
+        RowQuery converted = statement.query("age", 12);
+        converted.addConverter("age", new Converter(String.class, Types.INTEGER) {
+            @Override
+            public void setValue(LSql lSql, PreparedStatement ps, int index, Object val) throws SQLException {
+                ps.setInt(index, Integer.parseInt((String) val));
+            }
+
+            @Override
+            public Object getValue(LSql lSql, ResultSet rs, int index) throws SQLException {
+                return String.valueOf(rs.getInt(index));
+            }
+        });
+        assertEquals(converted.toList().get(0).get("age"), "13");
+
+        statement.setParameterConverter("age", new Converter(Integer.class, Types.INTEGER) {
+            @Override
+            public void setValue(LSql lSql, PreparedStatement ps, int index, Object val) throws SQLException {
+                ps.setInt(index, (Integer) val + 2);
+            }
+
+            @Override
+            public Object getValue(LSql lSql, ResultSet rs, int index) throws SQLException {
+                return rs.getInt(index);
+            }
+        });
+        assertEquals(statement.query("age", 12).toList().size(), 1);
+    }
+
+    @Test
+    public void cachedStatementResultsSkipTheStatement() throws Exception {
+        this.addConfigHook(c -> c.setPreparedStatementCacheSize(2));
+        setup();
+        AbstractSqlStatement<RowQuery> statement = lSql.createSqlStatement(
+                "SELECT * FROM person WHERE age IN (/*ages=*/ 12, 13 /**/);").cacheResults("person");
+        QueryResultCache cache = lSql.getQueryResultCache();
+        PreparedStatementCache statementCache = lSql.getPreparedStatementCache();
+
+        // not cached inside a transaction
+        assertEquals(statement.query("ages", ListLiteralQueryParameter.of(12, 13)).toList().size(), 2);
+        assertEquals(cache.size(), 0);
+
+        lSql.getConnectionProvider().call().setAutoCommit(true);
+        assertEquals(statement.query("ages", ListLiteralQueryParameter.of(12, 13)).toList().size(), 2);
+        assertEquals(cache.size(), 1);
+
+        long prepared = statementCache.stats().requestCount();
+        List<Row> cached = statement.query("ages", ListLiteralQueryParameter.of(12, 13)).toList();
+        assertEquals(cached.size(), 2);
+        assertEquals(cache.getStats().hitCount(), 1);
+        assertEquals(statementCache.stats().requestCount(), prepared);
+    }
+
+    @Test
+    public void pageAndLimitRestrictRows() {
+        setup();
+        String sql = "SELECT * FROM person WHERE age > /*=*/ 0 /**/ ORDER BY id;";
+        List<Row> firstPage = lSql.createSqlStatement(sql).limit(2).query("age", 11).toList();
+        assertEquals(firstPage.size(), 2);
+        assertEquals(firstPage.get(0).getInt("id"), (Integer) 2);
+
+        List<Row> secondPage = lSql.createSqlStatement(sql).page(2, 2).query("age", 11).toList();
+        assertEquals(secondPage.size(), 2);
+        assertEquals(secondPage.get(0).getInt("id"), (Integer) 4);
+        assertEquals(secondPage.get(1).getInt("id"), (Integer) 5);
+    }
+
+    @Test
+    public void firstDoesNotLimitReusedPreparedStatements() throws SQLException {
+        this.addConfigHook(c -> c.setPreparedStatementCacheSize(2));
+        setup();
+        AbstractSqlStatement<RowQuery> statement = lSql.createSqlStatement("SELECT * FROM person ORDER BY id");
+        RowQuery first = statement.query();
+        assertEquals(first.first().get().getInt("id"), (Integer) 1);
+
+        RowQuery all = statement.query();
+        assertTrue(all.getPreparedStatement() == first.getPreparedStatement());
+        assertEquals(all.getPreparedStatement().getMaxRows(), 0);
+        assertEquals(all.toList().size(), 5);
+    }
+
+    @Test
+    public void countAndExists() {
+        setup();
+        AbstractSqlStatement<RowQuery> statement = lSql.createSqlStatement(
+                "SELECT * FROM person WHERE age > /*=*/ 0 /**/ ORDER BY id;").page(0, 2);
+        assertEquals(statement.count("age", 12), 3);
+        assertEquals(statement.count(), 5);
+        assertTrue(statement.exists("age", 14));
+        assertFalse(statement.exists("age", 15));
+    }
+
+    @Test
+    public void countSelectRemovesOrderBy() {
+        StatementCreator creator = new StatementCreator();
+        assertEquals(creator.createCountSelect("SELECT * FROM t ORDER BY a;"),
+                "SELECT COUNT(*) FROM (\nSELECT * FROM t\n) lsql_count");
+        assertEquals(creator.createCountSelect("SELECT * FROM t ORDER BY a LIMIT 5"),
+                "SELECT COUNT(*) FROM (\nSELECT * FROM t ORDER BY a LIMIT 5\n) lsql_count");
+        assertEquals(new SqlServerDialect().getStatementCreator().createExistsSelect("SELECT a FROM t"),
+                "SELECT TOP (1) 1 FROM (\nSELECT a FROM t\n) lsql_exists");
+    }
+
+    @Test
+    public void dialectLimitSyntax() {
+        String sql = "SELECT DISTINCT a FROM t WHERE b = ?;";
+        assertEquals(new PostgresDialect().getStatementCreator().createLimitedSelect(sql, 20, 10),
+                "SELECT DISTINCT a FROM t WHERE b = ?\nLIMIT 10 OFFSET 20");
+        assertEquals(new DB2Dialect().getStatementCreator().createLimitedSelect(sql, 20, 10),
+                "SELECT DISTINCT a FROM t WHERE b = ?\nOFFSET 20 ROWS FETCH NEXT 10 ROWS ONLY");
+        assertEquals(new SqlServerDialect().getStatementCreator().createLimitedSelect(sql, 0, 10),
+                "SELECT DISTINCT TOP (10) a FROM t WHERE b = ?");
+        assertEquals(new SqlServerDialect().getStatementCreator().createLimitedSelect(sql, 20, 10),
+                "SELECT DISTINCT a FROM t WHERE b = ?\nORDER BY (SELECT NULL)\nOFFSET 20 ROWS FETCH NEXT 10 ROWS ONLY");
+        assertEquals(new SqlServerDialect().getStatementCreator().createLimitedSelect(
+                "SELECT a FROM t ORDER BY a", 20, 10),
+                "SELECT a FROM t ORDER BY a\nOFFSET 20 ROWS FETCH NEXT 10 ROWS ONLY");
+    }
+
+    @Test
+    public void multiRowInsertChunkSizeRespectsDialectLimits() {
+        assertEquals(new PostgresDialect().getStatementCreator().getMultiRowInsertChunkSize(3), 21845);
+        assertEquals(new SqlServerDialect().getStatementCreator().getMultiRowInsertChunkSize(3), 699);
+        assertEquals(new SqlServerDialect().getStatementCreator().getMultiRowInsertChunkSize(1), 1000);
+        assertEquals(new DB2Dialect().getStatementCreator().getMultiRowInsertChunkSize(3000), 1);
+    }
+
+    @Test
+    public void rootPageSelectSyntax() {
+        String sql = "SELECT t.id AS \"/\", t.*, c.id AS \"/children\", c.* " +
+                "FROM t LEFT JOIN c ON t.id = c.t_id WHERE t.a = ? OR t.b = ? ORDER BY t.id, c.id;";
+        assertEquals(new PostgresDialect().getStatementCreator().createRootPageSelect(sql, 20, 10),
+                "SELECT t.id AS \"/\", t.*, c.id AS \"/children\", c.* FROM t LEFT JOIN c ON t.id = c.t_id " +
+                        "WHERE t.id IN (SELECT lsql_page.lsql_root FROM (\n" +
+                        "SELECT lsql_roots.lsql_root FROM (SELECT DISTINCT t.id AS lsql_root " +
+                        "FROM t LEFT JOIN c ON t.id = c.t_id WHERE t.a = ? OR t.b = ?) lsql_roots " +
+                        "ORDER BY lsql_roots.lsql_root\nLIMIT 10 OFFSET 20\n) lsql_page)\n" +
+                        "AND (t.a = ? OR t.b = ?)\n" +
+                        "ORDER BY t.id, c.id");
+    }
+
+    @Test
+    public void rootPageSelectIgnoresOrderByOfSubqueries() {
+        String sql = "SELECT t.id AS \"/\", t.* FROM t " +
+                "WHERE t.a IN (SELECT x.a FROM x ORDER BY x.a LIMIT 5)";
+        assertEquals(new PostgresDialect().getStatementCreator().createRootPageSelect(sql, 0, 10),
+                "SELECT t.id AS \"/\", t.* FROM t " +
+                        "WHERE t.id IN (SELECT lsql_page.lsql_root FROM (\n" +
+                        "SELECT lsql_roots.lsql_root FROM (SELECT DISTINCT t.id AS lsql_root " +
+                        "FROM t WHERE t.a IN (SELECT x.a FROM x ORDER BY x.a LIMIT 5)) lsql_roots " +
+                        "ORDER BY lsql_roots.lsql_root\nLIMIT 10\n) lsql_page)\n" +
+                        "AND (t.a IN (SELECT x.a FROM x ORDER BY x.a LIMIT 5))");
+    }
+
+    @Test
+    public void rootPageSelectIgnoresFromAndWhereOfSubqueries() {
+        String sql = "SELECT t.id AS \"/\", (SELECT MAX(c.id) FROM c WHERE c.t_id = t.id) AS max_c " +
+                "FROM t WHERE EXISTS (SELECT 1 FROM c WHERE c.t_id = t.id) ORDER BY t.id;";
+        assertEquals(new PostgresDialect().getStatementCreator().createRootPageSelect(sql, 0, 10),
+                "SELECT t.id AS \"/\", (SELECT MAX(c.id) FROM c WHERE c.t_id = t.id) AS max_c FROM t " +
+                        "WHERE t.id IN (SELECT lsql_page.lsql_root FROM (\n" +
+                        "SELECT lsql_roots.lsql_root FROM (SELECT DISTINCT t.id AS lsql_root " +
+                        "FROM t WHERE EXISTS (SELECT 1 FROM c WHERE c.t_id = t.id)) lsql_roots " +
+                        "ORDER BY lsql_roots.lsql_root\nLIMIT 10\n) lsql_page)\n" +
+                        "AND (EXISTS (SELECT 1 FROM c WHERE c.t_id = t.id))\n" +
+                        "ORDER BY t.id");
+    }
+
+    @Test
+    public void rootPageSelectOrdersRootsLikeTheStatement() {
+        String sql = "SELECT t.id AS \"/\", t.*, c.id AS \"/children\", c.* " +
+                "FROM t LEFT JOIN c ON t.id = c.t_id ORDER BY t.name DESC NULLS LAST, t.id, c.id;";
+        assertEquals(new PostgresDialect().getStatementCreator().createRootPageSelect(sql, 0, 10),
+                "SELECT t.id AS \"/\", t.*, c.id AS \"/children\", c.* FROM t LEFT JOIN c ON t.id = c.t_id\n" +
+                        "WHERE t.id IN (SELECT lsql_page.lsql_root FROM (\n" +
+                        "SELECT lsql_roots.lsql_root FROM (SELECT t.id AS lsql_root, MAX(t.name) AS lsql_order0 " +
+                        "FROM t LEFT JOIN c ON t.id = c.t_id GROUP BY t.id) lsql_roots " +
+                        "ORDER BY lsql_roots.lsql_order0 DESC NULLS LAST, lsql_roots.lsql_root\nLIMIT 10\n) lsql_page)\n" +
+                        "ORDER BY t.name DESC NULLS LAST, t.id, c.id");
+    }
+
+    @Test
+    public void rewrittenSelectsIgnoreOrderByInLiteralsAndComments() {
+        StatementCreator statementCreator = new PostgresDialect().getStatementCreator();
+        String sql = "SELECT * FROM t WHERE a = 'x ORDER BY y' -- ORDER BY z\n";
+        assertEquals(statementCreator.createCountSelect(sql), "SELECT COUNT(*) FROM (\n" + sql.trim() + "\n) lsql_count");
+        assertEquals(statementCreator.createCountSelect("SELECT * FROM t /* ORDER BY */ ORDER BY a"),
+                "SELECT COUNT(*) FROM (\nSELECT * FROM t /* ORDER BY */\n) lsql_count");
+    }
+
+    @Test
+    public void treePageStatementIsCompiledOnce() {
+        setup();
+        String sql = "SELECT id AS \"/\", age FROM person ORDER BY id;";
+        lSql.createSqlStatement(sql).treePage(0, 2);
+        long misses = lSql.getStatementCacheStats().missCount();
+        lSql.createSqlStatement(sql).treePage(0, 2);
+        assertEquals(lSql.getStatementCacheStats().missCount(), misses);
+    }
+
     private void setup() {
         createTable();
         insert(1, 11, "a");
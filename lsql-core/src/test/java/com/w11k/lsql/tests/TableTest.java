@@ -1,21 +1,29 @@
 package com.w11k.lsql.tests;
 
 import com.google.common.base.Optional;
+import com.google.common.collect.Lists;
 import com.w11k.lsql.LinkedRow;
 import com.w11k.lsql.Row;
 import com.w11k.lsql.Table;
 import com.w11k.lsql.exceptions.DatabaseAccessException;
 import com.w11k.lsql.exceptions.InsertException;
 import com.w11k.lsql.exceptions.UpdateException;
+import com.w11k.lsql.jdbc.PreparedStatementCache;
 import com.w11k.lsql.tests.testdata.PersonTestData;
 import com.w11k.lsql.validation.AbstractValidationError;
 import com.w11k.lsql.validation.KeyError;
 import com.w11k.lsql.validation.TypeError;
 import org.testng.annotations.Test;
 
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
 import java.sql.SQLException;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.TimeUnit;
 
 import static org.testng.Assert.*;
 
@@ -41,6 +49,109 @@ public class TableTest extends AbstractLSqlTest {
         assertEquals(table1.load(3).get().getInt("age"), (Integer) 3);
     }
 
+    @Test
+    public void preparedStatementsAreReusedWhenCacheIsEnabled() {
+        this.addConfigHook(c -> c.setPreparedStatementCacheSize(2));
+        createTable("CREATE TABLE table1 (id INTEGER PRIMARY KEY, age INT)");
+        Table table1 = lSql.table("table1");
+
+        table1.insert(Row.fromKeyVals("id", 1, "age", 1));
+        table1.insert(Row.fromKeyVals("id", 2, "age", 2));
+        assertEquals(table1.load(1).get().getInt("age"), (Integer) 1);
+        assertEquals(table1.load(2).get().getInt("age"), (Integer) 2);
+
+        assertEquals(lSql.getPreparedStatementCache().stats().missCount(), 2);
+        assertEquals(lSql.getPreparedStatementCache().stats().hitCount(), 2);
+        assertEquals(lSql.getPreparedStatementCache().getIdleStatementCount(), 2);
+
+        // third SQL string evicts the least recently used statement
+        table1.delete(1);
+        assertEquals(lSql.getPreparedStatementCache().getIdleStatementCount(), 2);
+        assertEquals(lSql.getPreparedStatementCache().stats().evictionCount(), 1);
+    }
+
+    @Test
+    public void preparedStatementCacheDropsStatementsOfClosedConnections() throws Exception {
+        this.addConfigHook(c -> c.setPreparedStatementCacheSize(2));
+        createTable("CREATE TABLE table1 (id INTEGER PRIMARY KEY, age INT)");
+        PreparedStatementCache cache = lSql.getPreparedStatementCache();
+
+        Connection other = DriverManager.getConnection("jdbc:h2:mem:testdb;mode=postgresql");
+        cache.release(cache.prepare(other, "SELECT * FROM table1", false));
+        assertEquals(cache.getConnectionCount(), 1);
+        other.close();
+
+        lSql.table("table1").load(1);
+        assertEquals(cache.getConnectionCount(), 1);
+        assertEquals(cache.getIdleStatementCount(), 1);
+
+        cache.evict(lSql.getConnectionProvider().call());
+        assertEquals(cache.getConnectionCount(), 0);
+    }
+
+    @Test
+    public void preparedStatementCacheClosesStatementsThatFailToReset() throws Exception {
+        this.addConfigHook(c -> c.setPreparedStatementCacheSize(2));
+        createTable("CREATE TABLE table1 (id INTEGER PRIMARY KEY, age INT)");
+        PreparedStatementCache cache = lSql.getPreparedStatementCache();
+
+        Connection connection = lSql.getConnectionProvider().call();
+        PreparedStatement delegate = connection.prepareStatement("SELECT * FROM table1");
+        PreparedStatement failing = (PreparedStatement) Proxy.newProxyInstance(
+                getClass().getClassLoader(),
+                new Class<?>[]{PreparedStatement.class},
+                (proxy, method, args) -> {
+                    if (method.getName().equals("clearBatch")) {
+                        throw new SQLException("clearBatch failed");
+                    }
+                    try {
+                        return method.invoke(delegate, args);
+                    } catch (InvocationTargetException e) {
+                        throw e.getCause();
+                    }
+                });
+        Connection failingConnection = (Connection) Proxy.newProxyInstance(
+                getClass().getClassLoader(),
+                new Class<?>[]{Connection.class},
+                (proxy, method, args) -> {
+                    if (method.getName().equals("prepareStatement")) {
+                        return failing;
+                    }
+                    try {
+                        return method.invoke(connection, args);
+                    } catch (InvocationTargetException e) {
+                        throw e.getCause();
+                    }
+                });
+
+        PreparedStatement ps = cache.prepare(failingConnection, "SELECT * FROM table1", false);
+        try {
+            cache.release(ps);
+            fail();
+        } catch (SQLException expected) {
+            // expected
+        }
+        assertTrue(delegate.isClosed());
+        assertEquals(cache.getIdleStatementCount(), 0);
+    }
+
+    @Test
+    public void asyncInsertUpdateAndLoad() throws Exception {
+        createTable("CREATE TABLE table1 (id INTEGER PRIMARY KEY, age INT)");
+        Table table1 = lSql.table("table1");
+
+        Optional<Object> id = table1.insertAsync(Row.fromKeyVals("id", 1, "age", 1)).get(10, TimeUnit.SECONDS);
+        assertEquals(id.get(), 1);
+        table1.updateAsync(Row.fromKeyVals("id", 1, "age", 2)).get(10, TimeUnit.SECONDS);
+        LinkedRow row = table1.loadAsync(1).get(10, TimeUnit.SECONDS).get();
+        assertEquals(row.getInt("age"), (Integer) 2);
+
+        List<Row> rows = lSql.executeAsync(() -> lSql.executeRawQuery("SELECT * FROM table1").toList())
+                .get(10, TimeUnit.SECONDS);
+        assertEquals(rows.size(), 1);
+        assertEquals(lSql.getJdbcExecutor().getCompletedCount(), 4);
+    }
+
     @Test
     public void getByIdReturnAbsentOnWrongId() {
         createTable("CREATE TABLE table1 (id INTEGER PRIMARY KEY, age INT)");
@@ -92,6 +203,100 @@ public class TableTest extends AbstractLSqlTest {
         assertEquals(query.getInt("age"), (Integer) 1);
     }
 
+    @Test
+    public void insertAllUsesBatchesPerColumnSet() {
+        createTable("CREATE TABLE table1 (id SERIAL PRIMARY KEY, age INT, name TEXT)");
+        Table table1 = lSql.table("table1");
+        List<Row> rows = Lists.newArrayList();
+        for (int i = 0; i < 5; i++) {
+            rows.add(Row.fromKeyVals("age", i));
+            // descending, H2 moves the sequence past explicit keys that are greater
+            rows.add(Row.fromKeyVals("id", 200 - i, "name", "n" + i));
+        }
+        rows.add(Row.fromKeyVals("id", null, "age", 99));
+
+        List<Optional<Object>> ids = table1.insertAll(rows, 2);
+        assertEquals(ids.size(), rows.size());
+        assertEquals(ids.get(1), Optional.of(200));
+        assertEquals(ids.get(9), Optional.of(196));
+        assertEquals(lSql.executeRawQuery("SELECT * FROM table1").toList().size(), rows.size());
+
+        // the caller's row with a null key is not modified
+        assertTrue(rows.get(10).containsKey("id"));
+        assertNull(rows.get(10).get("id"));
+
+        for (int i = 0; i < 10; i++) {
+            // generated keys are only returned if the driver supports them for batches
+            if (ids.get(i).isPresent()) {
+                assertEquals(ids.get(i).get(), rows.get(i).get("id"));
+                Row loaded = table1.load(ids.get(i).get()).get();
+                assertEquals(loaded.get("age"), rows.get(i).get("age"));
+                assertEquals(loaded.get("name"), rows.get(i).get("name"));
+            }
+        }
+    }
+
+    @Test
+    public void insertAllKeepsTheOrderOfTheRows() {
+        createTable("CREATE TABLE table1 (id INTEGER PRIMARY KEY, parent_id INT REFERENCES table1 (id), name TEXT)");
+        Table table1 = lSql.table("table1");
+        List<Row> rows = Lists.newArrayList(
+                Row.fromKeyVals("id", 1, "parentId", null, "name", "root"),
+                Row.fromKeyVals("id", 2, "parentId", 1),
+                Row.fromKeyVals("id", 3, "parentId", 2, "name", "leaf"));
+
+        table1.insertAll(rows);
+        assertEquals(table1.load(3).get().get("parentId"), 2);
+    }
+
+    @Test
+    public void insertAllPreparesOneStatementPerColumnSet() {
+        this.addConfigHook(c -> c.setPreparedStatementCacheSize(2));
+        createTable("CREATE TABLE table1 (id INTEGER PRIMARY KEY, age INT, name TEXT)");
+        Table table1 = lSql.table("table1");
+        PreparedStatementCache cache = lSql.getPreparedStatementCache();
+
+        long requests = cache.stats().requestCount();
+        table1.insertAll(createRows(10), 3);
+        assertEquals(cache.stats().requestCount(), requests + 1);
+        assertEquals(lSql.createSqlStatement("SELECT * FROM table1").count(), 10);
+    }
+
+    @Test
+    public void insertAllMultiRowUsesDialectChunks() {
+        createTable("CREATE TABLE table1 (id INTEGER PRIMARY KEY, age INT, name TEXT)");
+        Table table1 = lSql.table("table1");
+        // 3 columns, 666 rows per statement with the generic parameter limit
+        List<Row> rows = createRows(1500);
+
+        List<Optional<Object>> ids = table1.insertAllMultiRow(rows);
+        assertEquals(ids.size(), rows.size());
+        assertEquals(ids.get(1499), Optional.of(1499));
+        assertEquals(lSql.createSqlStatement("SELECT * FROM table1").count(), rows.size());
+        assertEquals(table1.load(700).get().get("name"), "n700");
+    }
+
+    @Test
+    public void insertAllMultiRowPreparesOneStatementPerChunkSize() {
+        this.addConfigHook(c -> c.setPreparedStatementCacheSize(2));
+        createTable("CREATE TABLE table1 (id INTEGER PRIMARY KEY, age INT, name TEXT)");
+        createTable("CREATE TABLE table2 (id INTEGER PRIMARY KEY, age INT, name TEXT)");
+        Table table1 = lSql.table("table1");
+        Table table2 = lSql.table("table2");
+        PreparedStatementCache cache = lSql.getPreparedStatementCache();
+
+        // chunks of 666, 666 and 168 rows
+        long requests = cache.stats().requestCount();
+        table1.insertAllMultiRow(createRows(1500));
+        assertEquals(cache.stats().requestCount(), requests + 2);
+
+        // same rows as with JDBC batches
+        table2.insertAll(createRows(1500));
+        assertEquals(lSql.createSqlStatement("SELECT * FROM table1").count(), 1500);
+        assertEquals(lSql.createSqlStatement("SELECT t1.id FROM table1 t1 JOIN table2 t2 " +
+                "ON t1.id = t2.id AND t1.age = t2.age AND t1.name = t2.name").count(), 1500);
+    }
+
     @SuppressWarnings("Duplicates")
     @Test
     public void insertShouldPutIdIntoRowObject() {
@@ -292,4 +497,12 @@ public class TableTest extends AbstractLSqlTest {
         assertEquals(validate.get("field3").getClass(), KeyError.class);
     }
 
+    private List<Row> createRows(int count) {
+        List<Row> rows = Lists.newArrayListWithCapacity(count);
+        for (int i = 0; i < count; i++) {
+            rows.add(Row.fromKeyVals("id", i, "age", i % 100, "name", "n" + i));
+        }
+        return rows;
+    }
+
 }
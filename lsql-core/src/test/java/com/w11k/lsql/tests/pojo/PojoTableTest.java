@@ -10,6 +10,8 @@ import com.w11k.lsql.tests.AbstractLSqlTest;
 import com.w11k.lsql.tests.testdata.*;
 import org.testng.annotations.Test;
 
+import java.util.Arrays;
+import java.util.List;
 import java.util.concurrent.atomic.AtomicInteger;
 
 import static org.testng.Assert.*;
@@ -28,6 +30,19 @@ public class PojoTableTest extends AbstractLSqlTest {
         assertEquals(linkedRow.getString("firstName"), "Max");
     }
 
+    @Test
+    public void insertAll() {
+        PersonTestData.init(this.lSql, false);
+        PojoTable<Person> personTable = this.lSql.table("person", Person.class);
+        List<Optional<Object>> ids = personTable.insertAll(Arrays.asList(
+                new Person(1, "Max", 30),
+                new Person(2, "Walter", 40)));
+        assertEquals(ids, Arrays.asList(Optional.of(1), Optional.of(2)));
+
+        Table personRowTable = this.lSql.table("person");
+        assertEquals(personRowTable.load(2).get().getString("firstName"), "Walter");
+    }
+
     @Test
     public void update() {
         PersonTestData.init(this.lSql, false);
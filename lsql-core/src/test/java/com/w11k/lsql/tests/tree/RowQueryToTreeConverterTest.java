@@ -1,7 +1,12 @@
 package com.w11k.lsql.tests.tree;
 
+import com.google.common.collect.Lists;
+import com.w11k.lsql.MultiQueryTree;
 import com.w11k.lsql.Row;
+import com.w11k.lsql.query.QueryCursor;
 import com.w11k.lsql.query.RowQuery;
+import com.w11k.lsql.sqlfile.LSqlFile;
+import com.w11k.lsql.statement.AbstractSqlStatement;
 import com.w11k.lsql.tests.AbstractLSqlTest;
 import com.w11k.lsql.utils.DebugUtils;
 import org.testng.annotations.Test;
@@ -10,6 +15,7 @@ import java.util.List;
 
 import static java.lang.Integer.valueOf;
 import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
 
 public class RowQueryToTreeConverterTest extends AbstractLSqlTest {
 
@@ -68,6 +74,116 @@ public class RowQueryToTreeConverterTest extends AbstractLSqlTest {
         assertCities(tree);
     }
 
+    @Test
+    public void treeIteratorEmitsCompletedTopLevelEntities() {
+        RowQuery query = this.treeTestData.getlSqlFile().statement("continentsWithFactsAndCountriesAndCities_1").query();
+        List<Row> tree = Lists.newArrayList();
+        try (QueryCursor<Row> cursor = query.treeIterator()) {
+            while (cursor.hasNext()) {
+                tree.add(cursor.next());
+            }
+        }
+        assertTrue(query.isClosed());
+        assertContinents(tree);
+        assertFacts(tree);
+        assertCountries(tree);
+        assertCities(tree);
+    }
+
+    @Test
+    public void rxTree() {
+        RowQuery query = this.treeTestData.getlSqlFile().statement("continentsWithFactsAndCountries").query();
+        List<Row> tree = query.rxTree().toList().blockingGet();
+        query.close();
+        assertContinents(tree);
+        assertFacts(tree);
+        assertCountries(tree);
+    }
+
+    @Test
+    public void continentsWithCountriesByNonIntegerMarkers() {
+        RowQuery query = this.lSql.createSqlStatement("SELECT " +
+                "CAST(continent.name AS VARCHAR) AS \"/\", continent.*, " +
+                "CAST(country.id AS BIGINT) * 10000000000 AS \"/countries\", country.* " +
+                "FROM continent LEFT JOIN country ON continent.id = country.continent_id " +
+                "ORDER BY continent.id, country.id").query();
+        List<Row> tree = query.toTree();
+        assertContinents(tree);
+        assertCountries(tree);
+    }
+
+    @Test
+    public void treePageLimitsRootEntities() {
+        AbstractSqlStatement<RowQuery> statement =
+                this.treeTestData.getlSqlFile().statement("continentsWithFactsAndCountriesAndCities_1");
+        List<Row> firstPage = statement.treePage(0, 1).query().toTree();
+        assertEquals(firstPage.size(), 1);
+        assertEquals(firstPage.get(0).getString("name"), "Europe");
+        assertEquals(firstPage.get(0).getAsListOf(Row.class, "facts").size(), 2);
+        assertEquals(firstPage.get(0).getAsListOf(Row.class, "countries").size(), 2);
+        assertEquals(firstPage.get(0).getAsListOf(Row.class, "countries").get(0)
+                .getAsListOf(Row.class, "cities").size(), 2);
+
+        List<Row> secondPage = this.treeTestData.getlSqlFile().statement("continentsWithFactsAndCountriesAndCities_1")
+                .treePage(1, 10).query().toTree();
+        assertEquals(secondPage.size(), 1);
+        assertEquals(secondPage.get(0).getString("name"), "North America");
+        assertEquals(secondPage.get(0).getAsListOf(Row.class, "countries").get(0)
+                .getAsListOf(Row.class, "cities").get(1).getString("name"), "New York");
+    }
+
+    @Test
+    public void treePageOrdersRootEntitiesLikeTheStatement() {
+        AbstractSqlStatement<RowQuery> statement = this.lSql.createSqlStatement("SELECT " +
+                "continent.id AS \"/\", continent.*, country.id AS \"/countries\", country.* " +
+                "FROM continent LEFT JOIN country ON continent.id = country.continent_id " +
+                "ORDER BY continent.name DESC, continent.id, country.id");
+        List<Row> firstPage = statement.treePage(0, 1).query().toTree();
+        assertEquals(firstPage.size(), 1);
+        assertEquals(firstPage.get(0).getString("name"), "North America");
+
+        List<Row> secondPage = statement.treePage(1, 1).query().toTree();
+        assertEquals(secondPage.get(0).getString("name"), "Europe");
+    }
+
+    @Test
+    public void treePageKeepsWhereClauseAndParameters() {
+        AbstractSqlStatement<RowQuery> statement = this.lSql.createSqlStatement("SELECT " +
+                "continent.id AS \"/\", continent.*, country.id AS \"/countries\", country.* " +
+                "FROM continent LEFT JOIN country ON continent.id = country.continent_id " +
+                "WHERE country.name <> /*excluded=*/ 'x' /**/ OR continent.id = 2 " +
+                "ORDER BY continent.id, country.id");
+        List<Row> tree = statement.treePage(0, 1).query("excluded", "Germany").toTree();
+        assertEquals(tree.size(), 1);
+        assertEquals(tree.get(0).getString("name"), "Europe");
+        List<Row> countries = tree.get(0).getAsListOf(Row.class, "countries");
+        assertEquals(countries.size(), 1);
+        assertEquals(countries.get(0).getString("name"), "Netherlands");
+    }
+
+    @Test
+    public void multiQueryTree() {
+        LSqlFile file = this.treeTestData.getlSqlFile();
+        MultiQueryTree<Row> multiQueryTree = this.lSql.multiQueryTree(file.statement("continentsWithoutMarker")).chunkSize(1);
+        multiQueryTree.child("facts", file.statement("factsByContinents"), "continentIds", "continentId");
+        multiQueryTree.child("countries", file.statement("countriesByContinents"), "continentIds", "continentId")
+                .child("cities", file.statement("citiesByCountries"), "countryIds", "countryId");
+
+        MultiQueryTree.Result<Row> result = multiQueryTree.execute();
+        List<Row> tree = result.getTree();
+        assertContinents(tree);
+        assertFacts(tree);
+        assertCountries(tree);
+        assertCities(tree);
+
+        // root + one statement per parent ID and branch
+        assertEquals(result.getQueryCount(), 1 + 2 + 2 + 4);
+        assertEquals(result.getEntityCount(), 2 + 4 + 4 + 4);
+        assertEquals(result.getFetchedRowCount(), result.getEntityCount());
+        // rows of continentsWithFactsAndCountriesAndCities_1: 2 continents * 2 facts * 3 country/city rows
+        assertEquals(result.getJoinedRowCount(), 12);
+    }
+
     private void assertContinents(List<Row> tree) {
         assertEquals(tree.size(), 2);
         assertEquals(tree.get(0).getInt("id"), valueOf(1));
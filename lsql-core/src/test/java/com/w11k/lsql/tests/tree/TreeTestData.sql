@@ -61,5 +61,25 @@ FROM continent
     LEFT JOIN city ON country.id = city.country_id
 ORDER BY continent.id, continent_fact.id, country.id;
 
+--continentsWithoutMarker
+SELECT *
+FROM continent
+ORDER BY id;
+
+--factsByContinents
+SELECT *
+FROM continent_fact
+WHERE continent_id IN (/*continentIds=*/ 1 /**/)
+ORDER BY id;
 
+--countriesByContinents
+SELECT *
+FROM country
+WHERE continent_id IN (/*continentIds=*/ 1 /**/)
+ORDER BY id;
 
+--citiesByCountries
+SELECT *
+FROM city
+WHERE country_id IN (/*countryIds=*/ 1 /**/)
+ORDER BY id;
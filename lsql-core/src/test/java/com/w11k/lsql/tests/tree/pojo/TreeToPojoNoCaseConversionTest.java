@@ -1,5 +1,7 @@
 package com.w11k.lsql.tests.tree.pojo;
 
+import com.w11k.lsql.MultiQueryTree;
+import com.w11k.lsql.sqlfile.LSqlFile;
 import com.w11k.lsql.tests.AbstractLSqlTest;
 import com.w11k.lsql.tests.tree.TreeTestData;
 import com.w11k.lsql.utils.DebugUtils;
@@ -8,6 +10,7 @@ import org.testng.annotations.Test;
 import java.util.List;
 
 import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNull;
 
 public class TreeToPojoNoCaseConversionTest extends AbstractLSqlTest {
 
@@ -99,5 +102,23 @@ public class TreeToPojoNoCaseConversionTest extends AbstractLSqlTest {
         assertEquals(tree.get(1).getCountries().get(0).getCities().get(1).getName(), "New York");
     }
 
+    @Test
+    public void multiQueryTree() {
+        LSqlFile file = this.treeTestData.getlSqlFile();
+        MultiQueryTree<ContinentWithFactsCountriesCities> multiQueryTree =
+                this.lSql.multiQueryTree(ContinentWithFactsCountriesCities.class, file.statement("continentsWithoutMarker"));
+        multiQueryTree.child("facts", file.statement("factsByContinents"), "continentIds", "continentId");
+        multiQueryTree.child("countries", file.statement("countriesByContinents"), "continentIds", "continentId")
+                .child("cities", file.statement("citiesByCountries"), "countryIds", "countryId");
+
+        List<ContinentWithFactsCountriesCities> tree = multiQueryTree.toTree();
+        assertEquals(tree.size(), 2);
+        assertEquals(tree.get(1).getName(), "North America");
+        assertEquals(tree.get(1).getFacts().size(), 2);
+        assertEquals(tree.get(1).getFacts().get(1).getFactName(), "Largest city");
+        assertEquals(tree.get(1).getCountries().size(), 2);
+        assertEquals(tree.get(1).getCountries().get(0).getCities().get(1).getName(), "New York");
+        assertNull(tree.get(1).getCountries().get(1).getCities());
+    }
 
 }